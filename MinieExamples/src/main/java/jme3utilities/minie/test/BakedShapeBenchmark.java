@@ -0,0 +1,169 @@
+/*
+ Copyright (c) 2021, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.util.BakedShapeUtil;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.shape.Sphere;
+import com.jme3.system.NativeLibraryLoader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.logging.Logger;
+
+/**
+ * A console application to compare the speed of loading a MeshCollisionShape
+ * from the baked format of BakedShapeUtil with importing it from J3O data and
+ * with constructing it from scratch.
+ */
+public class BakedShapeBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of timed invocations of each method
+     */
+    final private static int numTrials = 20;
+    /**
+     * number of untimed invocations of each method, to warm up the JIT
+     */
+    final private static int numWarmups = 10;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(BakedShapeBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * accumulated results, to discourage dead-code elimination
+     */
+    private static long checksum = 0L;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the BakedShapeBenchmark application.
+     *
+     * @param ignored array of command-line arguments (not null)
+     * @throws IOException if the shape cannot be serialized
+     */
+    public static void main(String[] ignored) throws IOException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+        /*
+         * A UV sphere with about 100k triangles.
+         */
+        int zSamples = 226;
+        int radialSamples = 226;
+        float radius = 1f;
+        final Mesh mesh = new Sphere(zSamples, radialSamples, radius);
+        boolean useCompression = true;
+        MeshCollisionShape shape
+                = new MeshCollisionShape(mesh, useCompression);
+        /*
+         * Serialize the shape in both formats.
+         */
+        final byte[] bakedBytes = BakedShapeUtil.toBytes(shape);
+        final ByteBuffer baked = ByteBuffer.allocateDirect(bakedBytes.length);
+        baked.order(ByteOrder.nativeOrder());
+        baked.put(bakedBytes);
+        baked.flip();
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BinaryExporter.getInstance().save(shape, stream);
+        final byte[] j3oBytes = stream.toByteArray();
+
+        System.out.printf("mesh has %d triangles%n",
+                shape.countMeshTriangles());
+        System.out.printf("baked data is %d bytes, J3O data is %d bytes%n",
+                bakedBytes.length, j3oBytes.length);
+
+        time("BakedShapeUtil.loadShape", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    CollisionShape copy
+                            = BakedShapeUtil.loadShape(baked.duplicate());
+                    checksum += copy.nativeId();
+                } catch (IOException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        });
+        time("BinaryImporter.load", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    BinaryImporter importer = new BinaryImporter();
+                    CollisionShape copy
+                            = (CollisionShape) importer.load(j3oBytes);
+                    checksum += copy.nativeId();
+                } catch (IOException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+        });
+        time("new MeshCollisionShape", new Runnable() {
+            @Override
+            public void run() {
+                CollisionShape copy = new MeshCollisionShape(mesh, true);
+                checksum += copy.nativeId();
+            }
+        });
+
+        System.out.printf("checksum = %d%n", checksum);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Time the specified task and print the mean duration of an invocation.
+     *
+     * @param name the name of the task (not null)
+     * @param task the task to time (not null)
+     */
+    private static void time(String name, Runnable task) {
+        for (int i = 0; i < numWarmups; ++i) {
+            task.run();
+        }
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < numTrials; ++i) {
+            task.run();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        double msPerCall = elapsedNanos * 1e-6 / numTrials;
+        System.out.printf("%-28s %9.3f ms%n", name, msPerCall);
+    }
+}
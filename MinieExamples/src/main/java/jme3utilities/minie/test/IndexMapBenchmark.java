@@ -0,0 +1,160 @@
+/*
+ Copyright (c) 2021, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.util.NativeSoftBodyUtil;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.scene.shape.Sphere;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.logging.Logger;
+
+/**
+ * A console application to measure the speed of the index-map methods in
+ * NativeSoftBodyUtil, which are used when creating soft bodies from large
+ * meshes.
+ */
+public class IndexMapBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of timed invocations of each method
+     */
+    final private static int numTrials = 20;
+    /**
+     * number of untimed invocations of each method, to warm up the JIT
+     */
+    final private static int numWarmups = 10;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(IndexMapBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * index map being processed
+     */
+    private static IntBuffer indexMap;
+    /**
+     * accumulated results, to discourage dead-code elimination
+     */
+    private static long checksum = 0L;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the IndexMapBenchmark application.
+     *
+     * @param ignored array of command-line arguments (not null)
+     */
+    public static void main(String[] ignored) {
+        /*
+         * A UV sphere with 100k vertices, many of them duplicated
+         * along the seam and at the poles.
+         */
+        int zSamples = 316;
+        int radialSamples = 316;
+        float radius = 1f;
+        Mesh mesh = new Sphere(zSamples, radialSamples, radius);
+        final FloatBuffer positions
+                = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        final FloatBuffer normals
+                = mesh.getFloatBuffer(VertexBuffer.Type.Normal);
+        final IndexBuffer indices = mesh.getIndicesAsList();
+        final IndexBuffer reuse = IndexBuffer.createIndexBuffer(
+                Integer.MAX_VALUE, indices.size());
+        System.out.printf("mesh has %d vertices and %d indices%n",
+                mesh.getVertexCount(), indices.size());
+
+        indexMap = NativeSoftBodyUtil.generateIndexMap(positions);
+
+        time("generateIndexMap(exact)", new Runnable() {
+            @Override
+            public void run() {
+                indexMap = NativeSoftBodyUtil.generateIndexMap(positions);
+                checksum += indexMap.get(indexMap.limit() - 1);
+            }
+        });
+        time("generateIndexMap(tolerance)", new Runnable() {
+            @Override
+            public void run() {
+                float tolerance = 1e-4f;
+                IntBuffer map
+                        = NativeSoftBodyUtil.generateIndexMap(positions,
+                                tolerance);
+                checksum += map.get(map.limit() - 1);
+            }
+        });
+        time("mapIndices", new Runnable() {
+            @Override
+            public void run() {
+                IndexBuffer result = NativeSoftBodyUtil.mapIndices(indexMap,
+                        indices, reuse);
+                checksum += result.get(0);
+            }
+        });
+        time("mapVertexData", new Runnable() {
+            @Override
+            public void run() {
+                int numAxes = 3;
+                FloatBuffer result = NativeSoftBodyUtil.mapVertexData(indexMap,
+                        normals, numAxes);
+                checksum += result.limit();
+            }
+        });
+
+        System.out.printf("checksum = %d%n", checksum);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Time the specified task and print the mean duration of an invocation.
+     *
+     * @param name the name of the task (not null)
+     * @param task the task to time (not null)
+     */
+    private static void time(String name, Runnable task) {
+        for (int i = 0; i < numWarmups; ++i) {
+            task.run();
+        }
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < numTrials; ++i) {
+            task.run();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        double msPerCall = elapsedNanos * 1e-6 / numTrials;
+        System.out.printf("%-28s %9.3f ms%n", name, msPerCall);
+    }
+}
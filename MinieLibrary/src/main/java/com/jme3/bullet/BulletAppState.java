@@ -241,6 +241,17 @@ public class BulletAppState
         return debugConfig.axisLineWidth();
     }
 
+    /**
+     * Determine the maximum distance from the debug camera at which collision
+     * objects are visualized.
+     *
+     * @return the distance (in world units, &ge;0) or Float.MAX_VALUE for no
+     * limit
+     */
+    public float debugCullingDistance() {
+        return debugConfig.cullingDistance();
+    }
+
     /**
      * Determine which broadphase collision-detection algorithm the PhysicsSpace
      * will use.
@@ -309,6 +320,25 @@ public class BulletAppState
         return debugConfig.isEnabled();
     }
 
+    /**
+     * Test whether collision objects outside the debug camera's frustum are
+     * omitted from debug visualization.
+     *
+     * @return true if culling, otherwise false
+     */
+    public boolean isDebugFrustumCulling() {
+        return debugConfig.isFrustumCulling();
+    }
+
+    /**
+     * Test whether debug visualization uses hardware instancing.
+     *
+     * @return true if instancing, otherwise false
+     */
+    public boolean isDebugInstancing() {
+        return debugConfig.isInstancing();
+    }
+
     /**
      * Test whether the physics simulation is running (started but not yet
      * stopped).
@@ -378,6 +408,19 @@ public class BulletAppState
         debugConfig.setCamera(camera);
     }
 
+    /**
+     * Alter the maximum distance from the debug camera at which collision
+     * objects are visualized. Debug meshes aren't generated until an object
+     * comes within range.
+     *
+     * @param distance the desired distance (in world units, &ge;0) or
+     * Float.MAX_VALUE for no limit (default=Float.MAX_VALUE)
+     */
+    public void setDebugCullingDistance(float distance) {
+        Validate.nonNegative(distance, "distance");
+        debugConfig.setCullingDistance(distance);
+    }
+
     /**
      * Enable or disable debug visualization. Changes take effect on the next
      * update.
@@ -399,6 +442,18 @@ public class BulletAppState
         debugConfig.setFilter(filter);
     }
 
+    /**
+     * Alter whether collision objects outside the debug camera's frustum are
+     * omitted from debug visualization. Debug meshes aren't generated until an
+     * object comes into view.
+     *
+     * @param enable true &rarr; cull, false &rarr; visualize regardless of the
+     * frustum (default=false)
+     */
+    public void setDebugFrustumCulling(boolean enable) {
+        debugConfig.setFrustumCulling(enable);
+    }
+
     /**
      * Alter which gravity vectors are included in the debug visualization.
      *
@@ -424,6 +479,19 @@ public class BulletAppState
         debugConfig.setInitListener(listener);
     }
 
+    /**
+     * Alter whether debug visualization uses hardware instancing. When
+     * enabled, rigid bodies that share a non-compound shape and use default
+     * debug materials are drawn in batches, one draw call per distinct shape
+     * and material. Requires a renderer that supports instancing. Changes take
+     * effect on the next update.
+     *
+     * @param enable true &rarr; enable, false &rarr; disable (default=false)
+     */
+    public void setDebugInstancing(boolean enable) {
+        debugConfig.setInstancing(enable);
+    }
+
     /**
      * Alter the line width for PhysicsJoint debug arrows.
      *
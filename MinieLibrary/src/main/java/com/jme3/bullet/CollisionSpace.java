@@ -103,6 +103,10 @@ public class CollisionSpace extends NativePhysicsObject {
      */
     final private Map<Long, PhysicsGhostObject> ghostMap
             = new ConcurrentHashMap<>(64);
+    /**
+     * number of times an object has been added to or removed from this space
+     */
+    private volatile int modCount = 0;
     /**
      * physics-space reference for each thread
      */
@@ -262,6 +266,17 @@ public class CollisionSpace extends NativePhysicsObject {
         return count;
     }
 
+    /**
+     * Read the modification count of this space, which is incremented each
+     * time a collision object, joint, or multibody is added or removed. This
+     * allows visualizers to detect changes without enumerating the contents.
+     *
+     * @return the count (&ge;0, wraps around on overflow)
+     */
+    public int countModifications() {
+        return modCount;
+    }
+
     /**
      * Remove all collision objects and physics joints.
      */
@@ -601,6 +616,14 @@ public class CollisionSpace extends NativePhysicsObject {
         loggerC.log(Level.FINE, "Created {0}.", this);
     }
 
+    /**
+     * Increment the modification count. Should be invoked each time an object
+     * is added to or removed from this space.
+     */
+    protected void incrementModCount() {
+        ++modCount;
+    }
+
     /**
      * Must be invoked on the designated physics thread.
      *
@@ -631,6 +654,7 @@ public class CollisionSpace extends NativePhysicsObject {
 
         long ghostId = ghost.nativeId();
         ghostMap.put(ghostId, ghost);
+        incrementModCount();
 
         long spaceId = nativeId();
         addCollisionObject(spaceId, ghostId);
@@ -682,6 +706,7 @@ public class CollisionSpace extends NativePhysicsObject {
         }
 
         ghostMap.remove(ghostId);
+        incrementModCount();
         loggerC.log(Level.FINE, "Removing {0} from {1}.",
                 new Object[]{ghost, this});
 
@@ -115,6 +115,7 @@ public class MultiBodySpace extends PhysicsSpace {
         }
 
         multiBodyMap.put(multiBodyId, multiBody);
+        incrementModCount();
         logger2.log(Level.FINE, "Adding {0} to {1}.",
                 new Object[]{multiBody, this});
 
@@ -172,6 +173,7 @@ public class MultiBodySpace extends PhysicsSpace {
         logger2.log(Level.FINE, "Removing {0} from {1}.",
                 new Object[]{multiBody, this});
         multiBodyMap.remove(multiBodyId);
+        incrementModCount();
         long spaceId = nativeId();
         removeMultiBody(spaceId, multiBodyId);
     }
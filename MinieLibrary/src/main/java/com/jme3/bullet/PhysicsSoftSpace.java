@@ -31,10 +31,15 @@
  */
 package com.jme3.bullet;
 
+import com.jme3.bounding.BoundingBox;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.joints.PhysicsJoint;
+import com.jme3.bullet.objects.PhysicsCharacter;
+import com.jme3.bullet.objects.PhysicsRigidBody;
 import com.jme3.bullet.objects.PhysicsSoftBody;
 import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -45,6 +50,10 @@ import java.util.logging.Logger;
 /**
  * A PhysicsSpace that supports soft bodies, with its own
  * btSoftRigidDynamicsWorld.
+ * <p>
+ * Before each simulation step, soft bodies with a positive sleeping threshold
+ * are put to sleep once they've settled, and sleeping ones are woken when an
+ * active body's bounding box overlaps theirs.
  *
  * @author dokthar
  */
@@ -52,6 +61,11 @@ public class PhysicsSoftSpace extends PhysicsSpace {
     // *************************************************************************
     // constants and loggers
 
+    /**
+     * change in sampled wind velocity (in physics-space units per second)
+     * that wakes a sleeping soft body
+     */
+    final private static float windTolerance = 0.01f;
     /**
      * message logger for this class
      */
@@ -60,6 +74,21 @@ public class PhysicsSoftSpace extends PhysicsSpace {
     // *************************************************************************
     // fields
 
+    /**
+     * reusable bounding box for the sleep policy
+     */
+    final private BoundingBox tmpBox = new BoundingBox();
+    /**
+     * axis-aligned bounds of the active collision objects, 6 floats per object
+     * (minima then maxima), reused by the sleep policy
+     */
+    private float[] activeBounds = new float[6 * 16];
+    /**
+     * active collision objects found by the sleep policy, in the same order
+     * as activeBounds
+     */
+    final private ArrayList<PhysicsCollisionObject> activeObjects
+            = new ArrayList<>(16);
     /**
      * map soft-body IDs to added objects
      */
@@ -69,6 +98,16 @@ public class PhysicsSoftSpace extends PhysicsSpace {
      * parameters applied when soft bodies are added to this space
      */
     final private SoftBodyWorldInfo worldInfo;
+    /**
+     * reusable vectors for applying the wind field
+     */
+    final private Vector3f tmpLocation = new Vector3f();
+    final private Vector3f tmpOldWind = new Vector3f();
+    final private Vector3f tmpWind = new Vector3f();
+    /**
+     * wind applied to all soft bodies before each step, or null for none
+     */
+    private WindField windField = null;
     // *************************************************************************
     // constructors
 
@@ -134,6 +173,15 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         return (PhysicsSoftSpace) getCollisionSpace();
     }
 
+    /**
+     * Access the wind field applied to soft bodies in this space.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public WindField getWindField() {
+        return windField;
+    }
+
     /**
      * Access the parameters applied when soft bodies are added to this space.
      *
@@ -144,6 +192,20 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         assert worldInfo.nativeId() == getWorldInfo(nativeId());
         return worldInfo;
     }
+
+    /**
+     * Alter the wind field applied to soft bodies in this space. Before each
+     * simulation step, the field is sampled at the center of each soft body
+     * and the result replaces that body's wind velocity. A sleeping body is
+     * woken if its sampled wind changes. The wind has no effect on a body
+     * unless its aerodynamic coefficients (such as drag) are non-zero.
+     *
+     * @param field the desired field (alias created) or null to stop updating
+     * wind velocities (default=null)
+     */
+    public void setWindField(WindField field) {
+        windField = field;
+    }
     // *************************************************************************
     // PhysicsSpace methods
 
@@ -249,6 +311,61 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         return result;
     }
 
+    /**
+     * Prepare soft bodies for each physics step: apply the wind field (if
+     * any), wake any sleeping soft body that an active body might touch, and
+     * put to sleep any soft body that has settled.
+     *
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    @Override
+    protected void preTick(float timeStep) {
+        super.preTick(timeStep);
+        if (windField != null) {
+            applyWind();
+        }
+
+        boolean canSleep = false;
+        for (PhysicsSoftBody softBody : softBodyMap.values()) {
+            if (softBody.getSleepingThreshold() > 0f) {
+                canSleep = true;
+                break;
+            }
+        }
+        if (!canSleep) {
+            return;
+        }
+
+        /*
+         * Advance the sleep timers, treating any overlapping active rigid body
+         * or character as a disturbance.
+         */
+        gatherActiveBounds();
+        for (PhysicsSoftBody softBody : softBodyMap.values()) {
+            if (softBody.getSleepingThreshold() > 0f && softBody.isActive()) {
+                boolean isDisturbed = isDisturbed(softBody);
+                softBody.updateSleeping(timeStep, isDisturbed);
+            }
+        }
+        /*
+         * Soft bodies that are still moving also disturb their neighbors.
+         * Settling ones don't, so that piled bodies can all fall asleep.
+         */
+        for (PhysicsSoftBody softBody : softBodyMap.values()) {
+            if (softBody.isActive() && (softBody.getSleepingThreshold() == 0f
+                    || softBody.idleTime() == 0f)) {
+                addActiveBounds(softBody);
+            }
+        }
+        for (PhysicsSoftBody softBody : softBodyMap.values()) {
+            if (softBody.getSleepingThreshold() > 0f
+                    && (!softBody.isActive() || softBody.idleTime() > 0f)
+                    && isDisturbed(softBody)) {
+                softBody.activate(true);
+            }
+        }
+    }
+
     /**
      * Remove the specified collision object from this space.
      *
@@ -281,6 +398,29 @@ public class PhysicsSoftSpace extends PhysicsSpace {
     // *************************************************************************
     // Java private methods
 
+    /**
+     * Append the bounds of the specified collision object to activeBounds and
+     * activeObjects.
+     *
+     * @param pco the collision object (not null, unaffected)
+     */
+    private void addActiveBounds(PhysicsCollisionObject pco) {
+        int start = 6 * activeObjects.size();
+        if (start + 6 > activeBounds.length) {
+            activeBounds = Arrays.copyOf(activeBounds, 2 * activeBounds.length);
+        }
+        pco.boundingBox(tmpBox);
+        Vector3f min = tmpBox.getMin(null); // TODO garbage
+        Vector3f max = tmpBox.getMax(null);
+        activeBounds[start] = min.x;
+        activeBounds[start + 1] = min.y;
+        activeBounds[start + 2] = min.z;
+        activeBounds[start + 3] = max.x;
+        activeBounds[start + 4] = max.y;
+        activeBounds[start + 5] = max.z;
+        activeObjects.add(pco);
+    }
+
     /**
      * NOTE: When a soft body is added, its world info may get replaced with
      * that of the space.
@@ -297,6 +437,7 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         assert !softBody.isInWorld();
 
         softBodyMap.put(softBodyId, softBody);
+        incrementModCount();
         logger2.log(Level.FINE, "Adding {0} to {1}.",
                 new Object[]{softBody, this});
 
@@ -308,6 +449,76 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         }
     }
 
+    /**
+     * Sample the wind field at the center of each soft body and update the
+     * body's wind velocity, waking any sleeping body whose wind has changed.
+     */
+    private void applyWind() {
+        float toleranceSquared = windTolerance * windTolerance;
+        for (PhysicsSoftBody softBody : softBodyMap.values()) {
+            softBody.getPhysicsLocation(tmpLocation);
+            windField.sample(tmpLocation, tmpWind);
+            if (!softBody.isActive()) {
+                softBody.windVelocity(tmpOldWind);
+                if (tmpOldWind.distanceSquared(tmpWind) <= toleranceSquared) {
+                    continue;
+                }
+                softBody.activate(true);
+            }
+            softBody.setWindVelocity(tmpWind);
+        }
+    }
+
+    /**
+     * Gather the bounds of all active, non-static rigid bodies and characters,
+     * for use by isDisturbed().
+     */
+    private void gatherActiveBounds() {
+        activeObjects.clear();
+        for (PhysicsRigidBody rigidBody : getRigidBodyList()) {
+            if (!rigidBody.isStatic() && rigidBody.isActive()) {
+                addActiveBounds(rigidBody);
+            }
+        }
+        for (PhysicsCharacter character : getCharacterList()) {
+            addActiveBounds(character);
+        }
+    }
+
+    /**
+     * Test whether any active collision object (other than the specified soft
+     * body) has bounds that overlap those of the specified soft body, expanded
+     * by its margin.
+     *
+     * @param softBody the soft body to test (not null, unaffected)
+     * @return true if disturbed, otherwise false
+     */
+    private boolean isDisturbed(PhysicsSoftBody softBody) {
+        softBody.boundingBox(tmpBox);
+        float margin = softBody.margin();
+        Vector3f min = tmpBox.getMin(null); // TODO garbage
+        Vector3f max = tmpBox.getMax(null);
+        min.subtractLocal(margin, margin, margin);
+        max.addLocal(margin, margin, margin);
+
+        int numActive = activeObjects.size();
+        for (int i = 0; i < numActive; ++i) {
+            if (activeObjects.get(i) == softBody) {
+                continue;
+            }
+            int start = 6 * i;
+            if (activeBounds[start] <= max.x && min.x <= activeBounds[start + 3]
+                    && activeBounds[start + 1] <= max.y
+                    && min.y <= activeBounds[start + 4]
+                    && activeBounds[start + 2] <= max.z
+                    && min.z <= activeBounds[start + 5]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     private void removeSoftBody(PhysicsSoftBody softBody) {
         long softBodyId = softBody.nativeId();
         if (!softBodyMap.containsKey(softBodyId)) {
@@ -318,6 +529,7 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         logger2.log(Level.FINE, "Removing {0} from {1}.",
                 new Object[]{softBody, this});
         softBodyMap.remove(softBodyId);
+        incrementModCount();
         long spaceId = nativeId();
         removeSoftBody(spaceId, softBodyId);
     }
@@ -352,6 +352,7 @@ public class PhysicsSpace extends CollisionSpace {
         logger.log(Level.FINE, "Adding {0} to {1}.", new Object[]{joint, this});
         long jointId = joint.nativeId();
         jointMap.put(jointId, joint);
+        incrementModCount();
         joint.setPhysicsSpace(this);
 
         if (joint instanceof Constraint) {
@@ -695,6 +696,7 @@ public class PhysicsSpace extends CollisionSpace {
         logger.log(Level.FINE, "Removing {0} from {1}.",
                 new Object[]{joint, this});
         jointMap.remove(jointId);
+        incrementModCount();
         joint.setPhysicsSpace(null);
 
         if (joint instanceof Constraint) {
@@ -879,6 +881,17 @@ public class PhysicsSpace extends CollisionSpace {
         solverInfo = new SolverInfo(solverInfoId);
     }
 
+    /**
+     * Callback invoked just before the physics is stepped, after queued tasks
+     * have run but before any tick listeners are notified. Meant to be
+     * overridden.
+     *
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     */
+    protected void preTick(float timeStep) {
+        // do nothing
+    }
+
     /**
      * Replace the existing contact-and-constraint solver with a new one of the
      * correct type.
@@ -1086,6 +1099,7 @@ public class PhysicsSpace extends CollisionSpace {
                 new Object[]{character, this});
         long characterId = character.nativeId();
         characterMap.put(characterId, character);
+        incrementModCount();
 
         long spaceId = nativeId();
         addCharacterObject(spaceId, characterId);
@@ -1138,6 +1152,7 @@ public class PhysicsSpace extends CollisionSpace {
                 new Object[]{rigidBody, this});
         long rigidBodyId = rigidBody.nativeId();
         rigidMap.put(rigidBodyId, rigidBody);
+        incrementModCount();
 
         //Workaround
         //It seems that adding a Kinematic RigidBody to the dynamicWorld
@@ -1216,6 +1231,7 @@ public class PhysicsSpace extends CollisionSpace {
             }
         }
 
+        preTick(timeStep);
         for (PhysicsTickListener listener : tickListeners) {
             listener.prePhysicsTick(this, timeStep);
         }
@@ -1237,6 +1253,7 @@ public class PhysicsSpace extends CollisionSpace {
         logger.log(Level.FINE, "Removing {0} from {1}.",
                 new Object[]{character, this});
         characterMap.remove(characterId);
+        incrementModCount();
 
         long spaceId = nativeId();
         long actionId = character.getControllerId();
@@ -1273,6 +1290,7 @@ public class PhysicsSpace extends CollisionSpace {
         logger.log(Level.FINE, "Removing {0} from {1}.",
                 new Object[]{rigidBody, this});
         rigidMap.remove(rigidBodyId);
+        incrementModCount();
 
         removeRigidBody(spaceId, rigidBodyId);
     }
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A spatially varying wind, sampled on a regular 3-D grid. When assigned to a
+ * PhysicsSoftSpace, the field is sampled at the center of each soft body
+ * before every simulation step, and the result becomes that body's wind
+ * velocity. Bullet's aerodynamic model then applies the wind to the
+ * individual nodes.
+ * <p>
+ * Between grid points the field is interpolated trilinearly. Outside the grid
+ * it's clamped to the nearest boundary value. Modify the field only on the
+ * physics thread, or between steps.
+ */
+public class WindField {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(WindField.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * wind velocity at each grid point, 3 floats per point, X index varying
+     * fastest
+     */
+    final private float[] velocities;
+    /**
+     * distance between adjacent grid points (in physics-space units, &gt;0)
+     */
+    final private float spacing;
+    /**
+     * number of grid points along each axis
+     */
+    final private int[] counts;
+    /**
+     * location of the grid point with indices (0,0,0) (in physics-space
+     * coordinates)
+     */
+    final private Vector3f origin;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a calm field with the specified grid.
+     *
+     * @param origin the location of the grid point with indices (0,0,0) (in
+     * physics-space coordinates, not null, unaffected)
+     * @param spacing the distance between adjacent grid points (in
+     * physics-space units, &gt;0)
+     * @param countX the number of grid points along the X axis (&ge;1)
+     * @param countY the number of grid points along the Y axis (&ge;1)
+     * @param countZ the number of grid points along the Z axis (&ge;1)
+     */
+    public WindField(Vector3f origin, float spacing, int countX, int countY,
+            int countZ) {
+        Validate.finite(origin, "origin");
+        Validate.positive(spacing, "spacing");
+        Validate.positive(countX, "count X");
+        Validate.positive(countY, "count Y");
+        Validate.positive(countZ, "count Z");
+
+        this.origin = origin.clone();
+        this.spacing = spacing;
+        counts = new int[]{countX, countY, countZ};
+        velocities = new float[numAxes * countX * countY * countZ];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the grid points along the indexed axis.
+     *
+     * @param axisIndex which axis (0&rarr;X, 1&rarr;Y, 2&rarr;Z)
+     * @return the count (&ge;1)
+     */
+    public int countPoints(int axisIndex) {
+        Validate.inRange(axisIndex, "axis index", 0, numAxes - 1);
+        int result = counts[axisIndex];
+        return result;
+    }
+
+    /**
+     * Assign the same wind velocity to every grid point.
+     *
+     * @param velocity the desired velocity (in physics-space coordinates, not
+     * null, unaffected)
+     */
+    public void fill(Vector3f velocity) {
+        Validate.finite(velocity, "velocity");
+
+        int numPoints = velocities.length / numAxes;
+        for (int pointIndex = 0; pointIndex < numPoints; ++pointIndex) {
+            int start = numAxes * pointIndex;
+            velocities[start] = velocity.x;
+            velocities[start + 1] = velocity.y;
+            velocities[start + 2] = velocity.z;
+        }
+    }
+
+    /**
+     * Copy the wind velocity at the indexed grid point.
+     *
+     * @param i the X index (&ge;0, &lt;countX)
+     * @param j the Y index (&ge;0, &lt;countY)
+     * @param k the Z index (&ge;0, &lt;countZ)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the velocity (in physics-space coordinates, either storeResult
+     * or a new vector)
+     */
+    public Vector3f get(int i, int j, int k, Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int start = numAxes * pointIndex(i, j, k);
+        result.set(velocities[start], velocities[start + 1],
+                velocities[start + 2]);
+
+        return result;
+    }
+
+    /**
+     * Copy the location of the grid point with indices (0,0,0).
+     *
+     * @param storeResult storage for the result (modified if not null)
+     * @return the location (in physics-space coordinates, either storeResult
+     * or a new vector)
+     */
+    public Vector3f getOrigin(Vector3f storeResult) {
+        if (storeResult == null) {
+            return origin.clone();
+        } else {
+            return storeResult.set(origin);
+        }
+    }
+
+    /**
+     * Sample the field at the specified location, using trilinear
+     * interpolation.
+     *
+     * @param location the sample location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the wind velocity (in physics-space coordinates, either
+     * storeResult or a new vector)
+     */
+    public Vector3f sample(Vector3f location, Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        float gridX = gridCoordinate(location.x - origin.x, counts[0]);
+        float gridY = gridCoordinate(location.y - origin.y, counts[1]);
+        float gridZ = gridCoordinate(location.z - origin.z, counts[2]);
+        int lowerX = lowerIndex(gridX, counts[0]);
+        int lowerY = lowerIndex(gridY, counts[1]);
+        int lowerZ = lowerIndex(gridZ, counts[2]);
+        float fractionX = gridX - lowerX;
+        float fractionY = gridY - lowerY;
+        float fractionZ = gridZ - lowerZ;
+
+        float x = 0f;
+        float y = 0f;
+        float z = 0f;
+        for (int dk = 0; dk <= 1; ++dk) {
+            float weightZ = (dk == 0) ? 1f - fractionZ : fractionZ;
+            for (int dj = 0; dj <= 1; ++dj) {
+                float weightY = (dj == 0) ? 1f - fractionY : fractionY;
+                for (int di = 0; di <= 1; ++di) {
+                    float weightX = (di == 0) ? 1f - fractionX : fractionX;
+                    float weight = weightX * weightY * weightZ;
+                    if (weight > 0f) {
+                        int start = numAxes * pointIndex(
+                                lowerX + di, lowerY + dj, lowerZ + dk);
+                        x += weight * velocities[start];
+                        y += weight * velocities[start + 1];
+                        z += weight * velocities[start + 2];
+                    }
+                }
+            }
+        }
+        result.set(x, y, z);
+
+        return result;
+    }
+
+    /**
+     * Alter the wind velocity at the indexed grid point.
+     *
+     * @param i the X index (&ge;0, &lt;countX)
+     * @param j the Y index (&ge;0, &lt;countY)
+     * @param k the Z index (&ge;0, &lt;countZ)
+     * @param velocity the desired velocity (in physics-space coordinates, not
+     * null, unaffected)
+     */
+    public void set(int i, int j, int k, Vector3f velocity) {
+        Validate.finite(velocity, "velocity");
+
+        int start = numAxes * pointIndex(i, j, k);
+        velocities[start] = velocity.x;
+        velocities[start + 1] = velocity.y;
+        velocities[start + 2] = velocity.z;
+    }
+
+    /**
+     * Return the distance between adjacent grid points.
+     *
+     * @return the distance (in physics-space units, &gt;0)
+     */
+    public float spacing() {
+        assert spacing > 0f : spacing;
+        return spacing;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Convert an offset from the origin to a grid coordinate along one axis,
+     * clamped to the grid.
+     *
+     * @param offset the offset from the origin (in physics-space units)
+     * @param count the number of grid points along the axis (&ge;1)
+     * @return the grid coordinate (&ge;0, &le;count-1)
+     */
+    private float gridCoordinate(float offset, int count) {
+        float scaled = offset / spacing;
+        float result = FastMath.clamp(scaled, 0f, count - 1);
+
+        return result;
+    }
+
+    /**
+     * Find the lower grid index of the cell containing the specified grid
+     * coordinate.
+     *
+     * @param coordinate the grid coordinate (&ge;0, &le;count-1)
+     * @param count the number of grid points along the axis (&ge;1)
+     * @return the index (&ge;0, &le;max(0, count-2))
+     */
+    private static int lowerIndex(float coordinate, int count) {
+        int result = Math.min((int) coordinate, Math.max(0, count - 2));
+        return result;
+    }
+
+    /**
+     * Calculate the index of the specified grid point.
+     *
+     * @param i the X index (&ge;0, &lt;countX)
+     * @param j the Y index (&ge;0, &lt;countY)
+     * @param k the Z index (&ge;0, &lt;countZ)
+     * @return the point index (&ge;0)
+     */
+    private int pointIndex(int i, int j, int k) {
+        Validate.inRange(i, "X index", 0, counts[0] - 1);
+        Validate.inRange(j, "Y index", 0, counts[1] - 1);
+        Validate.inRange(k, "Z index", 0, counts[2] - 1);
+
+        int result = i + counts[0] * (j + counts[1] * k);
+        return result;
+    }
+}
@@ -202,6 +202,17 @@ abstract public class CollisionShape
         return result;
     }
 
+    /**
+     * Count how many bytes of shape data (such as vertex positions or height
+     * samples) are retained on the Java side of this shape. Meant to be
+     * overridden.
+     *
+     * @return the count (in bytes, &ge;0)
+     */
+    public long countRetainedBytes() {
+        return 0L;
+    }
+
     /**
      * Read the default margin for new shapes that are neither capsules nor
      * spheres.
@@ -45,7 +45,11 @@ import com.jme3.util.clone.Cloner;
 import java.io.IOException;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 
@@ -201,6 +205,42 @@ public class CompoundCollisionShape extends CollisionShape {
         addChildShape(shape, offset, rotation);
     }
 
+    /**
+     * Add multiple children in a single operation. Each child's shape is
+     * inserted into the native dynamic AABB tree, so the cost of each
+     * insertion grows only logarithmically with the number of children.
+     *
+     * @param newChildren the children to add (not null, no compound shapes,
+     * shapes aliased, transforms copied)
+     */
+    public void addChildShapes(ChildCollisionShape... newChildren) {
+        Validate.nonNull(newChildren, "new children");
+        for (ChildCollisionShape newChild : newChildren) {
+            CollisionShape childShape = newChild.getShape();
+            if (childShape instanceof CompoundCollisionShape) {
+                throw new IllegalArgumentException(
+                        "A CompoundCollisionShape cannot have"
+                        + " a CompoundCollisionShape child!");
+            }
+        }
+
+        int newSize = children.size() + newChildren.length;
+        children.ensureCapacity(newSize);
+
+        long parentId = nativeId();
+        for (ChildCollisionShape newChild : newChildren) {
+            Vector3f offset = newChild.copyOffset(null);
+            Matrix3f rotation = newChild.copyRotationMatrix(null);
+            CollisionShape childShape = newChild.getShape();
+            ChildCollisionShape child
+                    = new ChildCollisionShape(offset, rotation, childShape);
+            children.add(child);
+
+            long childId = childShape.nativeId();
+            addChildShape(parentId, childId, offset, rotation);
+        }
+    }
+
     /**
      * Apply the inverse of the specified Transform to each child shape.
      *
@@ -317,6 +357,37 @@ public class CompoundCollisionShape extends CollisionShape {
         }
     }
 
+    /**
+     * Remove all children that refer to any of the specified shapes, using a
+     * single pass over the list of children. Note that Bullet recalculates the
+     * compound's bounding box after each distinct shape is removed.
+     *
+     * @param childShapes the collision shapes to remove (not null)
+     */
+    public void removeChildShapes(CollisionShape... childShapes) {
+        Validate.nonNull(childShapes, "child shapes");
+
+        int numShapes = childShapes.length;
+        Map<CollisionShape, Boolean> map = new IdentityHashMap<>(numShapes);
+        Set<CollisionShape> removeSet = Collections.newSetFromMap(map);
+        long parentId = nativeId();
+        for (CollisionShape childShape : childShapes) {
+            if (removeSet.add(childShape)) {
+                long childId = childShape.nativeId();
+                removeChildShape(parentId, childId);
+            }
+        }
+
+        int numChildren = children.size();
+        ArrayList<ChildCollisionShape> remaining = new ArrayList<>(numChildren);
+        for (ChildCollisionShape child : children) {
+            if (!removeSet.contains(child.getShape())) {
+                remaining.add(child);
+            }
+        }
+        children = remaining;
+    }
+
     /**
      * Apply the specified rotation (in the parent's coordinate system) to each
      * child.
@@ -430,6 +501,23 @@ public class CompoundCollisionShape extends CollisionShape {
         loadChildren();
     }
 
+    /**
+     * Count how many bytes of shape data are retained on the Java side of this
+     * shape's children. A child that's added more than once is counted once
+     * per reference.
+     *
+     * @return the count (in bytes, &ge;0)
+     */
+    @Override
+    public long countRetainedBytes() {
+        long result = 0L;
+        for (ChildCollisionShape child : children) {
+            result += child.getShape().countRetainedBytes();
+        }
+
+        return result;
+    }
+
     /**
      * Create a shallow clone for the JME cloner.
      *
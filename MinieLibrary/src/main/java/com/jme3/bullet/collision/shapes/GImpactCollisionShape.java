@@ -33,6 +33,7 @@ package com.jme3.bullet.collision.shapes;
 
 import com.jme3.bullet.collision.shapes.infos.CompoundMesh;
 import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.bullet.util.DebugShapeFactory;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -41,6 +42,7 @@ import com.jme3.math.Vector3f;
 import com.jme3.scene.Mesh;
 import com.jme3.util.clone.Cloner;
 import java.io.IOException;
+import java.nio.FloatBuffer;
 import java.util.logging.Logger;
 
 /**
@@ -112,6 +114,58 @@ public class GImpactCollisionShape extends CollisionShape {
         int numVertices = nativeMesh.countVertices();
         return numVertices;
     }
+
+    /**
+     * Count how many submeshes are in the mesh.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSubmeshes() {
+        int result = nativeMesh.countSubmeshes();
+        return result;
+    }
+
+    /**
+     * Access the indexed submesh.
+     *
+     * @param index the index of the submesh (&ge;0, &lt;numSubmeshes)
+     * @return the pre-existing instance (not null)
+     */
+    public IndexedMesh getSubmesh(int index) {
+        IndexedMesh result = nativeMesh.getSubmesh(index);
+        return result;
+    }
+
+    /**
+     * Refit the bounding-volume trees after the vertex positions of one or
+     * more submeshes were updated in place. This is much cheaper than
+     * constructing a new shape, so it's suitable for deforming meshes that
+     * change every frame.
+     */
+    public void refit() {
+        /*
+         * Re-applying the scale marks every mesh part as needing an update,
+         * and recalculating the AABB refits their trees.
+         */
+        super.setScale(scale);
+        recalculateAabb();
+
+        long shapeId = nativeId();
+        DebugShapeFactory.removeShapeFromCache(shapeId);
+    }
+
+    /**
+     * Replace the vertex positions of the indexed submesh in place, then refit.
+     *
+     * @param submeshIndex the index of the submesh (&ge;0, &lt;numSubmeshes)
+     * @param newPositions the desired vertex positions (not null, limit equal
+     * to 3 times the submesh's vertex count, all elements finite, unaffected)
+     */
+    public void updatePositions(int submeshIndex, FloatBuffer newPositions) {
+        IndexedMesh submesh = nativeMesh.getSubmesh(submeshIndex);
+        submesh.updatePositions(newPositions);
+        refit();
+    }
     // *************************************************************************
     // CollisionShape methods
 
@@ -132,6 +186,18 @@ public class GImpactCollisionShape extends CollisionShape {
         createShape();
     }
 
+    /**
+     * Count how many bytes of mesh data are retained on the Java side of this
+     * shape.
+     *
+     * @return the count (in bytes, &ge;0)
+     */
+    @Override
+    public long countRetainedBytes() {
+        long result = nativeMesh.countRetainedBytes();
+        return result;
+    }
+
     /**
      * Create a shallow clone for the JME cloner.
      *
@@ -31,7 +31,9 @@
  */
 package com.jme3.bullet.collision.shapes;
 
+import com.jme3.bounding.BoundingBox;
 import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.util.DebugShapeFactory;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -58,6 +60,10 @@ public class HeightfieldCollisionShape extends CollisionShape {
     // *************************************************************************
     // constants and loggers
 
+    /**
+     * number of bytes in a float
+     */
+    final private static int floatBytes = 4;
     /**
      * message logger for this class
      */
@@ -113,11 +119,8 @@ public class HeightfieldCollisionShape extends CollisionShape {
      */
     private float minHeight;
     /**
-     * array of heightfield samples
-     */
-    private float[] heightfieldData;
-    /**
-     * direct buffer for passing height data to Bullet
+     * direct buffer of heightfield samples, shared with Bullet: the only copy
+     * of the height data retained by this shape
      * <p>
      * A Java reference must persist after createShape() completes, or else the
      * buffer might get garbage collected.
@@ -242,7 +245,7 @@ public class HeightfieldCollisionShape extends CollisionShape {
 
         heightStickLength = stickLength;
         heightStickWidth = stickWidth;
-        heightfieldData = heightmap.clone();
+        directBuffer = createDirectBuffer(heightmap);
         this.scale.set(scale);
         this.upAxis = upAxis;
         this.flipQuadEdges = flipQuadEdges;
@@ -262,11 +265,92 @@ public class HeightfieldCollisionShape extends CollisionShape {
      * @return the count (&gt;0)
      */
     public int countMeshVertices() {
-        int count = heightfieldData.length;
+        int count = directBuffer.capacity();
 
         assert count > 0 : count;
         return count;
     }
+
+    /**
+     * Alter the heights of a rectangular region of samples, without
+     * re-creating the btHeightfieldTerrainShape. Bullet reads heights directly
+     * from the shape's direct buffer, so the new heights take effect at the
+     * next collision query. Useful for craters, digging, and other deformable
+     * terrain.
+     * <p>
+     * The new heights must lie within the height range established when the
+     * shape was created. Collision objects resting on the region may need to
+     * be activated: the returned box can be used to locate them.
+     *
+     * @param firstRow the index of the first row to alter (&ge;0)
+     * @param firstColumn the index of the first column to alter (&ge;0)
+     * @param numRows the number of rows to alter (&ge;0)
+     * @param numColumns the number of columns to alter (&ge;0)
+     * @param newHeights the desired heights, in row-major order (not null,
+     * length&ge;numRows*numColumns, all finite, unaffected)
+     * @param storeResult storage for the result (modified if not null)
+     * @return an axis-aligned bounding box that encloses both the old and new
+     * surfaces of the altered region (in scaled shape coordinates, either
+     * storeResult or a new instance, not null)
+     */
+    public BoundingBox setHeights(int firstRow, int firstColumn, int numRows,
+            int numColumns, float[] newHeights, BoundingBox storeResult) {
+        Validate.inRange(firstRow, "first row", 0, heightStickLength - 1);
+        Validate.inRange(firstColumn, "first column", 0, heightStickWidth - 1);
+        Validate.inRange(numRows, "number of rows", 0,
+                heightStickLength - firstRow);
+        Validate.inRange(numColumns, "number of columns", 0,
+                heightStickWidth - firstColumn);
+        Validate.nonNull(newHeights, "new heights");
+        Validate.require(newHeights.length >= numRows * numColumns,
+                "length at least numRows*numColumns");
+        BoundingBox result
+                = (storeResult == null) ? new BoundingBox() : storeResult;
+        /*
+         * Validate all the new heights before altering anything.
+         */
+        int numSamples = numRows * numColumns;
+        for (int i = 0; i < numSamples; ++i) {
+            float height = newHeights[i];
+            if (!Float.isFinite(height)) {
+                throw new IllegalArgumentException("illegal height: " + height);
+            } else if (height < minHeight || height > maxHeight) {
+                String message = String.format(
+                        "height %s is outside the range [%s, %s]", height,
+                        minHeight, maxHeight);
+                throw new IllegalArgumentException(message);
+            }
+        }
+
+        float lowest = Float.POSITIVE_INFINITY;
+        float highest = Float.NEGATIVE_INFINITY;
+        int arrayIndex = 0;
+        for (int row = firstRow; row < firstRow + numRows; ++row) {
+            int sampleIndex = row * heightStickWidth + firstColumn;
+            for (int column = 0; column < numColumns; ++column) {
+                float oldHeight = directBuffer.get(sampleIndex);
+                float newHeight = newHeights[arrayIndex];
+                lowest = Math.min(lowest, Math.min(oldHeight, newHeight));
+                highest = Math.max(highest, Math.max(oldHeight, newHeight));
+
+                directBuffer.put(sampleIndex, newHeight);
+                ++arrayIndex;
+                ++sampleIndex;
+            }
+        }
+
+        long shapeId = nativeId();
+        DebugShapeFactory.removeShapeFromCache(shapeId);
+
+        if (numSamples == 0) {
+            lowest = 0f;
+            highest = 0f;
+        }
+        regionBounds(firstRow, firstColumn, numRows, numColumns, lowest,
+                highest, result);
+
+        return result;
+    }
     // *************************************************************************
     // CollisionShape methods
 
@@ -282,11 +366,30 @@ public class HeightfieldCollisionShape extends CollisionShape {
     @Override
     public void cloneFields(Cloner cloner, Object original) {
         super.cloneFields(cloner, original);
-        // directBuffer not cloned
-        // heightfieldData not cloned
+        HeightfieldCollisionShape originalShape
+                = (HeightfieldCollisionShape) original;
+        int numFloats = originalShape.directBuffer.capacity();
+        directBuffer = BufferUtils.createFloatBuffer(numFloats);
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            float height = originalShape.directBuffer.get(floatIndex);
+            directBuffer.put(floatIndex, height);
+        }
+
         createShape();
     }
 
+    /**
+     * Count how many bytes of height data are retained on the Java side of this
+     * shape.
+     *
+     * @return the count (in bytes, &gt;0)
+     */
+    @Override
+    public long countRetainedBytes() {
+        long result = floatBytes * (long) directBuffer.capacity();
+        return result;
+    }
+
     /**
      * Create a shallow clone for the JME cloner.
      *
@@ -321,8 +424,9 @@ public class HeightfieldCollisionShape extends CollisionShape {
         minHeight = capsule.readFloat(tagMinHeight, 0f);
         maxHeight = capsule.readFloat(tagMaxHeight, 0f);
         upAxis = capsule.readInt(tagUpAxis, PhysicsSpace.AXIS_Y);
-        heightfieldData = capsule.readFloatArray(tagHeightfieldData,
-                new float[0]);
+        float[] heightArray
+                = capsule.readFloatArray(tagHeightfieldData, new float[0]);
+        directBuffer = createDirectBuffer(heightArray);
         flipQuadEdges = capsule.readBoolean(tagFlipQuadEdges, true);
         flipTriangleWinding = capsule.readBoolean(tagFlipTriangleWinding,
                 false);
@@ -350,7 +454,8 @@ public class HeightfieldCollisionShape extends CollisionShape {
         capsule.write(minHeight, tagMinHeight, 0f);
         capsule.write(maxHeight, tagMaxHeight, 0f);
         capsule.write(upAxis, tagUpAxis, PhysicsSpace.AXIS_Y);
-        capsule.write(heightfieldData, tagHeightfieldData, new float[0]);
+        float[] heightArray = copyHeights();
+        capsule.write(heightArray, tagHeightfieldData, new float[0]);
         capsule.write(flipQuadEdges, tagFlipQuadEdges, true);
         capsule.write(flipTriangleWinding, tagFlipTriangleWinding, false);
         capsule.write(useDiamond, tagUseDiamond, false);
@@ -364,14 +469,15 @@ public class HeightfieldCollisionShape extends CollisionShape {
      */
     private void calculateMinAndMax() {
         int elements = heightStickLength * heightStickWidth;
-        assert elements == heightfieldData.length : heightfieldData.length;
+        assert elements == directBuffer.capacity() : directBuffer.capacity();
 
-        float min = heightfieldData[0];
-        float max = heightfieldData[0];
+        float min = directBuffer.get(0);
+        float max = min;
         /*
          * Find the min and max heights in the data.
          */
-        for (float height : heightfieldData) {
+        for (int i = 0; i < elements; ++i) {
+            float height = directBuffer.get(i);
             if (height < min) {
                 min = height;
             }
@@ -402,8 +508,8 @@ public class HeightfieldCollisionShape extends CollisionShape {
             Vector3f worldScale) {
         scale.set(worldScale);
 
-        heightfieldData = heightmap.clone();
-        heightStickWidth = (int) FastMath.sqrt(heightfieldData.length);
+        directBuffer = createDirectBuffer(heightmap);
+        heightStickWidth = (int) FastMath.sqrt(heightmap.length);
         assert heightStickWidth > 1 : heightStickWidth;
 
         heightStickLength = heightStickWidth;
@@ -413,17 +519,43 @@ public class HeightfieldCollisionShape extends CollisionShape {
     }
 
     /**
-     * Instantiate the configured btHeightfieldTerrainShape.
+     * Copy the heightfield samples to a new array, for serialization.
+     *
+     * @return a new array (not null)
      */
-    private void createShape() {
-        directBuffer = BufferUtils.createFloatBuffer(heightfieldData.length);
-        for (float height : heightfieldData) {
+    private float[] copyHeights() {
+        int numFloats = directBuffer.capacity();
+        float[] result = new float[numFloats];
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            result[floatIndex] = directBuffer.get(floatIndex);
+        }
+
+        return result;
+    }
+
+    /**
+     * Copy the specified heights to a new direct buffer.
+     *
+     * @param heightArray the heights to copy (not null, all finite,
+     * unaffected)
+     * @return a new, direct, unflipped buffer
+     */
+    private static FloatBuffer createDirectBuffer(float[] heightArray) {
+        FloatBuffer result = BufferUtils.createFloatBuffer(heightArray.length);
+        for (float height : heightArray) {
             if (!Float.isFinite(height)) {
                 throw new IllegalArgumentException("illegal height: " + height);
             }
-            directBuffer.put(height);
+            result.put(height);
         }
 
+        return result;
+    }
+
+    /**
+     * Instantiate the configured btHeightfieldTerrainShape.
+     */
+    private void createShape() {
         long shapeId = createShape2(heightStickWidth, heightStickLength,
                 directBuffer, heightScale, minHeight, maxHeight, upAxis,
                 flipQuadEdges, flipTriangleWinding, useDiamond, useZigzag);
@@ -433,6 +565,54 @@ public class HeightfieldCollisionShape extends CollisionShape {
         setMargin(margin);
     }
 
+    /**
+     * Calculate the bounding box of a rectangular region of samples.
+     *
+     * @param firstRow the index of the first row in the region (&ge;0)
+     * @param firstColumn the index of the first column in the region (&ge;0)
+     * @param numRows the number of rows in the region (&ge;0)
+     * @param numColumns the number of columns in the region (&ge;0)
+     * @param lowest the lowest height in the region
+     * @param highest the highest height in the region
+     * @param storeResult storage for the result (not null, modified)
+     */
+    private void regionBounds(int firstRow, int firstColumn, int numRows,
+            int numColumns, float lowest, float highest,
+            BoundingBox storeResult) {
+        /*
+         * Bullet centers the heightfield on its local origin.
+         */
+        float midHeight = (minHeight + maxHeight) / 2f;
+        float x0 = firstColumn - (heightStickWidth - 1) / 2f;
+        float x1 = x0 + Math.max(numColumns - 1, 0);
+        float z0 = firstRow - (heightStickLength - 1) / 2f;
+        float z1 = z0 + Math.max(numRows - 1, 0);
+        float h0 = lowest - midHeight;
+        float h1 = highest - midHeight;
+
+        Vector3f minima = new Vector3f();
+        Vector3f maxima = new Vector3f();
+        switch (upAxis) {
+            case PhysicsSpace.AXIS_X:
+                minima.set(h0, x0, z0);
+                maxima.set(h1, x1, z1);
+                break;
+            case PhysicsSpace.AXIS_Y:
+                minima.set(x0, h0, z0);
+                maxima.set(x1, h1, z1);
+                break;
+            case PhysicsSpace.AXIS_Z:
+                minima.set(x0, z0, h0);
+                maxima.set(x1, z1, h1);
+                break;
+            default:
+                throw new IllegalStateException("upAxis = " + upAxis);
+        }
+        minima.multLocal(scale);
+        maxima.multLocal(scale);
+        storeResult.setMinMax(minima, maxima);
+    }
+
     /**
      * Free the identified tracked native object. Invoked by reflection.
      *
@@ -62,6 +62,10 @@ public class HullCollisionShape extends ConvexShape {
     // *************************************************************************
     // constants and loggers
 
+    /**
+     * number of bytes in a float
+     */
+    final private static int floatBytes = 4;
     /**
      * number of axes in a vector
      */
@@ -80,16 +84,14 @@ public class HullCollisionShape extends ConvexShape {
     // fields
 
     /**
-     * direct buffer for passing vertices to Bullet
+     * direct buffer of mesh coordinates for passing vertices to Bullet: the
+     * only copy of the mesh coordinates retained by this shape (not null,
+     * capacity a multiple of 3)
      * <p>
      * A Java reference must persist after createShape() completes, or else the
      * buffer might get garbage collected.
      */
     private FloatBuffer directBuffer;
-    /**
-     * array of mesh coordinates (not null, not empty, length a multiple of 3)
-     */
-    private float[] points;
     // *************************************************************************
     // constructors
 
@@ -111,13 +113,11 @@ public class HullCollisionShape extends ConvexShape {
         Validate.nonEmpty(locations, "locations");
 
         int numLocations = locations.size();
-        points = new float[numAxes * numLocations];
-        int j = 0;
+        directBuffer = BufferUtils.createFloatBuffer(numAxes * numLocations);
         for (Vector3f location : locations) {
-            points[j + PhysicsSpace.AXIS_X] = location.x;
-            points[j + PhysicsSpace.AXIS_Y] = location.y;
-            points[j + PhysicsSpace.AXIS_Z] = location.z;
-            j += numAxes;
+            directBuffer.put(location.x);
+            directBuffer.put(location.y);
+            directBuffer.put(location.z);
         }
 
         createShape();
@@ -136,7 +136,7 @@ public class HullCollisionShape extends ConvexShape {
         Validate.require(points.length % numAxes == 0,
                 "length a multiple of 3");
 
-        this.points = points.clone();
+        directBuffer = BufferUtils.createFloatBuffer(points);
         createShape();
     }
 
@@ -149,7 +149,8 @@ public class HullCollisionShape extends ConvexShape {
     public HullCollisionShape(VHACDHull vhacdHull) {
         Validate.nonNull(vhacdHull, "V-HACD hull");
 
-        points = vhacdHull.clonePositions();
+        float[] positions = vhacdHull.clonePositions();
+        directBuffer = BufferUtils.createFloatBuffer(positions);
         createShape();
     }
 
@@ -167,9 +168,10 @@ public class HullCollisionShape extends ConvexShape {
         Validate.positive(numFloats, "limit");
         Validate.require(numFloats % numAxes == 0, "limit a multiple of 3");
 
-        points = new float[numFloats];
+        directBuffer = BufferUtils.createFloatBuffer(numFloats);
         for (int i = 0; i < numFloats; ++i) {
-            points[i] = flippedBuffer.get(i);
+            float f = flippedBuffer.get(i);
+            directBuffer.put(f);
         }
 
         createShape();
@@ -185,8 +187,8 @@ public class HullCollisionShape extends ConvexShape {
      */
     public HullCollisionShape(Mesh... meshes) {
         Validate.nonEmpty(meshes, "meshes");
-        points = getPoints(meshes);
-        Validate.require(points.length > 0, "at least one vertex");
+        directBuffer = getPoints(meshes);
+        Validate.require(directBuffer.capacity() > 0, "at least one vertex");
 
         createShape();
     }
@@ -215,15 +217,13 @@ public class HullCollisionShape extends ConvexShape {
          * Transform corner locations to shape coordinates.
          */
         int numFloats = numAxes * cornerLocations.size();
-        points = new float[numFloats];
-        int floatIndex = 0;
+        directBuffer = BufferUtils.createFloatBuffer(numFloats);
         Vector3f tempVector = new Vector3f();
         for (Vector3f location : cornerLocations) {
             rectangularSolid.localToWorld(location, tempVector);
-            points[floatIndex + PhysicsSpace.AXIS_X] = tempVector.x;
-            points[floatIndex + PhysicsSpace.AXIS_Y] = tempVector.y;
-            points[floatIndex + PhysicsSpace.AXIS_Z] = tempVector.z;
-            floatIndex += numAxes;
+            directBuffer.put(tempVector.x);
+            directBuffer.put(tempVector.y);
+            directBuffer.put(tempVector.z);
         }
 
         createShape();
@@ -244,10 +244,11 @@ public class HullCollisionShape extends ConvexShape {
                 Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
 
         Vector3f location = new Vector3f();
-        for (int floatI = 0; floatI < points.length; floatI += numAxes) {
-            float x = points[floatI + PhysicsSpace.AXIS_X];
-            float y = points[floatI + PhysicsSpace.AXIS_Y];
-            float z = points[floatI + PhysicsSpace.AXIS_Z];
+        int numFloats = directBuffer.capacity();
+        for (int floatI = 0; floatI < numFloats; floatI += numAxes) {
+            float x = directBuffer.get(floatI + PhysicsSpace.AXIS_X);
+            float y = directBuffer.get(floatI + PhysicsSpace.AXIS_Y);
+            float z = directBuffer.get(floatI + PhysicsSpace.AXIS_Z);
             location.set(x, y, z);
             MyVector3f.accumulateMinima(minima, location);
             MyVector3f.accumulateMaxima(maxima, location);
@@ -301,7 +302,7 @@ public class HullCollisionShape extends ConvexShape {
      * @return the count (&gt;0)
      */
     public int countMeshVertices() {
-        int length = points.length;
+        int length = directBuffer.capacity();
         assert (length % numAxes == 0) : length;
         int result = length / numAxes;
 
@@ -320,16 +321,17 @@ public class HullCollisionShape extends ConvexShape {
         Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
 
         result.zero();
-        for (int i = 0; i < points.length; i += numAxes) {
-            float x = FastMath.abs(points[i + PhysicsSpace.AXIS_X]);
+        int numFloats = directBuffer.capacity();
+        for (int i = 0; i < numFloats; i += numAxes) {
+            float x = FastMath.abs(directBuffer.get(i + PhysicsSpace.AXIS_X));
             if (x > result.x) {
                 result.x = x;
             }
-            float y = FastMath.abs(points[i + PhysicsSpace.AXIS_Y]);
+            float y = FastMath.abs(directBuffer.get(i + PhysicsSpace.AXIS_Y));
             if (y > result.y) {
                 result.y = y;
             }
-            float z = FastMath.abs(points[i + PhysicsSpace.AXIS_Z]);
+            float z = FastMath.abs(directBuffer.get(i + PhysicsSpace.AXIS_Z));
             if (z > result.z) {
                 result.z = z;
             }
@@ -365,11 +367,30 @@ public class HullCollisionShape extends ConvexShape {
     @Override
     public void cloneFields(Cloner cloner, Object original) {
         super.cloneFields(cloner, original);
-        directBuffer = null; // directBuffer not cloned
-        points = cloner.clone(points);
+
+        HullCollisionShape originalShape = (HullCollisionShape) original;
+        int numFloats = originalShape.directBuffer.capacity();
+        directBuffer = BufferUtils.createFloatBuffer(numFloats);
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            float f = originalShape.directBuffer.get(floatIndex);
+            directBuffer.put(floatIndex, f);
+        }
+
         createShape();
     }
 
+    /**
+     * Count how many bytes of mesh coordinates are retained on the Java side of
+     * this shape.
+     *
+     * @return the count (in bytes, &gt;0)
+     */
+    @Override
+    public long countRetainedBytes() {
+        long result = floatBytes * (long) directBuffer.capacity();
+        return result;
+    }
+
     /**
      * Create a shallow clone for the JME cloner.
      *
@@ -429,9 +450,10 @@ public class HullCollisionShape extends ConvexShape {
         // for backwards compatibility
         Mesh mesh = (Mesh) capsule.readSavable(tagHullMesh, null);
         if (mesh != null) {
-            points = getPoints(mesh);
+            directBuffer = getPoints(mesh);
         } else {
-            points = capsule.readFloatArray(tagPoints, new float[0]);
+            float[] points = capsule.readFloatArray(tagPoints, new float[0]);
+            directBuffer = BufferUtils.createFloatBuffer(points);
         }
         createShape();
     }
@@ -467,19 +489,16 @@ public class HullCollisionShape extends ConvexShape {
      * Instantiate the configured shape in Bullet.
      */
     private void createShape() {
-        assert directBuffer == null : directBuffer;
-
-        int numFloats = points.length;
+        int numFloats = directBuffer.capacity();
         assert numFloats != 0;
         assert (numFloats % numAxes == 0) : numFloats;
         int numVertices = numFloats / numAxes;
 
-        directBuffer = BufferUtils.createFloatBuffer(numFloats);
-        for (float f : points) {
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            float f = directBuffer.get(floatIndex);
             if (!Float.isFinite(f)) {
                 throw new IllegalArgumentException("illegal coordinate: " + f);
             }
-            directBuffer.put(f);
         }
 
         long shapeId = createShapeF(directBuffer, numVertices);
@@ -493,28 +512,28 @@ public class HullCollisionShape extends ConvexShape {
      * Copy the vertex positions from JME mesh(es).
      *
      * @param meshes the mesh(es) to read (not null)
-     * @return a new array (not null, length a multiple of 3)
+     * @return a new, direct, unflipped buffer (not null, capacity a multiple
+     * of 3)
      */
-    private float[] getPoints(Mesh... meshes) {
+    private static FloatBuffer getPoints(Mesh... meshes) {
         int numVectors = 0;
         for (Mesh mesh : meshes) {
             numVectors += mesh.getVertexCount();
         }
         int numFloats = numAxes * numVectors;
-        float[] pointsArray = new float[numFloats];
+        FloatBuffer result = BufferUtils.createFloatBuffer(numFloats);
 
-        int arrayIndex = 0;
         for (Mesh mesh : meshes) {
             FloatBuffer buffer = mesh.getFloatBuffer(Type.Position);
             int bufNumFloats = numAxes * mesh.getVertexCount();
             for (int bufPos = 0; bufPos < bufNumFloats; ++bufPos) {
-                pointsArray[arrayIndex] = buffer.get(bufPos);
-                ++arrayIndex;
+                float f = buffer.get(bufPos);
+                result.put(f);
             }
         }
-        assert arrayIndex == numFloats : arrayIndex;
+        assert result.position() == numFloats : result.position();
 
-        return pointsArray;
+        return result;
     }
     // *************************************************************************
     // native private methods
@@ -34,15 +34,18 @@ package com.jme3.bullet.collision.shapes;
 import com.jme3.bullet.collision.shapes.infos.BoundingValueHierarchy;
 import com.jme3.bullet.collision.shapes.infos.CompoundMesh;
 import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.bullet.util.DebugShapeFactory;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
 import com.jme3.export.OutputCapsule;
+import com.jme3.math.Vector3f;
 import com.jme3.scene.Mesh;
 import com.jme3.system.JmeSystem;
 import com.jme3.system.Platform;
 import com.jme3.util.clone.Cloner;
 import java.io.IOException;
+import java.nio.FloatBuffer;
 import java.util.Collection;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -145,6 +148,21 @@ public class MeshCollisionShape extends CollisionShape {
      * least one triangle)
      */
     public MeshCollisionShape(byte[] bvhBytes, IndexedMesh... submeshes) {
+        this(bvhBytes, true, submeshes);
+    }
+
+    /**
+     * Instantiate a shape from the specified native mesh(es) and serialized
+     * BVH. The submeshes must be equivalent to those used to generate the BVH,
+     * and the compression setting must match the one used to generate it.
+     *
+     * @param bvhBytes the serialized BVH (not null, unaffected)
+     * @param useCompression true to use quantized AABB compression
+     * @param submeshes the mesh(es) on which to base the shape (must contain at
+     * least one triangle)
+     */
+    public MeshCollisionShape(byte[] bvhBytes, boolean useCompression,
+            IndexedMesh... submeshes) {
         Validate.nonNull(bvhBytes, "BVH data");
         Validate.nonEmpty(submeshes, "submeshes");
         nativeMesh = new CompoundMesh();
@@ -154,7 +172,7 @@ public class MeshCollisionShape extends CollisionShape {
         Validate.require(nativeMesh.countTriangles() > 0,
                 "at least one triangle");
 
-        useCompression = true;
+        this.useCompression = useCompression;
         bvh = new BoundingValueHierarchy(bvhBytes);
         createShape();
     }
@@ -215,6 +233,66 @@ public class MeshCollisionShape extends CollisionShape {
         return numVertices;
     }
 
+    /**
+     * Count how many submeshes are in the mesh.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSubmeshes() {
+        int result = nativeMesh.countSubmeshes();
+        return result;
+    }
+
+    /**
+     * Access the indexed submesh.
+     *
+     * @param index the index of the submesh (&ge;0, &lt;numSubmeshes)
+     * @return the pre-existing instance (not null)
+     */
+    public IndexedMesh getSubmesh(int index) {
+        IndexedMesh result = nativeMesh.getSubmesh(index);
+        return result;
+    }
+
+    /**
+     * Test whether this shape uses quantized AABB compression.
+     *
+     * @return true if compressed, otherwise false
+     */
+    public boolean isCompressed() {
+        return useCompression;
+    }
+
+    /**
+     * Rebuild the BVH after the vertex positions of one or more submeshes
+     * were updated in place. The existing shape, mesh, and collision objects
+     * are retained, so collision objects see the new positions at once.
+     * However, Bullet's partial refit isn't exposed, so the hierarchy is
+     * rebuilt from scratch (twice, in fact). Since the cost is proportional to
+     * the triangle count, this isn't meant for per-frame updates of large
+     * meshes: for meshes that deform every frame, use a GImpactCollisionShape,
+     * which refits incrementally.
+     */
+    public void refit() {
+        /*
+         * btBvhTriangleMeshShape rebuilds its BVH in place whenever its scale
+         * changes, so briefly apply a different scale and then restore the
+         * original.
+         */
+        Vector3f savedScale = scale.clone(); // TODO garbage
+        Vector3f tmpScale = savedScale.add(1f, 1f, 1f); // TODO garbage
+        super.setScale(tmpScale);
+        super.setScale(savedScale);
+        /*
+         * The native BVH has been replaced, so refresh the reference.
+         */
+        bvh = new BoundingValueHierarchy(this);
+        recalculateAabb();
+
+        long shapeId = nativeId();
+        DebugShapeFactory.removeShapeFromCache(shapeId);
+    }
+
     /**
      * Serialize the BVH to a byte array.
      *
@@ -224,6 +302,20 @@ public class MeshCollisionShape extends CollisionShape {
         byte[] result = bvh.serialize();
         return result;
     }
+
+    /**
+     * Replace the vertex positions of the indexed submesh in place, then
+     * rebuild the BVH. See {@link #refit()}.
+     *
+     * @param submeshIndex the index of the submesh (&ge;0, &lt;numSubmeshes)
+     * @param newPositions the desired vertex positions (not null, limit equal
+     * to 3 times the submesh's vertex count, all elements finite, unaffected)
+     */
+    public void updatePositions(int submeshIndex, FloatBuffer newPositions) {
+        IndexedMesh submesh = nativeMesh.getSubmesh(submeshIndex);
+        submesh.updatePositions(newPositions);
+        refit();
+    }
     // *************************************************************************
     // CollisionShape methods
 
@@ -245,6 +337,18 @@ public class MeshCollisionShape extends CollisionShape {
         createShape();
     }
 
+    /**
+     * Count how many bytes of mesh data are retained on the Java side of this
+     * shape.
+     *
+     * @return the count (in bytes, &ge;0)
+     */
+    @Override
+    public long countRetainedBytes() {
+        long result = nativeMesh.countRetainedBytes();
+        return result;
+    }
+
     /**
      * Create a shallow clone for the JME cloner.
      *
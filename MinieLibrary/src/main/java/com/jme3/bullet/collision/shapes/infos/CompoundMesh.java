@@ -122,6 +122,32 @@ public class CompoundMesh
         addIndexedMesh(compoundMeshId, submeshId);
     }
 
+    /**
+     * Count how many bytes of position and index data are retained on the
+     * Java side of this mesh.
+     *
+     * @return the count (in bytes, &ge;0)
+     */
+    public long countRetainedBytes() {
+        long result = 0L;
+        for (IndexedMesh submesh : submeshes) {
+            result += submesh.countRetainedBytes();
+        }
+
+        assert result >= 0L : result;
+        return result;
+    }
+
+    /**
+     * Count how many submeshes are in this mesh.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSubmeshes() {
+        int result = submeshes.size();
+        return result;
+    }
+
     /**
      * Count how many triangles are in this mesh.
      *
@@ -167,6 +193,20 @@ public class CompoundMesh
         return result;
     }
 
+    /**
+     * Access the indexed submesh.
+     *
+     * @param index the index of the submesh (&ge;0, &lt;numSubmeshes)
+     * @return the pre-existing instance (not null)
+     */
+    public IndexedMesh getSubmesh(int index) {
+        int numSubmeshes = submeshes.size();
+        Validate.inRange(index, "index", 0, numSubmeshes - 1);
+
+        IndexedMesh result = submeshes.get(index);
+        return result;
+    }
+
     /**
      * Alter the scale factors.
      *
@@ -61,7 +61,8 @@ import jme3utilities.math.MyMath;
 
 /**
  * An indexed triangle mesh based on Bullet's btIndexedMesh. Immutable except
- * for {@link #read(com.jme3.export.JmeImporter)}.
+ * for {@link #read(com.jme3.export.JmeImporter)} and
+ * {@link #updatePositions(java.nio.FloatBuffer)}.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -216,6 +217,41 @@ public class IndexedMesh
 
         createMesh();
     }
+
+    /**
+     * Instantiate an IndexedMesh based on the specified direct buffers, without
+     * copying any data. This is the quickest way to feed pre-baked (or
+     * memory-mapped) data to Bullet.
+     *
+     * @param positionBuffer the vertex positions (not null, direct, capacity a
+     * multiple of 3, alias created)
+     * @param indexBuffer the vertex indices of the triangles (not null, direct,
+     * capacity a multiple of 3, alias created)
+     */
+    public IndexedMesh(FloatBuffer positionBuffer, IndexBuffer indexBuffer) {
+        Validate.nonNull(positionBuffer, "position buffer");
+        Validate.nonNull(indexBuffer, "index buffer");
+        Validate.require(positionBuffer.isDirect(), "direct position buffer");
+        Validate.require(indexBuffer.getBuffer().isDirect(),
+                "direct index buffer");
+        int numFloats = positionBuffer.capacity();
+        Validate.require(numFloats % numAxes == 0,
+                "position capacity a multiple of 3");
+        int numIndices = indexBuffer.getBuffer().capacity();
+        Validate.require(numIndices % vpt == 0,
+                "index capacity a multiple of 3");
+
+        numVertices = numFloats / numAxes;
+        vertexPositions = positionBuffer;
+        vertexStride = numAxes * floatBytes;
+
+        numTriangles = numIndices / vpt;
+        indices = indexBuffer;
+        int indexBytes = indices.getFormat().getComponentSize();
+        indexStride = vpt * indexBytes;
+
+        createMesh();
+    }
     // *************************************************************************
     // new methods exposed
 
@@ -251,6 +287,20 @@ public class IndexedMesh
         return result;
     }
 
+    /**
+     * Count how many bytes of position and index data are retained on the
+     * Java side of this mesh.
+     *
+     * @return the count (in bytes, &ge;0)
+     */
+    public long countRetainedBytes() {
+        long result = vertexStride * (long) numVertices
+                + indexStride * (long) numTriangles;
+
+        assert result >= 0L : result;
+        return result;
+    }
+
     /**
      * Count how many triangles are in this mesh.
      *
@@ -270,6 +320,34 @@ public class IndexedMesh
         assert numVertices >= 0 : numVertices;
         return numVertices;
     }
+
+    /**
+     * Replace the vertex positions in place, without altering the number of
+     * vertices or the triangle indices. The btIndexedMesh reads positions
+     * directly from the buffer, so no new native objects are created.
+     * <p>
+     * Shapes based on this mesh won't notice the change until they're refit.
+     * See {@link com.jme3.bullet.collision.shapes.GImpactCollisionShape#refit()}
+     * and {@link com.jme3.bullet.collision.shapes.MeshCollisionShape#refit()}.
+     *
+     * @param newPositions the desired vertex positions (not null, limit equal
+     * to 3*numVertices, all elements finite, unaffected)
+     */
+    public void updatePositions(FloatBuffer newPositions) {
+        Validate.nonNull(newPositions, "new positions");
+        int numFloats = numAxes * numVertices;
+        Validate.require(newPositions.limit() == numFloats,
+                "limit equal to 3*numVertices");
+        if (vertexPositions.isReadOnly()) {
+            throw new IllegalStateException("The positions are read-only.");
+        }
+
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            float coordinate = newPositions.get(floatIndex);
+            assert Float.isFinite(coordinate) : coordinate;
+            vertexPositions.put(floatIndex, coordinate);
+        }
+    }
     // *************************************************************************
     // JmeCloneable methods
 
@@ -35,6 +35,7 @@ import com.jme3.bullet.PhysicsSoftSpace;
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.bullet.objects.PhysicsSoftBody;
 import com.jme3.bullet.util.NativeSoftBodyUtil;
+import com.jme3.bullet.util.SoftMeshUpdater;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -101,6 +102,11 @@ public class SoftBodyControl extends AbstractPhysicsControl {
      * underlying collision object
      */
     private PhysicsSoftBody body = null;
+    /**
+     * updater for batched mesh synchronization, or null to synchronize the
+     * mesh during each update of this Control
+     */
+    private SoftMeshUpdater meshUpdater = null;
     // *************************************************************************
     // constructors
 
@@ -144,6 +150,29 @@ public class SoftBodyControl extends AbstractPhysicsControl {
     public PhysicsSoftBody getBody() {
         return body;
     }
+
+    /**
+     * Access the updater used for batched mesh synchronization.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public SoftMeshUpdater getMeshUpdater() {
+        return meshUpdater;
+    }
+
+    /**
+     * Alter how the mesh is synchronized with the soft body. With an updater,
+     * each update of this Control merely adds a request to the updater, which
+     * synchronizes many meshes in a single (possibly parallel) batch. The
+     * updater must be attached to the AppStateManager, or else its
+     * {@link SoftMeshUpdater#updateAll()} must be invoked once per frame.
+     *
+     * @param updater the desired updater (alias created) or null to
+     * synchronize the mesh during each update of this Control (default=null)
+     */
+    public void setMeshUpdater(SoftMeshUpdater updater) {
+        meshUpdater = updater;
+    }
     // *************************************************************************
     // AbstractPhysicsControl methods
 
@@ -328,12 +357,16 @@ public class SoftBodyControl extends AbstractPhysicsControl {
             physicsToMesh = worldToMesh; // alias
         }
 
-        Mesh mesh = geometry.getMesh();
         boolean localFlag = false; // copy physics-space locations, not local
-        NativeSoftBodyUtil.updateMesh(body, indexMap, mesh, localFlag,
-                updateNormals, physicsToMesh);
-
-        spatial.updateModelBound(); // TODO needed?
+        if (meshUpdater == null) {
+            Mesh mesh = geometry.getMesh();
+            NativeSoftBodyUtil.updateMesh(body, indexMap, mesh, localFlag,
+                    updateNormals, physicsToMesh);
+            spatial.updateModelBound(); // TODO needed?
+        } else {
+            meshUpdater.add(body, indexMap, geometry, localFlag,
+                    updateNormals, physicsToMesh);
+        }
     }
 
     /**
@@ -0,0 +1,595 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.control;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.control.AbstractControl;
+import com.jme3.util.BufferUtils;
+import com.jme3.util.clone.Cloner;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A Control to manage levels of detail for a soft body. Each level is a
+ * pre-built SoftBodyControl (typically added to a child of the controlled
+ * Spatial) with its own mesh and node count, ordered from finest to coarsest.
+ * Only one level is simulated and visible at a time, selected by the distance
+ * from a Camera. Optionally, simulation is suspended entirely while the active
+ * level is outside the camera's frustum.
+ * <p>
+ * When the active level changes, the incoming body is translated to the
+ * center of the outgoing one and each of its nodes inherits the velocity of
+ * the nearest node in the outgoing body. The shape of the incoming body is
+ * not transferred, since node locations can't be altered after creation.
+ * <p>
+ * The SoftBodyControl of each level should have its PhysicsSpace set before
+ * being added. This Control is not serialized.
+ */
+public class SoftBodyLodControl extends AbstractControl {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SoftBodyLodControl.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true&rarr;suspend simulation while off-screen, false&rarr;simulate
+     * regardless of visibility
+     */
+    private boolean isFreezingOffScreen = false;
+    /**
+     * true if simulation is currently suspended
+     */
+    private boolean isFrozen = false;
+    /**
+     * camera used to select levels (not null)
+     */
+    private Camera camera;
+    /**
+     * fraction of a level's threshold distance that must be crossed before
+     * switching levels, to avoid thrashing near a threshold (&ge;0, &lt;1)
+     */
+    private float hysteresis = 0.1f;
+    /**
+     * greatest camera distance at which each level is selected, in increasing
+     * order (in world units, each &gt;0)
+     */
+    private float[] maxDistances = new float[0];
+    /**
+     * index of the active level, or -1 if there are no levels
+     */
+    private int activeIndex = -1;
+    /**
+     * levels of detail, ordered from finest to coarsest
+     */
+    private List<Level> levels = new ArrayList<>(4);
+    /**
+     * center of the active body when simulation was suspended (in
+     * physics-space coordinates)
+     */
+    private Vector3f frozenCenter = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an enabled Control with no levels.
+     *
+     * @param camera the Camera used to select levels (not null, alias created)
+     */
+    public SoftBodyLodControl(Camera camera) {
+        Validate.nonNull(camera, "camera");
+        this.camera = camera;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Access the active level.
+     *
+     * @return the pre-existing SoftBodyControl, or null if there are no levels
+     */
+    public SoftBodyControl activeLevel() {
+        SoftBodyControl result = null;
+        if (activeIndex >= 0) {
+            result = levels.get(activeIndex).control;
+        }
+
+        return result;
+    }
+
+    /**
+     * Append a coarser level of detail. The first level added becomes active;
+     * subsequent levels are disabled and culled until selected. The nearest
+     * nodes between the new level and each existing level are mapped here,
+     * which takes time proportional to the product of their node counts.
+     *
+     * @param level the pre-built SoftBodyControl for the level (not null,
+     * added to a Spatial, alias created)
+     * @param maxDistance the greatest camera distance at which the level is
+     * selected (in world units, greater than that of the previous level)
+     */
+    public void addLevel(SoftBodyControl level, float maxDistance) {
+        Validate.nonNull(level, "level");
+        Spatial levelSpatial = level.getSpatial();
+        Validate.require(levelSpatial != null, "a level added to a Spatial");
+        int numLevels = levels.size();
+        if (numLevels > 0) {
+            float previous = maxDistances[numLevels - 1];
+            Validate.require(maxDistance > previous,
+                    "a distance greater than the previous level's");
+        } else {
+            Validate.positive(maxDistance, "max distance");
+        }
+        /*
+         * Map nodes between the new level and each existing one now,
+         * rather than during a level switch.
+         */
+        Level newLevel = new Level(level);
+        for (Level oldLevel : levels) {
+            newLevel.mapNearestNodes(oldLevel);
+            oldLevel.mapNearestNodes(newLevel);
+        }
+        levels.add(newLevel);
+        maxDistances = Arrays.copyOf(maxDistances, numLevels + 1);
+        maxDistances[numLevels] = maxDistance;
+        if (numLevels == 0) {
+            activeIndex = 0;
+        } else {
+            level.setEnabled(false);
+            levelSpatial.setCullHint(Spatial.CullHint.Always);
+        }
+    }
+
+    /**
+     * Count the levels of detail.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countLevels() {
+        int result = levels.size();
+        return result;
+    }
+
+    /**
+     * Access the Camera used to select levels.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public Camera getCamera() {
+        assert camera != null;
+        return camera;
+    }
+
+    /**
+     * Return the fraction of a threshold distance that must be crossed before
+     * switching levels.
+     *
+     * @return the fraction (&ge;0, &lt;1)
+     */
+    public float hysteresis() {
+        assert hysteresis >= 0f : hysteresis;
+        assert hysteresis < 1f : hysteresis;
+        return hysteresis;
+    }
+
+    /**
+     * Test whether simulation is suspended while the active level is outside
+     * the camera's frustum.
+     *
+     * @return true if suspended, otherwise false
+     */
+    public boolean isFreezingOffScreen() {
+        return isFreezingOffScreen;
+    }
+
+    /**
+     * Test whether simulation is currently suspended.
+     *
+     * @return true if suspended, otherwise false
+     */
+    public boolean isFrozen() {
+        return isFrozen;
+    }
+
+    /**
+     * Access the indexed level of detail.
+     *
+     * @param levelIndex the index of the level (&ge;0, &lt;numLevels)
+     * @return the pre-existing SoftBodyControl
+     */
+    public SoftBodyControl level(int levelIndex) {
+        Validate.inRange(levelIndex, "level index", 0, levels.size() - 1);
+        SoftBodyControl result = levels.get(levelIndex).control;
+        return result;
+    }
+
+    /**
+     * Select a level for the specified camera distance, applying hysteresis
+     * relative to the active level.
+     *
+     * @param distance the distance from the camera (in world units, &ge;0)
+     * @param maxDistances the greatest camera distance at which each level is
+     * selected, in increasing order (not null, not empty, unaffected)
+     * @param activeIndex the index of the active level (&ge;0,
+     * &lt;maxDistances.length)
+     * @param hysteresis the fraction of a threshold distance that must be
+     * crossed before switching levels (&ge;0, &lt;1)
+     * @return the index of the selected level (&ge;0,
+     * &lt;maxDistances.length)
+     */
+    static int selectLevel(float distance, float[] maxDistances,
+            int activeIndex, float hysteresis) {
+        int numLevels = maxDistances.length;
+        int result = numLevels - 1;
+        for (int levelIndex = 0; levelIndex < numLevels; ++levelIndex) {
+            if (distance <= maxDistances[levelIndex]) {
+                result = levelIndex;
+                break;
+            }
+        }
+
+        if (result > activeIndex) {
+            // Switch to a coarser level only beyond the hysteresis band.
+            float threshold = maxDistances[activeIndex];
+            if (distance <= threshold * (1f + hysteresis)) {
+                result = activeIndex;
+            }
+        } else if (result < activeIndex) {
+            // Switch to a finer level only within the hysteresis band.
+            float threshold = maxDistances[result];
+            if (distance > threshold * (1f - hysteresis)) {
+                result = activeIndex;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Alter which Camera is used to select levels.
+     *
+     * @param camera the desired Camera (not null, alias created)
+     */
+    public void setCamera(Camera camera) {
+        Validate.nonNull(camera, "camera");
+        this.camera = camera;
+    }
+
+    /**
+     * Alter whether simulation is suspended while the active level is outside
+     * the camera's frustum.
+     *
+     * @param setting true to suspend, false to simulate regardless of
+     * visibility (default=false)
+     */
+    public void setFreezingOffScreen(boolean setting) {
+        isFreezingOffScreen = setting;
+        if (!setting && isFrozen) {
+            thaw();
+        }
+    }
+
+    /**
+     * Alter the fraction of a threshold distance that must be crossed before
+     * switching levels.
+     *
+     * @param fraction the desired fraction (&ge;0, &lt;1, default=0.1)
+     */
+    public void setHysteresis(float fraction) {
+        Validate.fraction(fraction, "fraction");
+        Validate.require(fraction < 1f, "fraction less than 1");
+        hysteresis = fraction;
+    }
+    // *************************************************************************
+    // AbstractControl methods
+
+    /**
+     * Callback from {@link com.jme3.util.clone.Cloner} to convert this
+     * shallow-cloned Control into a deep-cloned one, using the specified
+     * Cloner and original to resolve copied fields.
+     *
+     * @param cloner the Cloner that's cloning this Control (not null)
+     * @param original the instance from which this Control was shallow-cloned
+     * (unused)
+     */
+    @Override
+    public void cloneFields(Cloner cloner, Object original) {
+        super.cloneFields(cloner, original);
+
+        List<Level> originalLevels = levels;
+        int numLevels = originalLevels.size();
+        levels = new ArrayList<>(numLevels);
+        for (Level originalLevel : originalLevels) {
+            SoftBodyControl control = cloner.clone(originalLevel.control);
+            Level level = new Level(control);
+            levels.add(level);
+        }
+        /*
+         * The clones have the same nodes, so share the node maps.
+         */
+        for (int i = 0; i < numLevels; ++i) {
+            Level originalLevel = originalLevels.get(i);
+            for (int j = 0; j < numLevels; ++j) {
+                if (j != i) {
+                    int[] map = originalLevel.nearestNodes(
+                            originalLevels.get(j));
+                    levels.get(i).nearestMaps.put(levels.get(j), map);
+                }
+            }
+        }
+        maxDistances = maxDistances.clone();
+        frozenCenter = frozenCenter.clone();
+    }
+
+    /**
+     * Callback invoked when the spatial is about to be rendered to a ViewPort.
+     *
+     * @param rm the render manager (unused)
+     * @param vp the view port to render (unused)
+     */
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        // do nothing
+    }
+
+    /**
+     * Callback invoked once per frame, provided the control is enabled and
+     * added to a scene.
+     *
+     * @param tpf the time interval between frames (in seconds, &ge;0)
+     */
+    @Override
+    protected void controlUpdate(float tpf) {
+        if (activeIndex < 0) {
+            return;
+        }
+
+        Spatial activeSpatial = levels.get(activeIndex).control.getSpatial();
+        BoundingVolume bound = activeSpatial.getWorldBound();
+        if (bound == null) {
+            return;
+        }
+
+        if (isFreezingOffScreen) {
+            /*
+             * Camera.contains() updates the plane state, so save and
+             * restore it.
+             */
+            int savePlaneState = camera.getPlaneState();
+            camera.setPlaneState(0);
+            Camera.FrustumIntersect intersect = camera.contains(bound);
+            camera.setPlaneState(savePlaneState);
+
+            boolean offScreen = (intersect == Camera.FrustumIntersect.Outside);
+            if (offScreen && !isFrozen) {
+                freeze();
+            } else if (!offScreen && isFrozen) {
+                thaw();
+            }
+        }
+        if (isFrozen) {
+            return;
+        }
+
+        Vector3f cameraLocation = camera.getLocation(); // alias
+        float distance = bound.distanceToEdge(cameraLocation);
+        int selectIndex
+                = selectLevel(distance, maxDistances, activeIndex, hysteresis);
+        if (selectIndex != activeIndex) {
+            switchTo(selectIndex);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Suspend simulation of the active level.
+     */
+    private void freeze() {
+        assert !isFrozen;
+
+        SoftBodyControl control = levels.get(activeIndex).control;
+        control.getBody().getPhysicsLocation(frozenCenter);
+        control.setEnabled(false);
+        isFrozen = true;
+    }
+
+    /**
+     * Activate the indexed level, transferring the location and node
+     * velocities of the outgoing body to the incoming one.
+     *
+     * @param levelIndex the index of the level to activate (&ge;0,
+     * &lt;numLevels)
+     */
+    private void switchTo(int levelIndex) {
+        Level outgoing = levels.get(activeIndex);
+        Level incoming = levels.get(levelIndex);
+        PhysicsSoftBody outBody = outgoing.control.getBody();
+        PhysicsSoftBody inBody = incoming.control.getBody();
+
+        Vector3f center = outBody.getPhysicsLocation(null);
+        FloatBuffer outVelocities = outBody.copyVelocities(null);
+        outgoing.control.setEnabled(false);
+        outgoing.control.getSpatial().setCullHint(Spatial.CullHint.Always);
+        /*
+         * Enabling the incoming control may relocate its body,
+         * so align the centers afterward.
+         */
+        incoming.control.setEnabled(true);
+        incoming.control.getSpatial().setCullHint(Spatial.CullHint.Inherit);
+        Vector3f offset = inBody.getPhysicsLocation(null);
+        center.subtract(offset, offset);
+        inBody.applyTranslation(offset);
+
+        int[] nearest = incoming.nearestNodes(outgoing);
+        int numNodes = nearest.length;
+        FloatBuffer inVelocities
+                = BufferUtils.createFloatBuffer(numAxes * numNodes);
+        for (int nodeIndex = 0; nodeIndex < numNodes; ++nodeIndex) {
+            int start = numAxes * nearest[nodeIndex];
+            inVelocities.put(outVelocities.get(start))
+                    .put(outVelocities.get(start + 1))
+                    .put(outVelocities.get(start + 2));
+        }
+        inVelocities.flip();
+        inBody.setVelocities(inVelocities);
+
+        activeIndex = levelIndex;
+    }
+
+    /**
+     * Resume simulation of the active level at the location where it was
+     * suspended.
+     */
+    private void thaw() {
+        assert isFrozen;
+
+        SoftBodyControl control = levels.get(activeIndex).control;
+        control.setEnabled(true);
+        PhysicsSoftBody body = control.getBody();
+        Vector3f offset = body.getPhysicsLocation(null);
+        frozenCenter.subtract(offset, offset);
+        body.applyTranslation(offset);
+        isFrozen = false;
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * A single level of detail.
+     */
+    private static class Level {
+        /**
+         * rest locations of the nodes, relative to the body's center
+         */
+        final private FloatBuffer restOffsets;
+        /**
+         * for each other level, the index of its nearest node to each node of
+         * this level
+         */
+        final private Map<Level, int[]> nearestMaps = new IdentityHashMap<>(4);
+        /**
+         * control that simulates this level
+         */
+        final private SoftBodyControl control;
+
+        /**
+         * Instantiate a level and capture the rest locations of its nodes.
+         *
+         * @param control the control that simulates the level (not null,
+         * alias created)
+         */
+        Level(SoftBodyControl control) {
+            this.control = control;
+
+            PhysicsSoftBody body = control.getBody();
+            Vector3f center = body.getPhysicsLocation(null);
+            restOffsets = body.copyLocations(null);
+            int numFloats = restOffsets.limit();
+            for (int i = 0; i < numFloats; i += numAxes) {
+                restOffsets.put(i, restOffsets.get(i) - center.x);
+                restOffsets.put(i + 1, restOffsets.get(i + 1) - center.y);
+                restOffsets.put(i + 2, restOffsets.get(i + 2) - center.z);
+            }
+        }
+
+        /**
+         * Map each node of this level to the nearest node (at rest) of the
+         * specified level, by exhaustive search.
+         *
+         * @param other the other level (not null, unaffected)
+         */
+        void mapNearestNodes(Level other) {
+            float[] from = new float[restOffsets.limit()];
+            restOffsets.rewind();
+            restOffsets.get(from);
+            float[] to = new float[other.restOffsets.limit()];
+            other.restOffsets.rewind();
+            other.restOffsets.get(to);
+
+            int numNodes = from.length / numAxes;
+            int[] map = new int[numNodes];
+            for (int nodeIndex = 0; nodeIndex < numNodes; ++nodeIndex) {
+                float x = from[numAxes * nodeIndex];
+                float y = from[numAxes * nodeIndex + 1];
+                float z = from[numAxes * nodeIndex + 2];
+                float bestDs = Float.POSITIVE_INFINITY;
+                for (int j = 0; j < to.length; j += numAxes) {
+                    float dx = to[j] - x;
+                    float dy = to[j + 1] - y;
+                    float dz = to[j + 2] - z;
+                    float ds = dx * dx + dy * dy + dz * dz;
+                    if (ds < bestDs) {
+                        bestDs = ds;
+                        map[nodeIndex] = j / numAxes;
+                    }
+                }
+            }
+            nearestMaps.put(other, map);
+        }
+
+        /**
+         * Access the map from each node of this level to the nearest node (at
+         * rest) of the specified level.
+         *
+         * @param other the other level (not null, unaffected)
+         * @return the internal array, indexed by node of this level (not null)
+         */
+        int[] nearestNodes(Level other) {
+            int[] result = nearestMaps.get(other);
+
+            assert result != null;
+            return result;
+        }
+    }
+}
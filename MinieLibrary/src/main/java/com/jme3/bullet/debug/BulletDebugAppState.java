@@ -35,6 +35,7 @@ import com.jme3.app.Application;
 import com.jme3.app.state.AbstractAppState;
 import com.jme3.app.state.AppStateManager;
 import com.jme3.asset.AssetManager;
+import com.jme3.bounding.BoundingBox;
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.joints.Anchor;
@@ -51,6 +52,8 @@ import com.jme3.material.Material;
 import com.jme3.material.RenderState;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
 import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.ViewPort;
 import com.jme3.renderer.queue.RenderQueue;
@@ -59,7 +62,9 @@ import com.jme3.scene.Spatial;
 import com.jme3.scene.control.Control;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.MyAsset;
@@ -139,18 +144,62 @@ public class BulletDebugAppState extends AbstractAppState {
      * application's asset manager: set by initialize()
      */
     private AssetManager assetManager;
+    /**
+     * true if the joint visualization nodes were last synchronized using a
+     * filter, otherwise false
+     */
+    private boolean jointsFiltered = false;
+    /**
+     * true if every collision object is re-synchronized during the current
+     * update, false if only the dirty ones are
+     */
+    private boolean fullSync = true;
+    /**
+     * true if the contents of the PhysicsSpace changed since the previous
+     * update, otherwise false
+     */
+    private boolean spaceModified = true;
     /**
      * configuration
      */
     final private DebugConfiguration configuration;
+    /**
+     * batches rigid bodies for visualization using hardware instancing
+     */
+    final private DebugInstancer instancer = new DebugInstancer(this);
     /**
      * map collision objects to transformed visualization nodes
      */
     private HashMap<PhysicsCollisionObject, Node> pcoMap = new HashMap<>(64);
+    /**
+     * spare map, swapped with pcoMap to avoid allocating a new map during each
+     * synchronization
+     */
+    private HashMap<PhysicsCollisionObject, Node> sparePcoMap
+            = new HashMap<>(64);
+    /**
+     * map collision objects to their most recent bounding boxes (in
+     * physics-space coordinates) for culling
+     */
+    final private HashMap<PhysicsCollisionObject, BoundingBox> pcoBounds
+            = new HashMap<>(64);
     /**
      * map physics joints to visualization nodes
      */
     private HashMap<PhysicsJoint, Node> jointMap = new HashMap<>(64);
+    /**
+     * spare map, swapped with jointMap to avoid allocating a new map during
+     * each synchronization
+     */
+    private HashMap<PhysicsJoint, Node> spareJointMap = new HashMap<>(64);
+    /**
+     * modification count of the PhysicsSpace as of the previous update
+     */
+    private int syncedModCount = 0;
+    /**
+     * modification count of the configuration as of the previous update
+     */
+    private int syncedConfigModCount = 0;
     /**
      * materials for rigid bodies (and vehicle chassis and colliders) that are
      * responsive and either static or kinematic or inactive
@@ -189,10 +238,36 @@ public class BulletDebugAppState extends AbstractAppState {
      * materials for ghosts and other non-responsive collision objects
      */
     final private Material[] yellows = new Material[3];
+    /**
+     * collision objects omitted from the current update due to culling
+     */
+    final private Set<PhysicsCollisionObject> culledPcos = new HashSet<>(64);
+    /**
+     * collision objects to re-synchronize during the current update, unless
+     * it's a full sync
+     */
+    final private Set<PhysicsCollisionObject> dirtyPcos = new HashSet<>(64);
+    /**
+     * collision objects that were awake during the current update
+     */
+    private Set<PhysicsCollisionObject> awakePcos = new HashSet<>(64);
+    /**
+     * spare set, swapped with awakePcos to avoid allocating a new set during
+     * each update
+     */
+    private Set<PhysicsCollisionObject> spareAwakePcos = new HashSet<>(64);
+    /**
+     * temporary storage for a bounding box in world coordinates
+     */
+    final private BoundingBox tmpWorldAabb = new BoundingBox();
     /**
      * scene-graph node for (debug) visualization
      */
     final private Node root = new Node("Physics Debug Root Node");
+    /**
+     * PhysicsSpace visualized during the previous update, or null if none
+     */
+    private PhysicsSpace syncedSpace = null;
     // *************************************************************************
     // constructors
 
@@ -358,6 +433,44 @@ public class BulletDebugAppState extends AbstractAppState {
         return white;
     }
 
+    /**
+     * Test whether the specified collision object is omitted from the current
+     * update because it lies outside the camera's frustum or beyond the
+     * culling distance.
+     *
+     * @param pco the object to test (not null, unaffected)
+     * @return true if culled, otherwise false
+     */
+    boolean isCulled(PhysicsCollisionObject pco) {
+        boolean result = culledPcos.contains(pco);
+        return result;
+    }
+
+    /**
+     * Test whether the specified collision object is re-synchronized during
+     * the current update. Idle objects (static or sleeping) are skipped unless
+     * they just fell asleep, entered or left the culled set, or the space or
+     * the configuration was modified.
+     *
+     * @param pco the object to test (not null, unaffected)
+     * @return true if it should be re-synchronized, otherwise false
+     */
+    boolean isDirty(PhysicsCollisionObject pco) {
+        boolean result = fullSync || dirtyPcos.contains(pco);
+        return result;
+    }
+
+    /**
+     * Test whether any objects were added to or removed from the PhysicsSpace
+     * since the previous update. Subclasses use this to skip re-synchronizing
+     * their visualization nodes when nothing has changed.
+     *
+     * @return true if modified, otherwise false
+     */
+    boolean isSpaceModified() {
+        return spaceModified;
+    }
+
     /**
      * Alter which bounding boxes are visualized. For internal use only.
      *
@@ -572,17 +685,15 @@ public class BulletDebugAppState extends AbstractAppState {
 
     /**
      * Synchronize the collision-shape debug controls and axis visualizers with
-     * the collision objects in the PhysicsSpace.
+     * the dirty collision objects in the PhysicsSpace.
      */
     protected void updateShapes() {
-        for (Map.Entry<PhysicsCollisionObject, Node> entry
-                : pcoMap.entrySet()) {
-            DebugAppStateFilter filter = configuration.getFilter();
-            PhysicsCollisionObject pco = entry.getKey();
-            boolean displayShape = (filter == null)
-                    || filter.displayObject(pco);
+        DebugAppStateFilter filter = configuration.getFilter();
+        for (PhysicsCollisionObject pco : pcosToSync()) {
+            boolean displayShape = (filter == null
+                    || filter.displayObject(pco)) && !isCulled(pco);
 
-            Node node = entry.getValue();
+            Node node = pcoMap.get(pco);
             Control control;
             if (pco instanceof PhysicsCharacter) {
                 control = node.getControl(BulletCharacterDebugControl.class);
@@ -611,16 +722,26 @@ public class BulletDebugAppState extends AbstractAppState {
                 updateAxes(node, displayShape);
 
             } else if (pco instanceof PhysicsRigidBody) {
+                PhysicsRigidBody body = (PhysicsRigidBody) pco;
+                boolean instanced = displayShape
+                        && configuration.isInstancing()
+                        && DebugInstancer.isEligible(body);
+                boolean useControl = displayShape && !instanced;
+
                 control = node.getControl(BulletRigidBodyDebugControl.class);
-                if (control == null && displayShape) {
+                if (control == null && useControl) {
                     logger.log(Level.FINE,
                             "Create new BulletRigidBodyDebugControl");
-                    control = new BulletRigidBodyDebugControl(this,
-                            (PhysicsRigidBody) pco);
+                    control = new BulletRigidBodyDebugControl(this, body);
                     node.addControl(control);
-                } else if (control != null && !displayShape) {
+                } else if (control != null && !useControl) {
                     node.removeControl(control);
                 }
+                if (instanced) {
+                    instancer.visualize(body, node);
+                } else {
+                    instancer.release(body);
+                }
                 updateAxes(node, displayShape);
             }
         }
@@ -694,8 +815,29 @@ public class BulletDebugAppState extends AbstractAppState {
     @Override
     public void update(float tpf) {
         super.update(tpf);
+        /*
+         * Detect additions and removals using the space's modification count.
+         * Comparing the collision-object count as well catches multibody
+         * colliders, which may be added without modifying the space.
+         */
+        PhysicsSpace space = configuration.getSpace();
+        int modCount = space.countModifications();
+        spaceModified = space != syncedSpace || modCount != syncedModCount
+                || space.countCollisionObjects() != pcoMap.size();
+        syncedSpace = space;
+        syncedModCount = modCount;
+        /*
+         * Re-synchronize every object only if the space or the configuration
+         * changed. Otherwise only the dirty objects are re-synchronized, so an
+         * idle scene costs no native calls beyond the activation tests.
+         */
+        int configModCount = configuration.countModifications();
+        fullSync = spaceModified || configModCount != syncedConfigModCount;
+        syncedConfigModCount = configModCount;
 
         updatePcoMap();
+        updateDirtyPcos();
+        updateCulledPcos();
         updateShapes();
         updateVehicles();
         updateBoundingBoxes();
@@ -713,14 +855,51 @@ public class BulletDebugAppState extends AbstractAppState {
             Transform transform = transformSpatial.getWorldTransform();
             root.setLocalTransform(transform);
         }
+        instancer.update(root.getLocalTransform());
         root.updateGeometricState();
     }
     // *************************************************************************
     // private methods
 
     /**
-     * Synchronize the bounding-box debug controls with the collision objects in
-     * the PhysicsSpace.
+     * Test whether the specified collision object is awake. Static rigid
+     * bodies are recognized without a native call.
+     *
+     * @param pco the object to test (not null, unaffected)
+     * @return true if awake, otherwise false
+     */
+    private static boolean isAwake(PhysicsCollisionObject pco) {
+        if (pco instanceof PhysicsRigidBody) {
+            PhysicsRigidBody body = (PhysicsRigidBody) pco;
+            if (!body.isDynamic() && !body.isKinematic()) {
+                return false;
+            }
+        }
+        boolean result = pco.isActive();
+
+        return result;
+    }
+
+    /**
+     * Enumerate the collision objects to re-synchronize during the current
+     * update.
+     *
+     * @return an internal collection (not null)
+     */
+    private Collection<PhysicsCollisionObject> pcosToSync() {
+        Collection<PhysicsCollisionObject> result;
+        if (fullSync) {
+            result = pcoMap.keySet();
+        } else {
+            result = dirtyPcos;
+        }
+
+        return result;
+    }
+
+    /**
+     * Synchronize the bounding-box debug controls with the dirty collision
+     * objects in the PhysicsSpace.
      */
     private void updateBoundingBoxes() {
         DebugAppStateFilter filter = configuration.getBoundingBoxFilter();
@@ -728,12 +907,10 @@ public class BulletDebugAppState extends AbstractAppState {
             return;
         }
 
-        for (Map.Entry<PhysicsCollisionObject, Node> entry
-                : pcoMap.entrySet()) {
-            PhysicsCollisionObject pco = entry.getKey();
-            boolean display = filter.displayObject(pco);
+        for (PhysicsCollisionObject pco : pcosToSync()) {
+            boolean display = filter.displayObject(pco) && !isCulled(pco);
 
-            Node transformedNode = entry.getValue();
+            Node transformedNode = pcoMap.get(pco);
             Node parent = transformedNode.getParent();
             Control control = parent.getControl(BoundingBoxDebugControl.class);
 
@@ -748,8 +925,104 @@ public class BulletDebugAppState extends AbstractAppState {
     }
 
     /**
-     * Synchronize the gravity-vector debug controls with the bodies in the
-     * PhysicsSpace.
+     * Determine which collision objects lie outside the camera's frustum or
+     * beyond the culling distance. Bounding boxes are tested in world
+     * coordinates. Only awake objects have their bounding boxes re-read from
+     * Bullet; idle objects re-use the boxes cached in pcoBounds. Objects that
+     * enter or leave the culled set are marked dirty.
+     */
+    private void updateCulledPcos() {
+        Camera camera = configuration.getCamera();
+        boolean frustumCulling = configuration.isFrustumCulling();
+        float maxDistance = configuration.cullingDistance();
+        if (camera == null
+                || !frustumCulling && maxDistance == Float.MAX_VALUE) {
+            dirtyPcos.addAll(culledPcos);
+            culledPcos.clear();
+            pcoBounds.clear();
+            return;
+        }
+
+        if (spaceModified) {
+            Set<PhysicsCollisionObject> pcos = pcoMap.keySet();
+            culledPcos.retainAll(pcos);
+            pcoBounds.keySet().retainAll(pcos);
+        }
+
+        Transform transform = transformIdentity;
+        Spatial transformSpatial = configuration.getTransformSpatial();
+        if (transformSpatial != null) {
+            transform = transformSpatial.getWorldTransform();
+        }
+        Vector3f cameraLocation = camera.getLocation();
+        /*
+         * Camera.contains() updates the plane state, so save and restore it.
+         */
+        int savePlaneState = camera.getPlaneState();
+        for (PhysicsCollisionObject pco : pcoMap.keySet()) {
+            BoundingBox aabb = pcoBounds.get(pco);
+            if (aabb == null) {
+                aabb = new BoundingBox(); // TODO garbage
+                pcoBounds.put(pco, aabb);
+                pco.boundingBox(aabb);
+            } else if (fullSync || awakePcos.contains(pco)) {
+                pco.boundingBox(aabb);
+            }
+            aabb.transform(transform, tmpWorldAabb);
+
+            boolean culled = false;
+            if (frustumCulling) {
+                camera.setPlaneState(0);
+                Camera.FrustumIntersect intersect
+                        = camera.contains(tmpWorldAabb);
+                culled = (intersect == Camera.FrustumIntersect.Outside);
+            }
+            if (!culled && maxDistance < Float.MAX_VALUE) {
+                float distance = tmpWorldAabb.distanceToEdge(cameraLocation);
+                culled = (distance > maxDistance);
+            }
+
+            boolean changed;
+            if (culled) {
+                changed = culledPcos.add(pco);
+            } else {
+                changed = culledPcos.remove(pco);
+            }
+            if (changed) {
+                dirtyPcos.add(pco);
+            }
+        }
+        camera.setPlaneState(savePlaneState);
+    }
+
+    /**
+     * Determine which collision objects are awake and which are dirty. An
+     * object is dirty if it's awake or was awake during the previous update,
+     * so each object gets a final re-synchronization after it falls asleep.
+     */
+    private void updateDirtyPcos() {
+        dirtyPcos.clear();
+
+        Set<PhysicsCollisionObject> previouslyAwake = awakePcos;
+        awakePcos = spareAwakePcos;
+        assert awakePcos.isEmpty();
+        for (PhysicsCollisionObject pco : pcoMap.keySet()) {
+            if (isAwake(pco)) {
+                awakePcos.add(pco);
+            }
+        }
+
+        if (!fullSync) {
+            dirtyPcos.addAll(awakePcos);
+            dirtyPcos.addAll(previouslyAwake);
+        }
+        previouslyAwake.clear();
+        spareAwakePcos = previouslyAwake;
+    }
+
+    /**
+     * Synchronize the gravity-vector debug controls with the dirty bodies in
+     * the PhysicsSpace.
      */
     private void updateGravityVectors() {
         DebugAppStateFilter filter
@@ -758,17 +1031,16 @@ public class BulletDebugAppState extends AbstractAppState {
             return;
         }
 
-        for (Map.Entry<PhysicsCollisionObject, Node> entry
-                : pcoMap.entrySet()) {
-            PhysicsCollisionObject pco = entry.getKey();
+        for (PhysicsCollisionObject pco : pcosToSync()) {
             boolean pcoIsKinematic = pco instanceof PhysicsRigidBody
                     && ((PhysicsRigidBody) pco).isKinematic();
             boolean display = pco instanceof PhysicsBody
                     && !pco.isStatic()
                     && !pcoIsKinematic
+                    && !isCulled(pco)
                     && filter.displayObject(pco);
 
-            Node transformedNode = entry.getValue();
+            Node transformedNode = pcoMap.get(pco);
             Node parent = transformedNode.getParent();
             Control control
                     = parent.getControl(GravityVectorDebugControl.class);
@@ -785,12 +1057,18 @@ public class BulletDebugAppState extends AbstractAppState {
 
     /**
      * Synchronize the joint debug controls with the joints in the PhysicsSpace.
+     * Unless a filter is in use, this is skipped when the space is unmodified.
      */
     private void updateJoints() {
         DebugAppStateFilter filter = configuration.getFilter();
+        if (filter == null && !jointsFiltered && !spaceModified) {
+            return;
+        }
+        jointsFiltered = (filter != null);
+
         HashMap<PhysicsJoint, Node> oldMap = jointMap;
-        //create new map
-        jointMap = new HashMap<>(oldMap.size());
+        jointMap = spareJointMap;
+        assert jointMap.isEmpty();
         PhysicsSpace space = configuration.getSpace();
         Collection<PhysicsJoint> list = space.getJointList();
         for (PhysicsJoint joint : list) {
@@ -827,18 +1105,24 @@ public class BulletDebugAppState extends AbstractAppState {
         for (Node node : oldMap.values()) {
             node.removeFromParent();
         }
+        oldMap.clear();
+        spareJointMap = oldMap;
     }
 
     /**
      * Synchronize the visualization nodes with the collision objects in the
-     * PhysicsSpace.
+     * PhysicsSpace. This is skipped when the space is unmodified.
      */
     private void updatePcoMap() {
+        if (!spaceModified) {
+            return;
+        }
         /*
          * Create visualization nodes for PCOs that have been added.
          */
         HashMap<PhysicsCollisionObject, Node> oldMap = pcoMap;
-        pcoMap = new HashMap<>(oldMap.size());
+        pcoMap = sparePcoMap;
+        assert pcoMap.isEmpty();
         PhysicsSpace space = configuration.getSpace();
         Collection<PhysicsCollisionObject> list = space.getPcoList();
         for (PhysicsCollisionObject pco : list) {
@@ -855,15 +1139,22 @@ public class BulletDebugAppState extends AbstractAppState {
         /*
          * Detach nodes of PCOs that have been removed from the space.
          */
-        for (Node transformedNode : oldMap.values()) {
-            Node parent = transformedNode.getParent();
+        for (Map.Entry<PhysicsCollisionObject, Node> entry
+                : oldMap.entrySet()) {
+            PhysicsCollisionObject pco = entry.getKey();
+            if (pco instanceof PhysicsRigidBody) {
+                instancer.release((PhysicsRigidBody) pco);
+            }
+            Node parent = entry.getValue().getParent();
             parent.removeFromParent();
         }
+        oldMap.clear();
+        sparePcoMap = oldMap;
     }
 
     /**
-     * Synchronize the swept-sphere debug controls with the collision objects in
-     * the PhysicsSpace.
+     * Synchronize the swept-sphere debug controls with the dirty collision
+     * objects in the PhysicsSpace.
      */
     private void updateSweptSpheres() {
         DebugAppStateFilter filter = configuration.getSweptSphereFilter();
@@ -871,14 +1162,13 @@ public class BulletDebugAppState extends AbstractAppState {
             return;
         }
 
-        for (Map.Entry<PhysicsCollisionObject, Node> entry
-                : pcoMap.entrySet()) {
-            PhysicsCollisionObject pco = entry.getKey();
+        for (PhysicsCollisionObject pco : pcosToSync()) {
             boolean display = filter.displayObject(pco)
+                    && !isCulled(pco)
                     && pco.getCcdMotionThreshold() > 0f
                     && pco.getCcdSweptSphereRadius() > 0f;
 
-            Node transformedNode = entry.getValue();
+            Node transformedNode = pcoMap.get(pco);
             Node parent = transformedNode.getParent();
             Control control = parent.getControl(SweptSphereDebugControl.class);
 
@@ -894,14 +1184,18 @@ public class BulletDebugAppState extends AbstractAppState {
     }
 
     /**
-     * Synchronize the vehicle debug controls with the vehicles in the
+     * Synchronize the vehicle debug controls with the dirty vehicles in the
      * PhysicsSpace.
      */
     private void updateVehicles() {
         DebugAppStateFilter filter = configuration.getFilter();
         PhysicsSpace space = configuration.getSpace();
         for (PhysicsVehicle vehicle : space.getVehicleList()) {
-            boolean display = (filter == null || filter.displayObject(vehicle));
+            if (!isDirty(vehicle)) {
+                continue;
+            }
+            boolean display = (filter == null || filter.displayObject(vehicle))
+                    && !isCulled(vehicle);
 
             Node node = pcoMap.get(vehicle);
             Control control = node.getControl(BulletVehicleDebugControl.class);
@@ -918,8 +1212,8 @@ public class BulletDebugAppState extends AbstractAppState {
     }
 
     /**
-     * Synchronize the velocity-vector debug controls with the dynamic rigid
-     * bodies in the PhysicsSpace.
+     * Synchronize the velocity-vector debug controls with the dirty dynamic
+     * rigid bodies in the PhysicsSpace.
      */
     private void updateVelocityVectors() {
         DebugAppStateFilter filter
@@ -928,14 +1222,13 @@ public class BulletDebugAppState extends AbstractAppState {
             return;
         }
 
-        for (Map.Entry<PhysicsCollisionObject, Node> entry
-                : pcoMap.entrySet()) {
-            PhysicsCollisionObject pco = entry.getKey();
+        for (PhysicsCollisionObject pco : pcosToSync()) {
             boolean display = pco instanceof PhysicsRigidBody
                     && ((PhysicsRigidBody) pco).isDynamic()
+                    && !isCulled(pco)
                     && filter.displayObject(pco);
 
-            Node transformedNode = entry.getValue();
+            Node transformedNode = pcoMap.get(pco);
             Node parent = transformedNode.getParent();
             Control control
                     = parent.getControl(VelocityVectorDebugControl.class);
@@ -62,6 +62,16 @@ public class DebugConfiguration {
      * true if-and-only-if (debug) visualization is enabled
      */
     private boolean isEnabled = false;
+    /**
+     * true if-and-only-if collision objects outside the camera's frustum are
+     * omitted from the visualization
+     */
+    private boolean isFrustumCulling = false;
+    /**
+     * true if-and-only-if eligible rigid bodies are visualized using hardware
+     * instancing
+     */
+    private boolean isInstancing = false;
     /**
      * limit which bounding boxes are visualized, or null to visualize no
      * bounding boxes
@@ -105,10 +115,19 @@ public class DebugConfiguration {
      * axis arrows
      */
     private float axisLineWidth = 1f;
+    /**
+     * maximum distance from the camera (in world units) at which collision
+     * objects are visualized, or Float.MAX_VALUE for no limit
+     */
+    private float cullingDistance = Float.MAX_VALUE;
     /**
      * line width for PhysicsJoint arrows (in pixels, &ge;1)
      */
     private float jointLineWidth = 1f;
+    /**
+     * count of modifications that affect which debug controls are attached
+     */
+    private int modCount = 0;
     /**
      * PhysicsSpace, or null if none
      */
@@ -148,6 +167,30 @@ public class DebugConfiguration {
         return axisLineWidth;
     }
 
+    /**
+     * Read the modification count of this configuration, which is incremented
+     * each time a filter, the axis-arrow settings, or the instancing option is
+     * altered. The BulletDebugAppState uses this to detect when every
+     * collision object must be re-synchronized.
+     *
+     * @return the count (wraps around on overflow)
+     */
+    int countModifications() {
+        return modCount;
+    }
+
+    /**
+     * Determine the maximum distance from the camera at which collision objects
+     * are visualized.
+     *
+     * @return the distance (in world units, &ge;0) or Float.MAX_VALUE for no
+     * limit
+     */
+    public float cullingDistance() {
+        assert cullingDistance >= 0f : cullingDistance;
+        return cullingDistance;
+    }
+
     /**
      * Access the filter that limits which bounding boxes are visualized.
      *
@@ -259,6 +302,26 @@ public class DebugConfiguration {
         return isEnabled;
     }
 
+    /**
+     * Test whether collision objects outside the camera's frustum are omitted
+     * from the visualization.
+     *
+     * @return true if culling, otherwise false
+     */
+    public boolean isFrustumCulling() {
+        return isFrustumCulling;
+    }
+
+    /**
+     * Test whether eligible rigid bodies are visualized using hardware
+     * instancing.
+     *
+     * @return true if instancing, otherwise false
+     */
+    public boolean isInstancing() {
+        return isInstancing;
+    }
+
     /**
      * Determine the line width of joint arrows.
      *
@@ -304,6 +367,7 @@ public class DebugConfiguration {
     public void setAxisArrowLength(float length) {
         Validate.nonNegative(length, "length");
         axisArrowLength = length;
+        ++modCount;
     }
 
     /**
@@ -315,6 +379,7 @@ public class DebugConfiguration {
     public void setAxisLineWidth(float width) {
         Validate.inRange(width, "width", 0f, Float.MAX_VALUE);
         axisLineWidth = width;
+        ++modCount;
     }
 
     /**
@@ -326,6 +391,7 @@ public class DebugConfiguration {
     public void setBoundingBoxFilter(
             BulletDebugAppState.DebugAppStateFilter filter) {
         boundingBoxFilter = filter;
+        ++modCount;
     }
 
     /**
@@ -338,6 +404,20 @@ public class DebugConfiguration {
         this.camera = camera;
     }
 
+    /**
+     * Alter the maximum distance from the camera at which collision objects
+     * are visualized. Distances are measured to the nearest point of each
+     * object's axis-aligned bounding box. Debug meshes aren't generated until
+     * the object comes within range.
+     *
+     * @param distance the desired distance (in world units, &ge;0) or
+     * Float.MAX_VALUE for no limit (default=Float.MAX_VALUE)
+     */
+    public void setCullingDistance(float distance) {
+        Validate.nonNegative(distance, "distance");
+        cullingDistance = distance;
+    }
+
     /**
      * Alter whether (debug) visualization is enabled. Changes take effect on
      * the next update.
@@ -356,6 +436,19 @@ public class DebugConfiguration {
      */
     public void setFilter(BulletDebugAppState.DebugAppStateFilter filter) {
         this.filter = filter;
+        ++modCount;
+    }
+
+    /**
+     * Alter whether collision objects outside the camera's frustum are omitted
+     * from the visualization. Each object's axis-aligned bounding box is
+     * tested. Debug meshes aren't generated until the object comes into view.
+     *
+     * @param enable true &rarr; cull, false &rarr; visualize regardless of the
+     * frustum (default=false)
+     */
+    public void setFrustumCulling(boolean enable) {
+        isFrustumCulling = enable;
     }
 
     /**
@@ -367,6 +460,7 @@ public class DebugConfiguration {
     public void setGravityVectorFilter(
             BulletDebugAppState.DebugAppStateFilter filter) {
         gravityVectorFilter = filter;
+        ++modCount;
     }
 
     /**
@@ -379,6 +473,18 @@ public class DebugConfiguration {
         initListener = listener;
     }
 
+    /**
+     * Alter whether eligible rigid bodies are visualized using hardware
+     * instancing. Changes take effect on the next update.
+     *
+     * @param enable true &rarr; instancing, false &rarr; one Geometry per body
+     * (default=false)
+     */
+    public void setInstancing(boolean enable) {
+        isInstancing = enable;
+        ++modCount;
+    }
+
     /**
      * Alter the line width for PhysicsJoint arrows.
      *
@@ -417,6 +523,7 @@ public class DebugConfiguration {
     public void setSweptSphereFilter(
             BulletDebugAppState.DebugAppStateFilter filter) {
         sweptSphereFilter = filter;
+        ++modCount;
     }
 
     /**
@@ -438,6 +545,7 @@ public class DebugConfiguration {
     public void setVelocityVectorFilter(
             BulletDebugAppState.DebugAppStateFilter filter) {
         velocityVectorFilter = filter;
+        ++modCount;
     }
 
     /**
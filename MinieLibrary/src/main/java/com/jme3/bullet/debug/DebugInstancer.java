@@ -0,0 +1,540 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.debug;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.DebugMeshNormals;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.objects.infos.RigidBodyMotionState;
+import com.jme3.bullet.util.DebugShapeFactory;
+import com.jme3.material.Material;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.instancing.InstancedGeometry;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Visualize rigid bodies using hardware instancing. Bodies that share a debug
+ * mesh (hence a DebugMeshKey) and a Material are drawn by a single
+ * InstancedGeometry, so the number of draw calls grows with the number of
+ * distinct shapes instead of the number of bodies.
+ * <p>
+ * Only rigid bodies with non-compound shapes and default debug materials are
+ * eligible. During each update, BulletDebugAppState invokes
+ * {@link #visualize(com.jme3.bullet.objects.PhysicsRigidBody, com.jme3.scene.Node)}
+ * for every eligible body it re-synchronizes, followed by a single invocation
+ * of {@link #update(com.jme3.math.Transform)}, which fills all the instance
+ * transforms in one pass. Instances persist until
+ * {@link #release(com.jme3.bullet.objects.PhysicsRigidBody)} is invoked.
+ */
+class DebugInstancer {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(DebugInstancer.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * AppState that this instancer serves
+     */
+    final private BulletDebugAppState debugAppState;
+    /**
+     * map each mesh/material combination to its instanced geometry
+     */
+    final private Map<BatchKey, InstancedGeometry> batches
+            = new HashMap<>(16);
+    /**
+     * map original materials to their instancing counterparts
+     */
+    final private Map<Material, Material> instancedMaterials
+            = new IdentityHashMap<>(8);
+    /**
+     * map rigid bodies to their instances
+     */
+    final private Map<PhysicsRigidBody, Instance> instances
+            = new HashMap<>(64);
+    /**
+     * parent of all instanced geometries, or null if not yet attached
+     */
+    private Node batchNode = null;
+    /**
+     * temporary storage for physics rotation
+     */
+    final private Quaternion rotation = new Quaternion();
+    /**
+     * transform of the debug root node as of the previous update
+     */
+    final private Transform syncedRootTransform = new Transform();
+    /**
+     * temporary storage for instance transforms
+     */
+    final private Transform transform = new Transform();
+    /**
+     * temporary storage for physics location
+     */
+    final private Vector3f location = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an instancer with no instances.
+     *
+     * @param debugAppState which app state (not null, alias created)
+     */
+    DebugInstancer(BulletDebugAppState debugAppState) {
+        assert debugAppState != null;
+        this.debugAppState = debugAppState;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the instanced geometries, which is also the number of draw calls
+     * per view port.
+     *
+     * @return the count (&ge;0)
+     */
+    int countBatches() {
+        int result = batches.size();
+        return result;
+    }
+
+    /**
+     * Count the rigid bodies visualized by instancing.
+     *
+     * @return the count (&ge;0)
+     */
+    int countInstances() {
+        int result = instances.size();
+        return result;
+    }
+
+    /**
+     * Test whether the specified rigid body can be visualized by instancing.
+     *
+     * @param body the body to test (not null, unaffected)
+     * @return true if eligible, otherwise false
+     */
+    static boolean isEligible(PhysicsRigidBody body) {
+        boolean result = body.getDebugMaterial() == null
+                && body.debugNumSides() > 0
+                && !(body.getCollisionShape() instanceof CompoundCollisionShape);
+
+        return result;
+    }
+
+    /**
+     * Stop visualizing the specified rigid body using instancing. If the body
+     * isn't instanced, this has no effect.
+     *
+     * @param body the body to release (not null, unaffected)
+     */
+    void release(PhysicsRigidBody body) {
+        Instance instance = instances.remove(body);
+        if (instance != null) {
+            leaveBatch(instance);
+        }
+    }
+
+    /**
+     * Update the transforms of all instances. Instances not visualized since
+     * the previous update are idle: their last transforms are re-used, so they
+     * cost no native calls.
+     *
+     * @param rootTransform the transform of the debug root node (not null,
+     * unaffected)
+     */
+    void update(Transform rootTransform) {
+        boolean rootMoved = !rootTransform.equals(syncedRootTransform);
+        syncedRootTransform.set(rootTransform);
+
+        for (Instance instance : instances.values()) {
+            boolean visited = instance.visited;
+            instance.visited = false;
+            if (!visited) {
+                if (instance.proxy.getNumControls() > 0) {
+                    /*
+                     * A pending debug mesh may still replace its placeholder.
+                     */
+                    updateBatch(instance, instance.key.material);
+                }
+                if (!rootMoved) {
+                    continue;
+                }
+                location.set(instance.node.getLocalTranslation());
+                rotation.set(instance.node.getLocalRotation());
+
+            } else {
+                PhysicsRigidBody body = instance.body;
+                if (body.isDynamic()) {
+                    RigidBodyMotionState motionState = body.getMotionState();
+                    motionState.getLocation(location);
+                    motionState.getOrientation(rotation);
+                } else {
+                    body.getPhysicsLocation(location);
+                    body.getPhysicsRotation(rotation);
+                }
+                /*
+                 * The transformed node may carry axes or other visualizers.
+                 */
+                instance.node.setLocalTranslation(location);
+                instance.node.setLocalRotation(rotation);
+            }
+            /*
+             * Instanced geometries ignore their own transforms,
+             * so the root transform is applied to each instance.
+             */
+            transform.setTranslation(location);
+            transform.setRotation(rotation);
+            transform.setScale(1f);
+            transform.combineWithParent(rootTransform);
+            instance.proxy.setLocalTransform(transform);
+            instance.proxy.updateGeometricState();
+        }
+
+        for (InstancedGeometry geometry : batches.values()) {
+            geometry.updateInstances();
+        }
+    }
+
+    /**
+     * Visualize the specified rigid body during the next update.
+     *
+     * @param body the body to visualize (not null, eligible, alias created)
+     * @param node the body's transformed visualization node (not null, alias
+     * created)
+     */
+    void visualize(PhysicsRigidBody body, Node node) {
+        assert isEligible(body);
+        assert node != null;
+
+        Instance instance = instances.get(body);
+        if (instance == null) {
+            instance = new Instance(body);
+            instances.put(body, instance);
+        }
+        instance.node = node;
+        instance.visited = true;
+
+        CollisionShape shape = body.getCollisionShape();
+        if (instance.hasShapeChanged(shape)) {
+            logger.log(Level.FINE, "Rebuild instance for {0}.", body);
+            leaveBatch(instance);
+            instance.setShape(shape);
+            instance.proxy = (Geometry) DebugShapeFactory.getDebugShape(body);
+        }
+
+        Material material = instancedMaterial(selectMaterial(body));
+        updateBatch(instance, material);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Access the instancing counterpart of the specified Material, creating
+     * it if necessary.
+     *
+     * @param material the original Material (not null, unaffected)
+     * @return a Material with instancing enabled (not null)
+     */
+    private Material instancedMaterial(Material material) {
+        Material result = instancedMaterials.get(material);
+        if (result == null) {
+            result = material.clone();
+            result.setBoolean("UseInstancing", true);
+            result.setName(material.getName() + " instanced");
+            instancedMaterials.put(material, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Add the specified instance to the batch with the specified key,
+     * creating the batch if necessary.
+     *
+     * @param instance the instance to add (not null, not in a batch)
+     * @param key the key of the batch (not null, alias created)
+     */
+    private void joinBatch(Instance instance, BatchKey key) {
+        assert instance.key == null;
+
+        InstancedGeometry batch = batches.get(key);
+        if (batch == null) {
+            if (batchNode == null) {
+                batchNode = new Node("Instanced Debug Batches");
+                debugAppState.attachChild(batchNode);
+            }
+            batch = new InstancedGeometry("Instanced debug batch");
+            batch.setMesh(key.mesh);
+            batch.setMaterial(key.material);
+            batch.setCullHint(Spatial.CullHint.Never);
+            batchNode.attachChild(batch);
+            batches.put(key, batch);
+        }
+
+        batch.addInstance(instance.proxy);
+        instance.key = key;
+    }
+
+    /**
+     * Remove the specified instance from its batch, if any, and discard the
+     * batch if it becomes empty.
+     *
+     * @param instance the instance to remove (not null)
+     */
+    private void leaveBatch(Instance instance) {
+        BatchKey key = instance.key;
+        if (key == null) {
+            return;
+        }
+
+        InstancedGeometry batch = batches.get(key);
+        batch.deleteInstance(instance.proxy);
+        if (batch.getActualNumInstances() == 0) {
+            batch.removeFromParent();
+            batches.remove(key);
+        }
+        instance.key = null;
+    }
+
+    /**
+     * Select a default Material for the specified rigid body, using the same
+     * criteria as BulletRigidBodyDebugControl.
+     *
+     * @param body the body to visualize (not null, unaffected)
+     * @return the pre-existing Material (not null)
+     */
+    private Material selectMaterial(PhysicsRigidBody body) {
+        int numSides = body.debugNumSides();
+
+        Material result;
+        if (!body.isContactResponse()) {
+            result = debugAppState.getGhostMaterial(numSides);
+        } else if (body.isDynamic() && body.isActive()) {
+            result = debugAppState.getActiveMaterial(numSides);
+        } else {
+            result = debugAppState.getInactiveMaterial(numSides);
+        }
+
+        return result;
+    }
+
+    /**
+     * Move the specified instance to the batch for its current mesh and the
+     * specified material, if it isn't there already.
+     *
+     * @param instance the instance to update (not null, proxy not null)
+     * @param material the instancing material to use (not null, alias
+     * created)
+     */
+    private void updateBatch(Instance instance, Material material) {
+        if (instance.proxy.getNumControls() > 0) {
+            /*
+             * The proxy isn't in the scene graph, so run its controls here,
+             * allowing a pending debug mesh to replace its placeholder.
+             */
+            instance.proxy.updateLogicalState(0f);
+        }
+        Mesh mesh = instance.proxy.getMesh();
+        BatchKey key = instance.key;
+        if (key == null || key.mesh != mesh || key.material != material) {
+            leaveBatch(instance);
+            joinBatch(instance, new BatchKey(mesh, material));
+        }
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Identify a batch by the identities of its Mesh and Material.
+     */
+    private static class BatchKey {
+        /**
+         * shared debug mesh (not null)
+         */
+        final private Mesh mesh;
+        /**
+         * instancing material (not null)
+         */
+        final private Material material;
+
+        /**
+         * Instantiate a key.
+         *
+         * @param mesh the debug mesh (not null, alias created)
+         * @param material the instancing material (not null, alias created)
+         */
+        BatchKey(Mesh mesh, Material material) {
+            this.mesh = mesh;
+            this.material = material;
+        }
+
+        /**
+         * Test for identity of the mesh and material.
+         *
+         * @param otherObject the object to compare to (may be null,
+         * unaffected)
+         * @return true if equivalent, otherwise false
+         */
+        @Override
+        public boolean equals(Object otherObject) {
+            boolean result = false;
+            if (otherObject instanceof BatchKey) {
+                BatchKey otherKey = (BatchKey) otherObject;
+                result = (mesh == otherKey.mesh)
+                        && (material == otherKey.material);
+            }
+
+            return result;
+        }
+
+        /**
+         * Generate the hash code for this key.
+         *
+         * @return value for use in hashing
+         */
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(mesh);
+            hash = 31 * hash + System.identityHashCode(material);
+
+            return hash;
+        }
+    }
+
+    /**
+     * Track the visualization of a single rigid body.
+     */
+    private static class Instance {
+        /**
+         * key of the batch containing the proxy, or null if none
+         */
+        private BatchKey key;
+        /**
+         * true if visualized since the previous update, otherwise false
+         */
+        private boolean visited;
+        /**
+         * debug-mesh normals option for which the proxy was generated
+         */
+        private DebugMeshNormals lastNormals;
+        /**
+         * shape for which the proxy was generated, or null if none
+         */
+        private CollisionShape lastShape;
+        /**
+         * margin of lastShape when the proxy was generated
+         */
+        private float lastMargin;
+        /**
+         * debug-mesh resolution for which the proxy was generated
+         */
+        private int lastResolution;
+        /**
+         * geometry whose world matrix supplies the instance transform, or
+         * null if not yet generated
+         */
+        private Geometry proxy;
+        /**
+         * transformed visualization node of the body
+         */
+        private Node node;
+        /**
+         * rigid body being visualized (not null)
+         */
+        final private PhysicsRigidBody body;
+        /**
+         * scale of lastShape when the proxy was generated
+         */
+        final private Vector3f lastScale = new Vector3f();
+        /**
+         * temporary storage for the current scale
+         */
+        final private Vector3f newScale = new Vector3f();
+
+        /**
+         * Instantiate an instance for the specified body.
+         *
+         * @param body the body to visualize (not null, alias created)
+         */
+        Instance(PhysicsRigidBody body) {
+            this.body = body;
+        }
+
+        /**
+         * Test whether the proxy must be regenerated.
+         *
+         * @param newShape the body's current shape (not null, unaffected)
+         * @return true if it must be regenerated, otherwise false
+         */
+        boolean hasShapeChanged(CollisionShape newShape) {
+            newShape.getScale(newScale);
+
+            boolean result = lastShape != newShape
+                    || lastMargin != newShape.getMargin()
+                    || !lastScale.equals(newScale)
+                    || lastNormals != body.debugMeshNormals()
+                    || lastResolution != body.debugMeshResolution();
+
+            return result;
+        }
+
+        /**
+         * Record the parameters for which the proxy is generated.
+         *
+         * @param shape the body's current shape (not null, alias created)
+         */
+        void setShape(CollisionShape shape) {
+            lastShape = shape;
+            lastMargin = shape.getMargin();
+            shape.getScale(lastScale);
+            lastNormals = body.debugMeshNormals();
+            lastResolution = body.debugMeshResolution();
+        }
+    }
+}
@@ -64,6 +64,12 @@ public class MultiBodyDebugAppState extends BulletDebugAppState {
      * map multibodies to visualization nodes
      */
     private HashMap<MultiBodyCollider, Node> colliderMap = new HashMap<>(64);
+    /**
+     * spare map, swapped with colliderMap to avoid allocating a new map during
+     * each synchronization
+     */
+    private HashMap<MultiBodyCollider, Node> spareColliderMap
+            = new HashMap<>(64);
     // *************************************************************************
     // constructors
 
@@ -95,40 +101,47 @@ public class MultiBodyDebugAppState extends BulletDebugAppState {
      * Synchronize the collider debug controls with the MultiBodySpace.
      */
     private void updateMultiBodies() {
-        HashMap<MultiBodyCollider, Node> oldMap = colliderMap;
-        //create new map
-        colliderMap = new HashMap<>(oldMap.size());
-        DebugConfiguration config = getConfiguration();
-        MultiBodySpace pSpace = (MultiBodySpace) config.getSpace();
-        Collection<MultiBody> list = pSpace.getMultiBodyList();
-        for (MultiBody multiBody : list) {
-            List<MultiBodyCollider> list2 = multiBody.listColliders();
-            for (MultiBodyCollider collider : list2) {
-                Node node = oldMap.remove(collider);
-                if (node == null) {
-                    node = new Node(collider.toString());
-                    attachChild(node);
+        if (isSpaceModified()) {
+            HashMap<MultiBodyCollider, Node> oldMap = colliderMap;
+            colliderMap = spareColliderMap;
+            assert colliderMap.isEmpty();
+            DebugConfiguration config = getConfiguration();
+            MultiBodySpace pSpace = (MultiBodySpace) config.getSpace();
+            Collection<MultiBody> list = pSpace.getMultiBodyList();
+            for (MultiBody multiBody : list) {
+                List<MultiBodyCollider> list2 = multiBody.listColliders();
+                for (MultiBodyCollider collider : list2) {
+                    Node node = oldMap.remove(collider);
+                    if (node == null) {
+                        node = new Node(collider.toString());
+                        attachChild(node);
+                    }
+                    colliderMap.put(collider, node);
                 }
-                colliderMap.put(collider, node);
             }
-        }
-        /*
-         * Detach nodes of colliders that have been removed from the space.
-         */
-        for (Node node : oldMap.values()) {
-            node.removeFromParent();
+            /*
+             * Detach nodes of colliders that have been removed from the space.
+             */
+            for (Node node : oldMap.values()) {
+                node.removeFromParent();
+            }
+            oldMap.clear();
+            spareColliderMap = oldMap;
         }
         /*
          * Synchronize the collider debug controls and axis visualizers
-         * with the colliders in the PhysicsSpace.
+         * with the dirty colliders in the PhysicsSpace.
          */
         BulletDebugAppState.DebugAppStateFilter filter
                 = getConfiguration().getFilter();
         for (Map.Entry<MultiBodyCollider, Node> entry
                 : colliderMap.entrySet()) {
             MultiBodyCollider collider = entry.getKey();
-            boolean displayShape = (filter == null)
-                    || filter.displayObject(collider);
+            if (!isDirty(collider)) {
+                continue;
+            }
+            boolean displayShape = (filter == null
+                    || filter.displayObject(collider)) && !isCulled(collider);
 
             Node node = entry.getValue();
             Control control = node.getControl(ColliderDebugControl.class);
@@ -44,12 +44,10 @@ import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.VertexBuffer;
-import com.jme3.scene.debug.Arrow;
 import com.jme3.util.BufferUtils;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.logging.Logger;
-import jme3utilities.math.MyBuffer;
 import jme3utilities.math.MyVector3f;
 
 /**
@@ -76,13 +74,25 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
     // fields
 
     /**
-     * temporary buffer for locations, allocated lazily
+     * node locations copied during the previous update, used to detect changes
      */
-    private static FloatBuffer tmpLocations = null;
+    private float[] lastLocations = new float[0];
     /**
-     * temporary buffer for velocities, allocated lazily
+     * node locations copied during the current update
      */
-    private static FloatBuffer tmpVelocities = null;
+    private float[] nodeLocations = new float[0];
+    /**
+     * reusable buffer for cluster centers, allocated lazily
+     */
+    private FloatBuffer tmpClusterCenters = null;
+    /**
+     * reusable buffer for node locations, allocated lazily
+     */
+    private FloatBuffer tmpLocations = null;
+    /**
+     * reusable buffer for velocities, allocated lazily
+     */
+    private FloatBuffer tmpVelocities = null;
     /**
      * Geometry to visualize clusters
      */
@@ -100,18 +110,17 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
      */
     private Geometry pinsGeometry = null;
     /**
-     * geometries to visualize velocity vectors
+     * Geometry to visualize velocity vectors, one line per vector
      */
-    private Geometry[] velocityGeometries = null;
+    private Geometry velocitiesGeometry = null;
     /**
      * soft body to visualize (not null)
      */
     final private PhysicsSoftBody body;
     /**
-     * temporary storage
+     * temporary storage, reused by this control only
      */
-    final private static Vector3f tmpCenter = new Vector3f();
-    final private static Vector3f tmpVector = new Vector3f();
+    final private Vector3f tmpCenter = new Vector3f();
     // *************************************************************************
     // constructors
 
@@ -139,6 +148,7 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
     @Override
     protected void controlUpdate(float tpf) {
         Node node = (Node) spatial;
+        boolean resized = false;
         /*
          * Ensure that the clustersGeometry mesh is correctly sized.
          */
@@ -164,6 +174,7 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
             if (facesGeometry != null) {
                 node.attachChild(facesGeometry);
             }
+            resized = true;
         }
         /*
          * Ensure that the linksGeometry mesh is correctly sized.
@@ -177,6 +188,7 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
             if (linksGeometry != null) {
                 node.attachChild(linksGeometry);
             }
+            resized = true;
         }
         /*
          * Ensure that the pinsGeometry mesh is correctly sized.
@@ -192,20 +204,16 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
             }
         }
         /*
-         * Ensure that the velocityGeometries array is correctly sized.
+         * Ensure that the velocitiesGeometry mesh is correctly sized.
          */
-        if (!areVelocitiesSized()) {
-            if (velocityGeometries != null) {
-                for (Geometry geometry : velocityGeometries) {
-                    node.detachChild(geometry);
-                }
+        if (!isVelocitiesGeometrySized()) {
+            if (velocitiesGeometry != null) {
+                node.detachChild(velocitiesGeometry);
             }
-            velocityGeometries = createVelocityGeometries();
-            assert areVelocitiesSized();
-            if (velocityGeometries != null) {
-                for (Geometry geometry : velocityGeometries) {
-                    node.attachChild(geometry);
-                }
+            velocitiesGeometry = createVelocitiesGeometry();
+            assert isVelocitiesGeometrySized();
+            if (velocitiesGeometry != null) {
+                node.attachChild(velocitiesGeometry);
             }
         }
 
@@ -214,22 +222,34 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
             Mesh mesh = clustersGeometry.getMesh();
             NativeSoftBodyUtil.updateClusterMesh(body, mesh, localFlag);
         }
+        /*
+         * The face and link meshes are the costliest to fill and upload,
+         * so skip them unless a node has moved.
+         */
+        boolean updateNodeMeshes = resized;
+        if (facesGeometry != null || linksGeometry != null
+                || velocitiesGeometry != null) {
+            boolean nodesMoved = copyNodeLocations();
+            updateNodeMeshes = updateNodeMeshes || nodesMoved;
+        }
 
         DebugMeshNormals normals = body.debugMeshNormals();
         IntBuffer noIndexMap = null; // node indices = vertex indices
         boolean normalsFlag = (normals != DebugMeshNormals.None);
         Transform noTransform = null; // physics locations = mesh positions
 
-        if (linksGeometry != null) {
+        if (linksGeometry != null && updateNodeMeshes) {
             Mesh mesh = linksGeometry.getMesh();
             NativeSoftBodyUtil.updateMesh(body, noIndexMap, mesh, localFlag,
                     normalsFlag, noTransform);
         }
 
         if (facesGeometry != null) {
-            Mesh mesh = facesGeometry.getMesh();
-            NativeSoftBodyUtil.updateMesh(body, noIndexMap, mesh, localFlag,
-                    normalsFlag, noTransform);
+            if (updateNodeMeshes) {
+                Mesh mesh = facesGeometry.getMesh();
+                NativeSoftBodyUtil.updateMesh(body, noIndexMap, mesh,
+                        localFlag, normalsFlag, noTransform);
+            }
 
             Material material = body.getDebugMaterial();
             if (material == null) { // apply one of the default materials
@@ -246,38 +266,8 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
         }
 
         body.getPhysicsLocation(tmpCenter);
-        if (velocityGeometries != null) {
-            int numArrows = velocityGeometries.length;
-            int numFloats = MyVector3f.numAxes * numArrows;
-            if (tmpLocations == null
-                    || numFloats > tmpLocations.capacity()) {
-                tmpLocations = BufferUtils.createFloatBuffer(numFloats);
-            }
-            if (tmpVelocities == null
-                    || numFloats > tmpVelocities.capacity()) {
-                tmpVelocities = BufferUtils.createFloatBuffer(numFloats);
-            }
-
-            if (countClustersToVisualize() > 0) { // cluster velocities
-                body.copyClusterCenters(tmpLocations);
-                body.copyClusterVelocities(tmpVelocities);
-            } else { // node velocities
-                body.copyLocations(tmpLocations);
-                body.copyVelocities(tmpVelocities);
-            }
-
-            for (int arrowIndex = 0; arrowIndex < numArrows; ++arrowIndex) {
-                int startPosition = MyVector3f.numAxes * arrowIndex;
-                Geometry geometry = velocityGeometries[arrowIndex];
-                MyBuffer.get(tmpLocations, startPosition, tmpVector);
-                tmpVector.subtractLocal(tmpCenter);
-                geometry.setLocalTranslation(tmpVector);
-
-                Mesh mesh = geometry.getMesh();
-                Arrow arrow = (Arrow) mesh;
-                MyBuffer.get(tmpVelocities, startPosition, tmpVector);
-                arrow.setArrowExtent(tmpVector);
-            }
+        if (velocitiesGeometry != null) {
+            updateVelocitiesMesh();
         }
 
         applyPhysicsTransform(tmpCenter, rotateIdentity);
@@ -306,6 +296,9 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
             if (linksGeometry != null) {
                 node.attachChild(linksGeometry);
             }
+            if (velocitiesGeometry != null) {
+                node.attachChild(velocitiesGeometry);
+            }
         } else if (spatial == null && this.spatial != null) {
             Node node = (Node) this.spatial;
             if (clustersGeometry != null) {
@@ -317,6 +310,9 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
             if (linksGeometry != null) {
                 node.detachChild(linksGeometry);
             }
+            if (velocitiesGeometry != null) {
+                node.detachChild(velocitiesGeometry);
+            }
         }
         super.setSpatial(spatial);
     }
@@ -324,17 +320,38 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
     // private methods
 
     /**
-     * Test whether the velocityGeometries array is correctly sized.
+     * Copy the locations of all nodes and compare them with those copied
+     * during the previous invocation.
      *
-     * @return true if correct size, otherwise false
+     * @return true if any node moved (or the node count changed), otherwise
+     * false
      */
-    private boolean areVelocitiesSized() {
-        int numArrows = 0;
-        if (velocityGeometries != null) {
-            numArrows = velocityGeometries.length;
+    private boolean copyNodeLocations() {
+        int numFloats = MyVector3f.numAxes * body.countNodes();
+        if (tmpLocations == null || numFloats > tmpLocations.capacity()) {
+            tmpLocations = BufferUtils.createFloatBuffer(numFloats);
         }
-        int correctNumArrows = countVelocitiesToVisualize();
-        boolean result = (numArrows == correctNumArrows);
+        tmpLocations.clear();
+        tmpLocations = body.copyLocations(tmpLocations);
+
+        if (nodeLocations.length != numFloats) {
+            nodeLocations = new float[numFloats];
+        }
+        tmpLocations.rewind();
+        tmpLocations.get(nodeLocations, 0, numFloats);
+
+        boolean result = (lastLocations.length != numFloats);
+        for (int i = 0; !result && i < numFloats; ++i) {
+            if (nodeLocations[i] != lastLocations[i]) {
+                result = true;
+            }
+        }
+        /*
+         * Swap the arrays, for comparison during the next update.
+         */
+        float[] swap = lastLocations;
+        lastLocations = nodeLocations;
+        nodeLocations = swap;
 
         return result;
     }
@@ -590,26 +607,27 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
     }
 
     /**
-     * Create geometries to visualize velocity vectors.
+     * Create a Geometry to visualize velocity vectors.
      *
-     * @return a new array of geometries, or null if no velocities to visualize
-     */
-    private Geometry[] createVelocityGeometries() {
-        Geometry[] result = null;
-
-        int numGeometries = countVelocitiesToVisualize();
-        if (numGeometries > 0) {
-            result = new Geometry[numGeometries];
-            for (int geomI = 0; geomI < numGeometries; ++geomI) {
-                Arrow mesh = new Arrow(tmpVector);
-                String name = String.format("velocity of %s[%d]", body, geomI);
-                Geometry geometry = new Geometry(name, mesh);
-                result[geomI] = geometry;
-
-                Material material = debugAppState.getVelocityVectorMaterial();
-                geometry.setMaterial(material);
-                geometry.setShadowMode(RenderQueue.ShadowMode.Off);
-            }
+     * @return a new Geometry, or null if no velocities to visualize
+     */
+    private Geometry createVelocitiesGeometry() {
+        Geometry result = null;
+
+        int numVectors = countVelocitiesToVisualize();
+        if (numVectors > 0) {
+            Mesh mesh = new Mesh();
+            int numFloats = 2 * MyVector3f.numAxes * numVectors;
+            FloatBuffer positions = BufferUtils.createFloatBuffer(numFloats);
+            mesh.setBuffer(VertexBuffer.Type.Position, MyVector3f.numAxes,
+                    positions);
+            mesh.setMode(Mesh.Mode.Lines);
+            mesh.setStreamed();
+
+            result = new Geometry(body + " velocities", mesh);
+            Material material = debugAppState.getVelocityVectorMaterial();
+            result.setMaterial(material);
+            result.setShadowMode(RenderQueue.ShadowMode.Off);
         }
 
         return result;
@@ -676,4 +694,63 @@ class SoftBodyDebugControl extends AbstractPhysicsDebugControl {
 
         return result;
     }
+
+    /**
+     * Test whether the velocitiesGeometry mesh is correctly sized.
+     *
+     * @return true if correct size, otherwise false
+     */
+    private boolean isVelocitiesGeometrySized() {
+        int correctNumVertices = 2 * countVelocitiesToVisualize();
+        boolean result
+                = countVertices(velocitiesGeometry) == correctNumVertices;
+
+        return result;
+    }
+
+    /**
+     * Update the velocitiesGeometry mesh from the body. Invoked after
+     * copyNodeLocations() and after tmpCenter is set.
+     */
+    private void updateVelocitiesMesh() {
+        Mesh mesh = velocitiesGeometry.getMesh();
+        int numVectors = mesh.getVertexCount() / 2;
+        int numFloats = MyVector3f.numAxes * numVectors;
+        if (tmpVelocities == null || numFloats > tmpVelocities.capacity()) {
+            tmpVelocities = BufferUtils.createFloatBuffer(numFloats);
+        }
+        tmpVelocities.clear();
+
+        FloatBuffer starts;
+        if (countClustersToVisualize() > 0) { // cluster velocities
+            if (tmpClusterCenters == null
+                    || numFloats > tmpClusterCenters.capacity()) {
+                tmpClusterCenters = BufferUtils.createFloatBuffer(numFloats);
+            }
+            tmpClusterCenters.clear();
+            starts = body.copyClusterCenters(tmpClusterCenters);
+            tmpVelocities = body.copyClusterVelocities(tmpVelocities);
+        } else { // node velocities
+            starts = tmpLocations;
+            tmpVelocities = body.copyVelocities(tmpVelocities);
+        }
+        /*
+         * Each line runs from the start location (relative to the body's
+         * center) to the start plus the velocity.
+         */
+        FloatBuffer positions = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        for (int vectorIndex = 0; vectorIndex < numVectors; ++vectorIndex) {
+            for (int axis = 0; axis < MyVector3f.numAxes; ++axis) {
+                int offset = MyVector3f.numAxes * vectorIndex + axis;
+                float start = starts.get(offset) - tmpCenter.get(axis);
+                float end = start + tmpVelocities.get(offset);
+                positions.put(2 * MyVector3f.numAxes * vectorIndex + axis,
+                        start);
+                positions.put(MyVector3f.numAxes * (2 * vectorIndex + 1)
+                        + axis, end);
+            }
+        }
+        mesh.getBuffer(VertexBuffer.Type.Position).setUpdateNeeded();
+        mesh.updateBound();
+    }
 }
@@ -74,6 +74,11 @@ public class SoftDebugAppState extends BulletDebugAppState {
      * map soft bodies to visualization nodes
      */
     private HashMap<PhysicsSoftBody, Node> softBodies = new HashMap<>(64);
+    /**
+     * spare map, swapped with softBodies to avoid allocating a new map during
+     * each synchronization
+     */
+    private HashMap<PhysicsSoftBody, Node> spareSoftBodies = new HashMap<>(64);
     /**
      * material for visualizing all soft-body anchors
      */
@@ -251,36 +256,44 @@ public class SoftDebugAppState extends BulletDebugAppState {
      * Synchronize the soft-body debug controls with the PhysicsSoftSpace.
      */
     private void updateSoftBodies() {
-        HashMap<PhysicsSoftBody, Node> oldMap = softBodies;
-        //create new map
-        softBodies = new HashMap<>(oldMap.size());
-        DebugConfiguration config = getConfiguration();
-        PhysicsSoftSpace pSpace = (PhysicsSoftSpace) config.getSpace();
-        Collection<PhysicsSoftBody> list = pSpace.getSoftBodyList();
-        for (PhysicsSoftBody softBody : list) {
-            Node node = oldMap.remove(softBody);
-            if (node == null) {
-                node = new Node(softBody.toString());
-                attachChild(node);
+        if (isSpaceModified()) {
+            HashMap<PhysicsSoftBody, Node> oldMap = softBodies;
+            softBodies = spareSoftBodies;
+            assert softBodies.isEmpty();
+            DebugConfiguration config = getConfiguration();
+            PhysicsSoftSpace pSpace = (PhysicsSoftSpace) config.getSpace();
+            Collection<PhysicsSoftBody> list = pSpace.getSoftBodyList();
+            for (PhysicsSoftBody softBody : list) {
+                Node node = oldMap.remove(softBody);
+                if (node == null) {
+                    node = new Node(softBody.toString());
+                    attachChild(node);
+                }
+                softBodies.put(softBody, node);
             }
-            softBodies.put(softBody, node);
-        }
-        /*
-         * Detach nodes of soft bodies that have been removed from the space.
-         */
-        for (Node node : oldMap.values()) {
-            node.removeFromParent();
+            /*
+             * Detach nodes of soft bodies that have been removed from the
+             * space.
+             */
+            for (Node node : oldMap.values()) {
+                node.removeFromParent();
+            }
+            oldMap.clear();
+            spareSoftBodies = oldMap;
         }
         /*
          * Synchronize the soft-body debug controls and axis visualizers
-         * with the soft bodies in the PhysicsSpace.
+         * with the dirty soft bodies in the PhysicsSpace.
          */
         BulletDebugAppState.DebugAppStateFilter filter
                 = getConfiguration().getFilter();
         for (Map.Entry<PhysicsSoftBody, Node> entry : softBodies.entrySet()) {
             PhysicsSoftBody softBody = entry.getKey();
-            boolean displayShape = (filter == null)
-                    || filter.displayObject(softBody);
+            if (!isDirty(softBody)) {
+                continue;
+            }
+            boolean displayShape = (filter == null
+                    || filter.displayObject(softBody)) && !isCulled(softBody);
 
             Node node = entry.getValue();
             Control control = node.getControl(SoftBodyDebugControl.class);
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.objects;
+
+import com.jme3.bullet.objects.infos.Cluster;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A reusable struct-of-arrays snapshot of all clusters in a PhysicsSoftBody:
+ * centers, velocities, masses, and parameters. Fill it using
+ * {@link PhysicsSoftBody#snapshotClusters(com.jme3.bullet.objects.ClusterSnapshot)}.
+ * <p>
+ * Each capture costs a handful of native calls, regardless of the number of
+ * clusters. Parameter values are re-read only when the body's clusters or
+ * parameters have been altered since the previous capture.
+ */
+public class ClusterSnapshot {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ClusterSnapshot.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * parameter values, indexed by parameter ordinal and then cluster index
+     */
+    final private float[][] parameters = new float[Cluster.values().length][0];
+    /**
+     * center location of each cluster, 3 floats per cluster (in physics-space
+     * coordinates)
+     */
+    private FloatBuffer centers = null;
+    /**
+     * mass of each cluster
+     */
+    private FloatBuffer masses = null;
+    /**
+     * center velocity of each cluster, 3 floats per cluster (in physics-space
+     * coordinates)
+     */
+    private FloatBuffer velocities = null;
+    /**
+     * number of clusters captured
+     */
+    private int numClusters = 0;
+    /**
+     * cluster modification count of the body when its parameters were read,
+     * or -1 if never read
+     */
+    private int parametersModCount = -1;
+    /**
+     * body whose parameters were read most recently, or null if none
+     */
+    private PhysicsSoftBody parametersBody = null;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Capture the clusters of the specified body. Invoked by
+     * {@link PhysicsSoftBody#snapshotClusters(com.jme3.bullet.objects.ClusterSnapshot)}.
+     *
+     * @param body the body to capture (not null, unaffected)
+     * @param clusterModCount the body's cluster modification count
+     */
+    void capture(PhysicsSoftBody body, int clusterModCount) {
+        numClusters = body.countClusters();
+        centers = ensureCapacity(centers, numAxes * numClusters);
+        velocities = ensureCapacity(velocities, numAxes * numClusters);
+        masses = ensureCapacity(masses, numClusters);
+        if (numClusters > 0) {
+            body.copyClusterCenters(centers);
+            body.copyClusterVelocities(velocities);
+            body.copyClusterMasses(masses);
+        }
+
+        if (body != parametersBody || clusterModCount != parametersModCount
+                || parameters[0].length != numClusters) {
+            Cluster[] values = Cluster.values();
+            for (Cluster parameter : values) {
+                float[] array = new float[numClusters];
+                for (int i = 0; i < numClusters; ++i) {
+                    array[i] = body.get(parameter, i);
+                }
+                parameters[parameter.ordinal()] = array;
+            }
+            parametersBody = body;
+            parametersModCount = clusterModCount;
+        }
+    }
+
+    /**
+     * Copy the center location of the indexed cluster.
+     *
+     * @param clusterIndex which cluster (&ge;0, &lt;numClusters)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the location (in physics-space coordinates, either storeResult
+     * or a new vector)
+     */
+    public Vector3f center(int clusterIndex, Vector3f storeResult) {
+        Validate.inRange(clusterIndex, "cluster index", 0, numClusters - 1);
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int start = numAxes * clusterIndex;
+        result.set(centers.get(start), centers.get(start + 1),
+                centers.get(start + 2));
+
+        return result;
+    }
+
+    /**
+     * Count the clusters captured.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countClusters() {
+        assert numClusters >= 0 : numClusters;
+        return numClusters;
+    }
+
+    /**
+     * Read the specified parameter of the indexed cluster.
+     *
+     * @param parameter which parameter (not null)
+     * @param clusterIndex which cluster (&ge;0, &lt;numClusters)
+     * @return the parameter value
+     */
+    public float get(Cluster parameter, int clusterIndex) {
+        Validate.inRange(clusterIndex, "cluster index", 0, numClusters - 1);
+
+        int ordinal = parameter.ordinal();
+        float result = parameters[ordinal][clusterIndex];
+
+        return result;
+    }
+
+    /**
+     * Access the center locations. The buffer may be replaced by a later
+     * capture, and shouldn't be modified.
+     *
+     * @return the pre-existing direct buffer, 3 floats per cluster (in
+     * physics-space coordinates), or null if nothing has been captured
+     */
+    public FloatBuffer getCenters() {
+        return centers;
+    }
+
+    /**
+     * Access the masses. The buffer may be replaced by a later capture, and
+     * shouldn't be modified.
+     *
+     * @return the pre-existing direct buffer, one float per cluster, or null
+     * if nothing has been captured
+     */
+    public FloatBuffer getMasses() {
+        return masses;
+    }
+
+    /**
+     * Access the center velocities. The buffer may be replaced by a later
+     * capture, and shouldn't be modified.
+     *
+     * @return the pre-existing direct buffer, 3 floats per cluster (in
+     * physics-space coordinates), or null if nothing has been captured
+     */
+    public FloatBuffer getVelocities() {
+        return velocities;
+    }
+
+    /**
+     * Read the mass of the indexed cluster.
+     *
+     * @param clusterIndex which cluster (&ge;0, &lt;numClusters)
+     * @return the mass (&ge;0)
+     */
+    public float mass(int clusterIndex) {
+        Validate.inRange(clusterIndex, "cluster index", 0, numClusters - 1);
+
+        float result = masses.get(clusterIndex);
+        return result;
+    }
+
+    /**
+     * Copy the center velocity of the indexed cluster.
+     *
+     * @param clusterIndex which cluster (&ge;0, &lt;numClusters)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the velocity (in physics-space coordinates, either storeResult
+     * or a new vector)
+     */
+    public Vector3f velocity(int clusterIndex, Vector3f storeResult) {
+        Validate.inRange(clusterIndex, "cluster index", 0, numClusters - 1);
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int start = numAxes * clusterIndex;
+        result.set(velocities.get(start), velocities.get(start + 1),
+                velocities.get(start + 2));
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Ensure that the specified buffer can hold the specified number of
+     * floats, replacing it if necessary.
+     *
+     * @param buffer the buffer to test (may be null, unaffected)
+     * @param numFloats the number of floats required (&ge;0)
+     * @return the pre-existing buffer or a new one (direct, limit=numFloats)
+     */
+    private static FloatBuffer ensureCapacity(FloatBuffer buffer,
+            int numFloats) {
+        FloatBuffer result = buffer;
+        if (result == null || result.capacity() < numFloats) {
+            result = BufferUtils.createFloatBuffer(numFloats);
+        }
+        result.clear();
+        result.limit(numFloats);
+
+        return result;
+    }
+}
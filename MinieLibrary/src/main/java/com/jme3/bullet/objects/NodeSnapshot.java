@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.objects;
+
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A reusable struct-of-arrays snapshot of all nodes in a PhysicsSoftBody:
+ * locations, velocities, normals, and masses. Fill it using
+ * {@link PhysicsSoftBody#snapshotNodes(com.jme3.bullet.objects.NodeSnapshot)}.
+ * <p>
+ * Each capture costs a handful of native calls, regardless of the number of
+ * nodes, and allocates nothing once the buffers are large enough.
+ */
+public class NodeSnapshot {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(NodeSnapshot.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * location of each node, 3 floats per node (in physics-space coordinates)
+     */
+    private FloatBuffer locations = null;
+    /**
+     * mass of each node
+     */
+    private FloatBuffer masses = null;
+    /**
+     * normal of each node, 3 floats per node (in physics-space coordinates)
+     */
+    private FloatBuffer normals = null;
+    /**
+     * velocity of each node, 3 floats per node (in physics-space coordinates)
+     */
+    private FloatBuffer velocities = null;
+    /**
+     * number of nodes captured
+     */
+    private int numNodes = 0;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Capture the nodes of the specified body. Invoked by
+     * {@link PhysicsSoftBody#snapshotNodes(com.jme3.bullet.objects.NodeSnapshot)}.
+     *
+     * @param body the body to capture (not null, unaffected)
+     */
+    void capture(PhysicsSoftBody body) {
+        numNodes = body.countNodes();
+        locations = ensureCapacity(locations, numAxes * numNodes);
+        velocities = ensureCapacity(velocities, numAxes * numNodes);
+        normals = ensureCapacity(normals, numAxes * numNodes);
+        masses = ensureCapacity(masses, numNodes);
+        if (numNodes > 0) {
+            body.copyLocations(locations);
+            body.copyVelocities(velocities);
+            body.copyNormals(normals);
+            body.copyMasses(masses);
+        }
+    }
+
+    /**
+     * Count the nodes captured.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countNodes() {
+        assert numNodes >= 0 : numNodes;
+        return numNodes;
+    }
+
+    /**
+     * Access the node locations. The buffer may be replaced by a later
+     * capture, and shouldn't be modified.
+     *
+     * @return the pre-existing direct buffer, 3 floats per node (in
+     * physics-space coordinates), or null if nothing has been captured
+     */
+    public FloatBuffer getLocations() {
+        return locations;
+    }
+
+    /**
+     * Access the node masses. The buffer may be replaced by a later capture,
+     * and shouldn't be modified.
+     *
+     * @return the pre-existing direct buffer, one float per node, or null if
+     * nothing has been captured
+     */
+    public FloatBuffer getMasses() {
+        return masses;
+    }
+
+    /**
+     * Access the node normals. The buffer may be replaced by a later capture,
+     * and shouldn't be modified.
+     *
+     * @return the pre-existing direct buffer, 3 floats per node (in
+     * physics-space coordinates), or null if nothing has been captured
+     */
+    public FloatBuffer getNormals() {
+        return normals;
+    }
+
+    /**
+     * Access the node velocities. The buffer may be replaced by a later
+     * capture, and shouldn't be modified.
+     *
+     * @return the pre-existing direct buffer, 3 floats per node (in
+     * physics-space coordinates), or null if nothing has been captured
+     */
+    public FloatBuffer getVelocities() {
+        return velocities;
+    }
+
+    /**
+     * Copy the location of the indexed node.
+     *
+     * @param nodeIndex which node (&ge;0, &lt;numNodes)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the location (in physics-space coordinates, either storeResult
+     * or a new vector)
+     */
+    public Vector3f location(int nodeIndex, Vector3f storeResult) {
+        Vector3f result = get(locations, nodeIndex, storeResult);
+        return result;
+    }
+
+    /**
+     * Read the mass of the indexed node.
+     *
+     * @param nodeIndex which node (&ge;0, &lt;numNodes)
+     * @return the mass (&ge;0)
+     */
+    public float mass(int nodeIndex) {
+        Validate.inRange(nodeIndex, "node index", 0, numNodes - 1);
+
+        float result = masses.get(nodeIndex);
+        return result;
+    }
+
+    /**
+     * Copy the normal of the indexed node.
+     *
+     * @param nodeIndex which node (&ge;0, &lt;numNodes)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the normal (in physics-space coordinates, either storeResult or
+     * a new vector)
+     */
+    public Vector3f normal(int nodeIndex, Vector3f storeResult) {
+        Vector3f result = get(normals, nodeIndex, storeResult);
+        return result;
+    }
+
+    /**
+     * Copy the velocity of the indexed node.
+     *
+     * @param nodeIndex which node (&ge;0, &lt;numNodes)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the velocity (in physics-space coordinates, either storeResult
+     * or a new vector)
+     */
+    public Vector3f velocity(int nodeIndex, Vector3f storeResult) {
+        Vector3f result = get(velocities, nodeIndex, storeResult);
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Ensure that the specified buffer can hold the specified number of
+     * floats, replacing it if necessary.
+     *
+     * @param buffer the buffer to test (may be null, unaffected)
+     * @param numFloats the number of floats required (&ge;0)
+     * @return the pre-existing buffer or a new one (direct, limit=numFloats)
+     */
+    private static FloatBuffer ensureCapacity(FloatBuffer buffer,
+            int numFloats) {
+        FloatBuffer result = buffer;
+        if (result == null || result.capacity() < numFloats) {
+            result = BufferUtils.createFloatBuffer(numFloats);
+        }
+        result.clear();
+        result.limit(numFloats);
+
+        return result;
+    }
+
+    /**
+     * Copy the indexed vector from the specified buffer.
+     *
+     * @param buffer the buffer to read (not null, unaffected)
+     * @param nodeIndex which node (&ge;0, &lt;numNodes)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the vector (either storeResult or a new vector)
+     */
+    private Vector3f get(FloatBuffer buffer, int nodeIndex,
+            Vector3f storeResult) {
+        Validate.inRange(nodeIndex, "node index", 0, numNodes - 1);
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int start = numAxes * nodeIndex;
+        result.set(buffer.get(start), buffer.get(start + 1),
+                buffer.get(start + 2));
+
+        return result;
+    }
+}
@@ -33,6 +33,7 @@ package com.jme3.bullet.objects;
 
 import com.jme3.bounding.BoundingBox;
 import com.jme3.bullet.SoftBodyWorldInfo;
+import com.jme3.bullet.collision.Activation;
 import com.jme3.bullet.collision.PcoType;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.collision.shapes.infos.DebugMeshNormals;
@@ -106,6 +107,8 @@ public class PhysicsSoftBody extends PhysicsBody {
     final private static String tagNumClusters = "numClusters";
     final private static String tagPhysicsLocation = "physicsLocation";
     final private static String tagRestLengthScale = "restLengthScale";
+    final private static String tagSleepingDelay = "sleepingDelay";
+    final private static String tagSleepingThreshold = "sleepingThreshold";
     final private static String tagTetraIndices = "tetraIndices";
     final private static String tagWorldInfo = "worldInfo";
     // *************************************************************************
@@ -116,6 +119,34 @@ public class PhysicsSoftBody extends PhysicsBody {
      * PhysicsSoftSpace, true&rarr;world info should be preserved
      */
     private boolean isWorldInfoProtected = false;
+    /**
+     * simulation time (in seconds) for which this body's kinetic energy has
+     * remained below the sleeping threshold
+     */
+    private float idleTime = 0f;
+    /**
+     * simulation time (in seconds) the kinetic energy must remain below the
+     * threshold before this body is put to sleep
+     */
+    private float sleepingDelay = 2f;
+    /**
+     * kinetic energy per unit mass (in square psu per square second) below
+     * which this body may be put to sleep, or 0 to keep it always awake
+     */
+    private float sleepingThreshold = 0f;
+    /**
+     * count of alterations to this body's clusters or their parameters, used
+     * to invalidate cached parameters in a ClusterSnapshot
+     */
+    private int clusterModCount = 0;
+    /**
+     * reusable direct buffer for bulk node operations, allocated lazily
+     */
+    private FloatBuffer tmpNodeFloats = null;
+    /**
+     * reusable direct buffer for node masses, allocated lazily
+     */
+    private FloatBuffer tmpNodeMasses = null;
     /**
      * configuration properties of this soft body
      */
@@ -186,6 +217,54 @@ public class PhysicsSoftBody extends PhysicsBody {
         addVelocity(objectId, velocity, nodeIndex);
     }
 
+    /**
+     * Add velocity to each node of this body, using one native call to read
+     * all velocities and one to write them back. As with
+     * {@link #addVelocity(com.jme3.math.Vector3f, int)}, pinned nodes (those
+     * with zero mass) are unaffected.
+     *
+     * @param velocities the velocities to add (in physics-space coordinates,
+     * not null, 3 floats per node, unaffected)
+     */
+    public void addVelocities(FloatBuffer velocities) {
+        Validate.nonNull(velocities, "velocities");
+        int numFloats = numAxes * countNodes();
+        Validate.require(velocities.limit() == numFloats,
+                "3 floats per node");
+
+        FloatBuffer masses = tmpNodeMasses();
+        FloatBuffer buffer = tmpNodeFloats(numFloats);
+        buffer = copyVelocities(buffer);
+        for (int i = 0; i < numFloats; ++i) {
+            int nodeIndex = i / numAxes;
+            if (masses.get(nodeIndex) > 0f) {
+                float sum = buffer.get(i) + velocities.get(i);
+                buffer.put(i, sum);
+            }
+        }
+        setVelocities(buffer);
+    }
+
+    /**
+     * Append clusters to this body, which must have no clusters.
+     *
+     * @param clusterNodes the node indices of each cluster (not null, each
+     * element direct, unaffected)
+     */
+    void appendClusters(IntBuffer[] clusterNodes) {
+        assert countClusters() == 0 : countClusters();
+
+        ++clusterModCount;
+        long objectId = nativeId();
+        for (IntBuffer nodeIndices : clusterNodes) {
+            int numNodesInCluster = nodeIndices.limit();
+            appendCluster(objectId, numNodesInCluster, nodeIndices);
+        }
+        finishClusters(objectId);
+
+        assert countClusters() == clusterNodes.length : countClusters();
+    }
+
     /**
      * Append faces to this body. A Face is a triangle connecting 3 nodes.
      *
@@ -325,6 +404,33 @@ public class PhysicsSoftBody extends PhysicsBody {
         addForce(objectId, force, nodeIndex);
     }
 
+    /**
+     * Apply an impulse to each node of this body, using one native call to
+     * read all velocities, one to read all masses, and one to write the
+     * velocities back. Pinned nodes (those with zero mass) are unaffected. To
+     * apply forces over a simulation step, scale them by the step's duration.
+     *
+     * @param impulses the impulses to apply (in physics-space coordinates, not
+     * null, 3 floats per node, unaffected)
+     */
+    public void applyImpulses(FloatBuffer impulses) {
+        Validate.nonNull(impulses, "impulses");
+        int numFloats = numAxes * countNodes();
+        Validate.require(impulses.limit() == numFloats, "3 floats per node");
+
+        FloatBuffer masses = tmpNodeMasses();
+        FloatBuffer buffer = tmpNodeFloats(numFloats);
+        buffer = copyVelocities(buffer);
+        for (int i = 0; i < numFloats; ++i) {
+            float mass = masses.get(i / numAxes);
+            if (mass > 0f) {
+                float sum = buffer.get(i) + impulses.get(i) / mass;
+                buffer.put(i, sum);
+            }
+        }
+        setVelocities(buffer);
+    }
+
     /**
      * Rotate this body.
      *
@@ -755,6 +861,7 @@ public class PhysicsSoftBody extends PhysicsBody {
      * tetrahedra). Any pre-existing clusters are released.
      */
     public void generateClusters() {
+        ++clusterModCount;
         long objectId = nativeId();
         generateClusters(objectId, 0, 8_192);
     }
@@ -771,6 +878,7 @@ public class PhysicsSoftBody extends PhysicsBody {
         Validate.inRange(k, "k", 1, numNodes);
         Validate.positive(maxIterations, "maximum number of iterations");
 
+        ++clusterModCount;
         long objectId = nativeId();
         generateClusters(objectId, k, maxIterations);
     }
@@ -814,6 +922,29 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Return the time this body's kinetic energy must remain below the
+     * sleeping threshold before the body is put to sleep.
+     *
+     * @return the delay (in seconds, &ge;0)
+     */
+    public float getSleepingDelay() {
+        assert sleepingDelay >= 0f : sleepingDelay;
+        return sleepingDelay;
+    }
+
+    /**
+     * Return the kinetic energy per unit mass below which this body may be put
+     * to sleep.
+     *
+     * @return the threshold (in square psu per square second, &ge;0, 0 if
+     * sleeping is disabled)
+     */
+    public float getSleepingThreshold() {
+        assert sleepingThreshold >= 0f : sleepingThreshold;
+        return sleepingThreshold;
+    }
+
     /**
      * Access the SoftBodyConfig of this body.
      *
@@ -847,6 +978,18 @@ public class PhysicsSoftBody extends PhysicsBody {
         return worldInfo;
     }
 
+    /**
+     * Return the simulation time for which this body's kinetic energy has
+     * remained below its sleeping threshold.
+     *
+     * @return the time (in seconds, &ge;0, 0 if the body is moving or
+     * disturbed)
+     */
+    public float idleTime() {
+        assert idleTime >= 0f : idleTime;
+        return idleTime;
+    }
+
     /**
      * Test whether collisions are allowed between this body and the identified
      * collision object. Disallowed collisions may result from anchors.
@@ -890,6 +1033,31 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Calculate the total kinetic energy of this body's nodes.
+     *
+     * @return the energy (in mass units times square psu per square second,
+     * &ge;0)
+     */
+    public float kineticEnergy() {
+        int numNodes = countNodes();
+        FloatBuffer velocities = tmpNodeFloats(numAxes * numNodes);
+        velocities = copyVelocities(velocities);
+        FloatBuffer masses = tmpNodeMasses();
+
+        double sum = 0.0;
+        for (int nodeIndex = 0; nodeIndex < numNodes; ++nodeIndex) {
+            int start = numAxes * nodeIndex;
+            float vx = velocities.get(start);
+            float vy = velocities.get(start + 1);
+            float vz = velocities.get(start + 2);
+            sum += masses.get(nodeIndex) * (vx * vx + vy * vy + vz * vz);
+        }
+        float result = (float) (0.5 * sum);
+
+        return result;
+    }
+
     /**
      * List all nodes in the indexed cluster.
      *
@@ -1003,6 +1171,17 @@ public class PhysicsSoftBody extends PhysicsBody {
         return result;
     }
 
+    /**
+     * Pin the specified nodes by zeroing their masses, using one native call
+     * to read all masses and one to write them back.
+     *
+     * @param nodeIndices the indices of the nodes to pin (not null, each
+     * &ge;0 and &lt;numNodes, unaffected)
+     */
+    public void pinNodes(IntBuffer nodeIndices) {
+        setNodeMasses(nodeIndices, 0f);
+    }
+
     /**
      * Randomize constraints to reduce solver bias.
      */
@@ -1015,6 +1194,7 @@ public class PhysicsSoftBody extends PhysicsBody {
      * Release all clusters.
      */
     public void releaseAllClusters() {
+        ++clusterModCount;
         long objectId = nativeId();
         releaseClusters(objectId);
     }
@@ -1028,6 +1208,7 @@ public class PhysicsSoftBody extends PhysicsBody {
         int numClusters = countClusters();
         Validate.inRange(clusterIndex, "cluster index", 0, numClusters - 1);
 
+        ++clusterModCount;
         long objectId = nativeId();
         releaseCluster(objectId, clusterIndex);
     }
@@ -1061,6 +1242,7 @@ public class PhysicsSoftBody extends PhysicsBody {
         int numClusters = countClusters();
         Validate.inRange(clusterIndex, "cluster index", 0, numClusters - 1);
 
+        ++clusterModCount;
         long objectId = nativeId();
         switch (parameter) {
             case AngularDamping:
@@ -1233,6 +1415,31 @@ public class PhysicsSoftBody extends PhysicsBody {
         setRestLengthScale(objectId, scale);
     }
 
+    /**
+     * Alter the time this body's kinetic energy must remain below the sleeping
+     * threshold before the body is put to sleep.
+     *
+     * @param delay the desired delay (in seconds, &ge;0, default=2)
+     */
+    public void setSleepingDelay(float delay) {
+        Validate.nonNegative(delay, "delay");
+        sleepingDelay = delay;
+    }
+
+    /**
+     * Alter the kinetic energy per unit mass below which this body may be put
+     * to sleep. A sleeping body isn't simulated until it's reactivated, either
+     * explicitly or by a nearby active body in a
+     * {@link com.jme3.bullet.PhysicsSoftSpace}.
+     *
+     * @param threshold the desired threshold (in square psu per square second,
+     * &ge;0, 0&rarr;never sleep, default=0)
+     */
+    public void setSleepingThreshold(float threshold) {
+        Validate.nonNegative(threshold, "threshold");
+        sleepingThreshold = threshold;
+    }
+
     /**
      * Alter the velocities of all nodes.
      *
@@ -1315,6 +1522,90 @@ public class PhysicsSoftBody extends PhysicsBody {
         this.worldInfo = worldInfo;
     }
 
+    /**
+     * Capture the centers, velocities, masses, and parameters of all clusters
+     * in this body, using a small, fixed number of native calls.
+     *
+     * @param storeResult storage for the result (modified if not null)
+     * @return a snapshot (either storeResult or a new instance)
+     */
+    public ClusterSnapshot snapshotClusters(ClusterSnapshot storeResult) {
+        ClusterSnapshot result
+                = (storeResult == null) ? new ClusterSnapshot() : storeResult;
+        result.capture(this, clusterModCount);
+
+        return result;
+    }
+
+    /**
+     * Capture the locations, velocities, normals, and masses of all nodes in
+     * this body, using a small, fixed number of native calls.
+     *
+     * @param storeResult storage for the result (modified if not null)
+     * @return a snapshot (either storeResult or a new instance)
+     */
+    public NodeSnapshot snapshotNodes(NodeSnapshot storeResult) {
+        NodeSnapshot result
+                = (storeResult == null) ? new NodeSnapshot() : storeResult;
+        result.capture(this);
+
+        return result;
+    }
+
+    /**
+     * Unpin the specified nodes by assigning them the specified mass, using
+     * one native call to read all masses and one to write them back.
+     *
+     * @param nodeIndices the indices of the nodes to unpin (not null, each
+     * &ge;0 and &lt;numNodes, unaffected)
+     * @param mass the desired mass for each node (&gt;0)
+     */
+    public void unpinNodes(IntBuffer nodeIndices, float mass) {
+        Validate.positive(mass, "mass");
+        setNodeMasses(nodeIndices, mass);
+    }
+
+    /**
+     * Advance this body's sleep timer by one simulation step and put the body
+     * to sleep if its kinetic energy has remained below the sleeping threshold
+     * for the sleeping delay. Invoked by
+     * {@link com.jme3.bullet.PhysicsSoftSpace} before each step.
+     *
+     * @param timeStep the time per physics step (in seconds, &ge;0)
+     * @param isDisturbed true if an active body is nearby, which prevents
+     * sleep
+     * @return true if the body was put to sleep, otherwise false
+     */
+    public boolean updateSleeping(float timeStep, boolean isDisturbed) {
+        Validate.nonNegative(timeStep, "time step");
+
+        if (sleepingThreshold == 0f || !isActive()
+                || getActivationState() == Activation.exempt) {
+            return false;
+        }
+
+        float mass = getMass();
+        if (isDisturbed || mass <= 0f
+                || kineticEnergy() > sleepingThreshold * mass) {
+            idleTime = 0f;
+            return false;
+        }
+
+        idleTime += timeStep;
+        if (idleTime < sleepingDelay) {
+            return false;
+        }
+        /*
+         * Zero the node velocities, so that the body doesn't drift
+         * when it wakes up.
+         */
+        setVelocity(new Vector3f()); // TODO garbage
+        long objectId = nativeId();
+        setActivationState(objectId, Activation.sleeping);
+
+        return true;
+    }
+
     /**
      * Calculate the volume of this body.
      *
@@ -1392,6 +1683,18 @@ public class PhysicsSoftBody extends PhysicsBody {
     // *************************************************************************
     // PhysicsBody methods
 
+    /**
+     * Reactivate this body if it has been put to sleep, and restart its sleep
+     * timer.
+     *
+     * @param forceFlag true to force activation
+     */
+    @Override
+    public void activate(boolean forceFlag) {
+        idleTime = 0f;
+        super.activate(forceFlag);
+    }
+
     /**
      * Calculate the axis-aligned bounding box for this body.
      *
@@ -1425,6 +1728,8 @@ public class PhysicsSoftBody extends PhysicsBody {
     @Override
     public void cloneFields(Cloner cloner, Object original) {
         worldInfo = cloner.clone(worldInfo);
+        tmpNodeFloats = null;
+        tmpNodeMasses = null;
         newEmptySoftBody(); // needs worldInfo!
 
         super.cloneFields(cloner, original);
@@ -1655,6 +1960,8 @@ public class PhysicsSoftBody extends PhysicsBody {
         assert countClusters() == numClusters : countClusters();
 
         setRestingLengthScale(capsule.readFloat(tagRestLengthScale, 0f));
+        setSleepingDelay(capsule.readFloat(tagSleepingDelay, 2f));
+        setSleepingThreshold(capsule.readFloat(tagSleepingThreshold, 0f));
         setPhysicsLocation((Vector3f) capsule.readSavable(tagPhysicsLocation,
                 new Vector3f()));
 
@@ -1741,6 +2048,8 @@ public class PhysicsSoftBody extends PhysicsBody {
 
         capsule.write(isWorldInfoProtected, tagIsWorldInfoProtected, false);
         capsule.write(restingLengthsScale(), tagRestLengthScale, 0f);
+        capsule.write(sleepingDelay, tagSleepingDelay, 2f);
+        capsule.write(sleepingThreshold, tagSleepingThreshold, 0f);
         capsule.write(getPhysicsLocation(null), tagPhysicsLocation, null);
 
         FloatBuffer floatBuffer = copyLocations(null);
@@ -1804,6 +2113,64 @@ public class PhysicsSoftBody extends PhysicsBody {
         writeJoints(capsule);
     }
     // *************************************************************************
+    // private methods
+
+    /**
+     * Assign the specified mass to each of the specified nodes.
+     *
+     * @param nodeIndices the indices of the nodes to modify (not null, each
+     * &ge;0 and &lt;numNodes, unaffected)
+     * @param mass the desired mass for each node (&ge;0)
+     */
+    private void setNodeMasses(IntBuffer nodeIndices, float mass) {
+        Validate.nonNull(nodeIndices, "node indices");
+        int numNodes = countNodes();
+        FloatBuffer masses = tmpNodeFloats(numNodes);
+        masses = copyMasses(masses);
+
+        int numIndices = nodeIndices.limit();
+        for (int i = 0; i < numIndices; ++i) {
+            int nodeIndex = nodeIndices.get(i);
+            Validate.inRange(nodeIndex, "node index", 0, numNodes - 1);
+            masses.put(nodeIndex, mass);
+        }
+        setMasses(masses);
+    }
+
+    /**
+     * Access the reusable direct buffer, enlarging it if necessary.
+     *
+     * @param numFloats the number of floats required (&ge;0)
+     * @return the pre-existing buffer, or a new one (direct, limit=numFloats)
+     */
+    private FloatBuffer tmpNodeFloats(int numFloats) {
+        if (tmpNodeFloats == null || tmpNodeFloats.capacity() < numFloats) {
+            tmpNodeFloats = BufferUtils.createFloatBuffer(numFloats);
+        }
+        tmpNodeFloats.clear();
+        tmpNodeFloats.limit(numFloats);
+
+        return tmpNodeFloats;
+    }
+
+    /**
+     * Copy the node masses into the reusable mass buffer, enlarging it if
+     * necessary.
+     *
+     * @return the pre-existing buffer, or a new one (direct, limit=numNodes)
+     */
+    private FloatBuffer tmpNodeMasses() {
+        int numNodes = countNodes();
+        if (tmpNodeMasses == null || tmpNodeMasses.capacity() < numNodes) {
+            tmpNodeMasses = BufferUtils.createFloatBuffer(numNodes);
+        }
+        tmpNodeMasses.clear();
+        tmpNodeMasses.limit(numNodes);
+        copyMasses(tmpNodeMasses);
+
+        return tmpNodeMasses;
+    }
+    // *************************************************************************
     // native private methods
 
     native private static void addForce(long bodyId, Vector3f forceVector);
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.objects;
+
+import com.jme3.bullet.objects.infos.Cluster;
+import com.jme3.bullet.objects.infos.SoftBodyMaterial;
+import com.jme3.math.Transform;
+import com.jme3.scene.mesh.IndexBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A reusable description of a soft body, captured once from a fully-built
+ * prototype and used to spawn any number of identical bodies.
+ * <p>
+ * The node, link, face, tetrahedron, and cluster data are copied from the
+ * prototype into direct buffers when the template is created. Each spawn
+ * appends those buffers and copies the prototype's configuration, material,
+ * and collision properties, so costly steps such as
+ * {@link PhysicsSoftBody#generateClusters()} and
+ * {@link PhysicsSoftBody#generateBendingConstraints(int, com.jme3.bullet.objects.infos.SoftBodyMaterial)}
+ * are never repeated.
+ * <p>
+ * The prototype is retained (as the source of configuration values) and
+ * shouldn't be modified or added to a PhysicsSpace. World info isn't copied:
+ * a spawned body receives the world info of the PhysicsSoftSpace to which
+ * it's added.
+ * <p>
+ * Limitation: the native library appends links only with a body's default
+ * material, so every spawned link uses the (copied) material of the
+ * prototype. Links created by
+ * {@link PhysicsSoftBody#generateBendingConstraints(int, com.jme3.bullet.objects.infos.SoftBodyMaterial)}
+ * with a different material lose that material when spawned. For bending
+ * constraints with their own stiffness, invoke generateBendingConstraints()
+ * on each spawned body instead.
+ */
+public class SoftBodyTemplate {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SoftBodyTemplate.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * parameter values of each cluster, indexed by cluster and then by
+     * {@link Cluster#ordinal()}
+     */
+    final private float[][] clusterParameters;
+    /**
+     * locations of all nodes (in physics-space coordinates)
+     */
+    final private FloatBuffer locations;
+    /**
+     * masses of all nodes
+     */
+    final private FloatBuffer masses;
+    /**
+     * normals of all nodes (in physics-space coordinates)
+     */
+    final private FloatBuffer normals;
+    /**
+     * node indices of all faces, 3 per face
+     */
+    final private IndexBuffer faces;
+    /**
+     * node indices of all links, 2 per link
+     */
+    final private IndexBuffer links;
+    /**
+     * node indices of all tetrahedra, 4 per tetrahedron
+     */
+    final private IndexBuffer tetras;
+    /**
+     * node indices of each cluster
+     */
+    final private IntBuffer[] clusterNodes;
+    /**
+     * body from which the template was captured (not null)
+     */
+    final private PhysicsSoftBody prototype;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Capture a template from the specified prototype.
+     *
+     * @param prototype the fully-built body to replicate (not null, not empty,
+     * alias created)
+     */
+    public SoftBodyTemplate(PhysicsSoftBody prototype) {
+        Validate.nonNull(prototype, "prototype");
+        Validate.require(!prototype.isEmpty(), "a non-empty prototype");
+
+        this.prototype = prototype;
+        locations = prototype.copyLocations(null);
+        masses = prototype.copyMasses(null);
+        normals = prototype.copyNormals(null);
+        faces = IndexBuffer.wrapIndexBuffer(prototype.copyFaces(null));
+        links = IndexBuffer.wrapIndexBuffer(prototype.copyLinks(null));
+        tetras = IndexBuffer.wrapIndexBuffer(prototype.copyTetras(null));
+
+        int numClusters = prototype.countClusters();
+        Cluster[] parameters = Cluster.values();
+        clusterNodes = new IntBuffer[numClusters];
+        clusterParameters = new float[numClusters][parameters.length];
+        for (int clusterIndex = 0; clusterIndex < numClusters; ++clusterIndex) {
+            clusterNodes[clusterIndex]
+                    = prototype.listNodesInCluster(clusterIndex, null);
+            for (Cluster parameter : parameters) {
+                float value = prototype.get(parameter, clusterIndex);
+                clusterParameters[clusterIndex][parameter.ordinal()] = value;
+            }
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the clusters in each spawned body.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countClusters() {
+        int result = clusterNodes.length;
+        return result;
+    }
+
+    /**
+     * Count the nodes in each spawned body.
+     *
+     * @return the count (&gt;0)
+     */
+    public int countNodes() {
+        int result = locations.limit() / numAxes;
+        return result;
+    }
+
+    /**
+     * Access the prototype from which this template was captured.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSoftBody getPrototype() {
+        assert prototype != null;
+        return prototype;
+    }
+
+    /**
+     * Spawn a new body at the prototype's location. The new body is not added
+     * to any PhysicsSpace.
+     *
+     * @return a new body (not null)
+     */
+    public PhysicsSoftBody newInstance() {
+        PhysicsSoftBody result = new PhysicsSoftBody();
+
+        result.appendNodes(locations);
+        result.setMasses(masses);
+        result.setNormals(normals);
+        result.appendFaces(faces);
+        result.appendLinks(links);
+        result.appendTetras(tetras);
+
+        result.appendClusters(clusterNodes);
+        Cluster[] parameters = Cluster.values();
+        int numClusters = clusterNodes.length;
+        for (int clusterIndex = 0; clusterIndex < numClusters; ++clusterIndex) {
+            for (Cluster parameter : parameters) {
+                float value
+                        = clusterParameters[clusterIndex][parameter.ordinal()];
+                result.set(parameter, clusterIndex, value);
+            }
+        }
+
+        result.getSoftConfig().copyAll(prototype.getSoftConfig());
+        SoftBodyMaterial fromMaterial = prototype.getSoftMaterial();
+        SoftBodyMaterial toMaterial = result.getSoftMaterial();
+        toMaterial.setAngularStiffness(fromMaterial.angularStiffness());
+        toMaterial.setLinearStiffness(fromMaterial.linearStiffness());
+        toMaterial.setVolumeStiffness(fromMaterial.volumeStiffness());
+
+        result.copyPcoProperties(prototype);
+        result.setCollideWithGroups(prototype.getCollideWithGroups());
+        result.setCollisionGroup(prototype.getCollisionGroup());
+        result.setMargin(prototype.margin());
+        result.setProtectWorldInfo(prototype.isWorldInfoProtected());
+        result.setRestingLengthScale(prototype.restingLengthsScale());
+        result.setSleepingDelay(prototype.getSleepingDelay());
+        result.setSleepingThreshold(prototype.getSleepingThreshold());
+
+        return result;
+    }
+
+    /**
+     * Spawn a new body and transform it. The new body is not added to any
+     * PhysicsSpace.
+     *
+     * @param transform the transform to apply to the prototype's nodes (not
+     * null, unaffected)
+     * @return a new body (not null)
+     */
+    public PhysicsSoftBody newInstance(Transform transform) {
+        Validate.nonNull(transform, "transform");
+
+        PhysicsSoftBody result = newInstance();
+        result.applyTransform(transform);
+
+        return result;
+    }
+}
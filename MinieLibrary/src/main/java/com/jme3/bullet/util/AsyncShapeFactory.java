@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.HullCollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import vhacd.VHACDParameters;
+
+/**
+ * Build collision shapes asynchronously, so that expensive shapes (hulls,
+ * meshes with a BVH, and V-HACD decompositions) don't block the calling
+ * thread, which is typically the render thread.
+ * <p>
+ * Scene-graph models are merged on the calling thread, since the scene graph
+ * isn't thread-safe. Only the shape construction runs on the executor.
+ */
+public class AsyncShapeFactory {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(AsyncShapeFactory.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * executor for building shapes
+     */
+    final private Executor executor;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a factory that builds shapes using the specified executor.
+     *
+     * @param executor the executor to use (not null, alias created)
+     */
+    public AsyncShapeFactory(Executor executor) {
+        Validate.nonNull(executor, "executor");
+        this.executor = executor;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Once the specified shape is built, replace the shape of the specified
+     * collision object during the next physics tick of the specified space.
+     *
+     * @param future the future shape (not null)
+     * @param pco the collision object to modify (not null, alias created)
+     * @param space the space containing the object (not null, alias created)
+     * @return a new future that completes after the shape is replaced, or
+     * completes exceptionally if the shape couldn't be built or attached
+     */
+    public static CompletableFuture<Void> attachWhenReady(
+            CompletableFuture<? extends CollisionShape> future,
+            final PhysicsCollisionObject pco, final PhysicsSpace space) {
+        Validate.nonNull(future, "future");
+        Validate.nonNull(pco, "collision object");
+        Validate.nonNull(space, "space");
+
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        future.whenComplete(new BiConsumer<CollisionShape, Throwable>() {
+            @Override
+            public void accept(final CollisionShape shape, Throwable failure) {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                    return;
+                }
+                space.enqueue(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        try {
+                            pco.setCollisionShape(shape);
+                            result.complete(null);
+                        } catch (RuntimeException exception) {
+                            result.completeExceptionally(exception);
+                        }
+                        return null;
+                    }
+                });
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Build a convex hull shape from the specified meshes.
+     *
+     * @param meshes the meshes to use (not null, unaffected until the shape is
+     * built)
+     * @return a new future shape
+     */
+    public CompletableFuture<HullCollisionShape> createHullShape(
+            final Mesh... meshes) {
+        Validate.nonNull(meshes, "meshes");
+
+        CompletableFuture<HullCollisionShape> result = submit(
+                new Supplier<HullCollisionShape>() {
+            @Override
+            public HullCollisionShape get() {
+                return new HullCollisionShape(meshes);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Build a hull shape for the specified model. See
+     * {@link CollisionShapeFactory#createMergedHullShape(com.jme3.scene.Spatial)}.
+     *
+     * @param modelRoot the model on which to base the shape (not null,
+     * unaffected)
+     * @return a new future shape
+     */
+    public CompletableFuture<HullCollisionShape> createMergedHullShape(
+            Spatial modelRoot) {
+        Validate.nonNull(modelRoot, "model root");
+
+        Mesh mergedMesh = CollisionShapeFactory.makeMergedMesh(modelRoot);
+        CompletableFuture<HullCollisionShape> result
+                = createHullShape(mergedMesh);
+
+        return result;
+    }
+
+    /**
+     * Build a mesh-accurate shape (with a BVH) for the specified model. See
+     * {@link CollisionShapeFactory#createMergedMeshShape(com.jme3.scene.Spatial)}.
+     *
+     * @param modelRoot the model on which to base the shape (not null,
+     * unaffected)
+     * @return a new future shape
+     */
+    public CompletableFuture<MeshCollisionShape> createMergedMeshShape(
+            Spatial modelRoot) {
+        Validate.nonNull(modelRoot, "model root");
+
+        Mesh mergedMesh = CollisionShapeFactory.makeMergedMesh(modelRoot);
+        boolean useCompression = true;
+        CompletableFuture<MeshCollisionShape> result
+                = createMeshShape(useCompression, mergedMesh);
+
+        return result;
+    }
+
+    /**
+     * Build a mesh-accurate shape (with a BVH) from the specified meshes.
+     *
+     * @param useCompression true to use quantized AABB compression
+     * @param meshes the meshes to use (not null, unaffected until the shape is
+     * built)
+     * @return a new future shape
+     */
+    public CompletableFuture<MeshCollisionShape> createMeshShape(
+            final boolean useCompression, final Mesh... meshes) {
+        Validate.nonNull(meshes, "meshes");
+
+        CompletableFuture<MeshCollisionShape> result = submit(
+                new Supplier<MeshCollisionShape>() {
+            @Override
+            public MeshCollisionShape get() {
+                int numMeshes = meshes.length;
+                IndexedMesh[] submeshes = new IndexedMesh[numMeshes];
+                for (int i = 0; i < numMeshes; ++i) {
+                    submeshes[i] = new IndexedMesh(meshes[i]);
+                }
+                return new MeshCollisionShape(useCompression, submeshes);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Decompose the specified model using the V-HACD library. See
+     * {@link CollisionShapeFactory#createVhacdShape(com.jme3.scene.Spatial, vhacd.VHACDParameters, com.jme3.bullet.collision.shapes.CompoundCollisionShape)}.
+     *
+     * @param modelRoot the model on which to base the shape (not null,
+     * unaffected)
+     * @param parameters (not null, unaffected)
+     * @return a new future shape
+     */
+    public CompletableFuture<CompoundCollisionShape> createVhacdShape(
+            Spatial modelRoot, VHACDParameters parameters) {
+        Validate.nonNull(modelRoot, "model root");
+        Validate.nonNull(parameters, "parameters");
+
+        final Mesh mergedMesh = CollisionShapeFactory.makeMergedMesh(modelRoot);
+        final VHACDParameters params = parameters.clone();
+        CompletableFuture<CompoundCollisionShape> result = submit(
+                new Supplier<CompoundCollisionShape>() {
+            @Override
+            public CompoundCollisionShape get() {
+                return CollisionShapeFactory.createVhacdShape(mergedMesh,
+                        params, null);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Access the executor used to build shapes.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Build a shape using the specified supplier, for instance one that
+     * invokes a shape constructor.
+     *
+     * @param <T> the type of shape
+     * @param builder the supplier to invoke (not null)
+     * @return a new future shape
+     */
+    public <T extends CollisionShape> CompletableFuture<T> submit(
+            Supplier<T> builder) {
+        Validate.nonNull(builder, "builder");
+
+        CompletableFuture<T> result
+                = CompletableFuture.supplyAsync(builder, executor);
+        return result;
+    }
+}
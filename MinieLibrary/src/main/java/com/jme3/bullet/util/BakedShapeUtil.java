@@ -0,0 +1,925 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.GImpactCollisionShape;
+import com.jme3.bullet.collision.shapes.HullCollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.ChildCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.CompoundMesh;
+import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.system.JmeSystem;
+import com.jme3.util.BufferUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Utility methods to save and load collision shapes in a compact, versioned,
+ * binary ("baked") format. Unlike J3O, a baked file can be memory-mapped, in
+ * which case vertex positions and indices are handed to Bullet straight from
+ * the mapped file, without intermediate arrays or copies.
+ * <p>
+ * Supported shapes are CompoundCollisionShape, GImpactCollisionShape,
+ * HullCollisionShape, and MeshCollisionShape. IndexedMesh and CompoundMesh can
+ * also be baked on their own. Shapes and submeshes that are shared within a
+ * file are saved only once. The BVH of a MeshCollisionShape is saved along
+ * with the platform that generated it; on any other platform it gets
+ * re-generated.
+ * <p>
+ * All values are little-endian, and each data section starts on a 4-byte
+ * boundary.
+ */
+public class BakedShapeUtil {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes in a float
+     */
+    final private static int floatBytes = 4;
+    /**
+     * number of bytes in an int
+     */
+    final private static int intBytes = 4;
+    /**
+     * record kinds
+     */
+    final private static int kindReference = 0;
+    final private static int kindIndexedMesh = 1;
+    final private static int kindCompoundMesh = 2;
+    final private static int kindHull = 3;
+    final private static int kindMesh = 4;
+    final private static int kindGImpact = 5;
+    final private static int kindCompound = 6;
+    /**
+     * flags for MeshCollisionShape records
+     */
+    final private static int flagCompressed = 0x1;
+    final private static int flagHasBvh = 0x2;
+    /**
+     * identifies a baked file: the bytes "MBPS" in little-endian order
+     */
+    final private static int magic = 0x5350424D;
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * number of vertices per triangle
+     */
+    final private static int vpt = 3;
+    /**
+     * version of the format written by this class
+     */
+    final public static int formatVersion = 1;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(BakedShapeUtil.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private BakedShapeUtil() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Load a CompoundMesh from baked data.
+     *
+     * @param data the baked data, starting at the buffer's current position
+     * (not null, alias created if direct)
+     * @return a new mesh
+     * @throws IOException if the data are invalid
+     */
+    public static CompoundMesh loadCompoundMesh(ByteBuffer data)
+            throws IOException {
+        Object result = load(data, kindCompoundMesh);
+        return (CompoundMesh) result;
+    }
+
+    /**
+     * Memory-map the specified baked file and load a CompoundMesh from it.
+     *
+     * @param file the file to read (not null)
+     * @return a new mesh
+     * @throws IOException if the file cannot be read or is invalid
+     */
+    public static CompoundMesh loadCompoundMesh(File file) throws IOException {
+        ByteBuffer data = mapFile(file);
+        CompoundMesh result = loadCompoundMesh(data);
+
+        return result;
+    }
+
+    /**
+     * Load an IndexedMesh from baked data.
+     *
+     * @param data the baked data, starting at the buffer's current position
+     * (not null, alias created if direct)
+     * @return a new mesh
+     * @throws IOException if the data are invalid
+     */
+    public static IndexedMesh loadIndexedMesh(ByteBuffer data)
+            throws IOException {
+        Object result = load(data, kindIndexedMesh);
+        return (IndexedMesh) result;
+    }
+
+    /**
+     * Memory-map the specified baked file and load an IndexedMesh from it.
+     *
+     * @param file the file to read (not null)
+     * @return a new mesh
+     * @throws IOException if the file cannot be read or is invalid
+     */
+    public static IndexedMesh loadIndexedMesh(File file) throws IOException {
+        ByteBuffer data = mapFile(file);
+        IndexedMesh result = loadIndexedMesh(data);
+
+        return result;
+    }
+
+    /**
+     * Load a CollisionShape from baked data. If the data are in a direct
+     * buffer with native (little-endian) byte order, mesh data are passed to
+     * Bullet without being copied.
+     *
+     * @param data the baked data, starting at the buffer's current position
+     * (not null, alias created if direct)
+     * @return a new shape
+     * @throws IOException if the data are invalid
+     */
+    public static CollisionShape loadShape(ByteBuffer data)
+            throws IOException {
+        Object result = load(data, -1);
+        if (!(result instanceof CollisionShape)) {
+            throw new IOException("The data don't contain a collision shape.");
+        }
+
+        return (CollisionShape) result;
+    }
+
+    /**
+     * Memory-map the specified baked file and load a CollisionShape from it.
+     * Mesh data remain in the (read-only) mapped file.
+     *
+     * @param file the file to read (not null)
+     * @return a new shape
+     * @throws IOException if the file cannot be read or is invalid
+     */
+    public static CollisionShape loadShape(File file) throws IOException {
+        ByteBuffer data = mapFile(file);
+        CollisionShape result = loadShape(data);
+
+        return result;
+    }
+
+    /**
+     * Memory-map the specified file, read-only.
+     *
+     * @param file the file to map (not null)
+     * @return a new direct buffer
+     * @throws IOException if the file cannot be mapped
+     */
+    public static MappedByteBuffer mapFile(File file) throws IOException {
+        Validate.nonNull(file, "file");
+
+        MappedByteBuffer result;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            result = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        }
+
+        return result;
+    }
+
+    /**
+     * Bake the specified CollisionShape to a file.
+     *
+     * @param shape the shape to bake (not null, unaffected)
+     * @param file the destination file (not null)
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the shape (or a child) has an
+     * unsupported type
+     */
+    public static void save(CollisionShape shape, File file)
+            throws IOException {
+        Validate.nonNull(shape, "shape");
+        save((Object) shape, file);
+    }
+
+    /**
+     * Bake the specified CompoundMesh to a file.
+     *
+     * @param mesh the mesh to bake (not null, unaffected)
+     * @param file the destination file (not null)
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(CompoundMesh mesh, File file) throws IOException {
+        Validate.nonNull(mesh, "mesh");
+        save((Object) mesh, file);
+    }
+
+    /**
+     * Bake the specified IndexedMesh to a file.
+     *
+     * @param mesh the mesh to bake (not null, unaffected)
+     * @param file the destination file (not null)
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(IndexedMesh mesh, File file) throws IOException {
+        Validate.nonNull(mesh, "mesh");
+        save((Object) mesh, file);
+    }
+
+    /**
+     * Bake the specified CollisionShape to a new byte array.
+     *
+     * @param shape the shape to bake (not null, unaffected)
+     * @return a new array
+     * @throws IllegalArgumentException if the shape (or a child) has an
+     * unsupported type
+     */
+    public static byte[] toBytes(CollisionShape shape) {
+        Validate.nonNull(shape, "shape");
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(4_096);
+        writeHeader(stream);
+        Map<Object, Integer> table = new IdentityHashMap<>(16);
+        writeRecord(stream, shape, table);
+        byte[] result = stream.toByteArray();
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Pass 4-byte-aligned data to Bullet: create a new IndexedMesh.
+     *
+     * @param data the baked data (not null, position advanced)
+     * @return a new mesh
+     */
+    private static IndexedMesh createIndexedMesh(ByteBuffer data)
+            throws IOException {
+        int numVertices = data.getInt();
+        int numTriangles = data.getInt();
+        int indexBytes = data.getInt();
+        if (numVertices < 0 || numTriangles < 0) {
+            throw new IOException("Invalid mesh size.");
+        }
+
+        int numFloats = numAxes * numVertices;
+        FloatBuffer positions = readFloats(data, numFloats);
+
+        int numIndices = vpt * numTriangles;
+        int numBytes = indexBytes * numIndices;
+        ByteBuffer slice = slice(data, numBytes);
+        boolean copy = !slice.isDirect()
+                || ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN;
+        Buffer indexData;
+        switch (indexBytes) {
+            case 1:
+                if (copy) {
+                    ByteBuffer bytes = BufferUtils.createByteBuffer(numIndices);
+                    bytes.put(slice);
+                    indexData = bytes;
+                } else {
+                    indexData = slice;
+                }
+                break;
+
+            case 2:
+                if (copy) {
+                    ShortBuffer shorts
+                            = BufferUtils.createShortBuffer(numIndices);
+                    shorts.put(slice.asShortBuffer());
+                    indexData = shorts;
+                } else {
+                    indexData = slice.asShortBuffer();
+                }
+                break;
+
+            case 4:
+                if (copy) {
+                    IntBuffer ints = BufferUtils.createIntBuffer(numIndices);
+                    ints.put(slice.asIntBuffer());
+                    indexData = ints;
+                } else {
+                    indexData = slice.asIntBuffer();
+                }
+                break;
+
+            default:
+                throw new IOException("indexBytes = " + indexBytes);
+        }
+        indexData.clear();
+        IndexBuffer indices = IndexBuffer.wrapIndexBuffer(indexData);
+
+        IndexedMesh result = new IndexedMesh(positions, indices);
+        return result;
+    }
+
+    /**
+     * Read the header and root record from baked data.
+     *
+     * @param data the baked data (not null)
+     * @param expectedKind the kind of record expected, or -1 for any shape
+     * @return a new object
+     */
+    private static Object load(ByteBuffer data, int expectedKind)
+            throws IOException {
+        Validate.nonNull(data, "data");
+
+        ByteBuffer buffer = data.slice();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        Object result;
+        try {
+            int fileMagic = buffer.getInt();
+            if (fileMagic != magic) {
+                throw new IOException("Not a baked physics file.");
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > formatVersion) {
+                throw new IOException("Unsupported version: " + version);
+            }
+
+            int rootKind = buffer.getInt(buffer.position());
+            if (expectedKind >= 0 && rootKind != expectedKind) {
+                throw new IOException("Unexpected record kind: " + rootKind);
+            }
+            List<Object> table = new ArrayList<>(16);
+            result = readRecord(buffer, table);
+
+        } catch (BufferUnderflowException exception) {
+            throw new IOException("Truncated baked data.", exception);
+        }
+
+        return result;
+    }
+
+    /**
+     * Read a run of floats, avoiding a copy if possible.
+     *
+     * @param data the baked data (not null, position advanced)
+     * @param numFloats the number of floats to read (&ge;0)
+     * @return a direct buffer (possibly a view of data)
+     */
+    private static FloatBuffer readFloats(ByteBuffer data, int numFloats) {
+        ByteBuffer slice = slice(data, floatBytes * numFloats);
+
+        FloatBuffer result;
+        if (slice.isDirect()
+                && ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+            result = slice.asFloatBuffer();
+        } else {
+            result = BufferUtils.createFloatBuffer(numFloats);
+            result.put(slice.asFloatBuffer());
+            result.clear();
+        }
+
+        return result;
+    }
+
+    /**
+     * Read a record.
+     *
+     * @param data the baked data (not null, position advanced)
+     * @param table objects read so far (not null, added to)
+     * @return a new or previously read object (not null)
+     */
+    private static Object readRecord(ByteBuffer data, List<Object> table)
+            throws IOException {
+        int kind = data.getInt();
+        if (kind == kindReference) {
+            int index = data.getInt();
+            if (index < 0 || index >= table.size()) {
+                throw new IOException("Invalid reference: " + index);
+            }
+            Object result = table.get(index);
+            return result;
+        }
+
+        if (kind == kindIndexedMesh) {
+            IndexedMesh result = createIndexedMesh(data);
+            table.add(result);
+            return result;
+        }
+
+        if (kind == kindCompoundMesh) {
+            Vector3f scale = readVector(data, null);
+            IndexedMesh[] submeshes = readSubmeshes(data, table);
+            CompoundMesh result = new CompoundMesh();
+            for (IndexedMesh submesh : submeshes) {
+                result.add(submesh);
+            }
+            result.setScale(scale);
+            table.add(result);
+            return result;
+        }
+
+        float margin = data.getFloat();
+        Vector3f scale = readVector(data, null);
+        CollisionShape result;
+        switch (kind) {
+            case kindCompound:
+                int numChildren = data.getInt();
+                if (numChildren < 0) {
+                    throw new IOException("numChildren = " + numChildren);
+                }
+                int capacity = Math.max(numChildren, 1);
+                CompoundCollisionShape compound
+                        = new CompoundCollisionShape(capacity);
+                Vector3f offset = new Vector3f();
+                Matrix3f rotation = new Matrix3f();
+                for (int childI = 0; childI < numChildren; ++childI) {
+                    readVector(data, offset);
+                    for (int row = 0; row < numAxes; ++row) {
+                        for (int column = 0; column < numAxes; ++column) {
+                            float element = data.getFloat();
+                            rotation.set(row, column, element);
+                        }
+                    }
+                    Object child = readRecord(data, table);
+                    if (!(child instanceof CollisionShape)) {
+                        throw new IOException("Invalid child record.");
+                    }
+                    compound.addChildShape((CollisionShape) child, offset,
+                            rotation);
+                }
+                result = compound;
+                break;
+
+            case kindGImpact:
+                IndexedMesh[] gSubmeshes = readSubmeshes(data, table);
+                result = new GImpactCollisionShape(gSubmeshes);
+                break;
+
+            case kindHull:
+                int numFloats = data.getInt();
+                if (numFloats <= 0 || numFloats % numAxes != 0) {
+                    throw new IOException("numFloats = " + numFloats);
+                }
+                FloatBuffer points = readFloats(data, numFloats);
+                result = new HullCollisionShape(points);
+                break;
+
+            case kindMesh:
+                int flags = data.getInt();
+                boolean compressed = (flags & flagCompressed) != 0x0;
+                IndexedMesh[] mSubmeshes = readSubmeshes(data, table);
+                byte[] bvhBytes = null;
+                if ((flags & flagHasBvh) != 0x0) {
+                    String platformName = readString(data);
+                    int bvhLength = data.getInt();
+                    byte[] bytes = new byte[bvhLength];
+                    slice(data, bvhLength).get(bytes);
+                    String nativePlatform = JmeSystem.getPlatform().name();
+                    if (platformName.equals(nativePlatform)) {
+                        bvhBytes = bytes;
+                    } // else re-generate the BVH for this platform
+                }
+                if (bvhBytes == null) {
+                    result = new MeshCollisionShape(compressed, mSubmeshes);
+                } else {
+                    result = new MeshCollisionShape(
+                            bvhBytes, compressed, mSubmeshes);
+                }
+                break;
+
+            default:
+                throw new IOException("Unknown record kind: " + kind);
+        }
+
+        result.setScale(scale);
+        result.setMargin(margin);
+        table.add(result);
+
+        return result;
+    }
+
+    /**
+     * Read a UTF-8 string.
+     *
+     * @param data the baked data (not null, position advanced)
+     * @return a new String
+     */
+    private static String readString(ByteBuffer data) {
+        int numBytes = data.getInt();
+        byte[] bytes = new byte[numBytes];
+        slice(data, numBytes).get(bytes);
+        String result = new String(bytes, StandardCharsets.UTF_8);
+
+        return result;
+    }
+
+    /**
+     * Read a list of submesh records.
+     *
+     * @param data the baked data (not null, position advanced)
+     * @param table objects read so far (not null, added to)
+     * @return a new array of meshes
+     */
+    private static IndexedMesh[] readSubmeshes(ByteBuffer data,
+            List<Object> table) throws IOException {
+        int numSubmeshes = data.getInt();
+        if (numSubmeshes < 0) {
+            throw new IOException("numSubmeshes = " + numSubmeshes);
+        }
+
+        IndexedMesh[] result = new IndexedMesh[numSubmeshes];
+        for (int i = 0; i < numSubmeshes; ++i) {
+            Object record = readRecord(data, table);
+            if (!(record instanceof IndexedMesh)) {
+                throw new IOException("Invalid submesh record.");
+            }
+            result[i] = (IndexedMesh) record;
+        }
+
+        return result;
+    }
+
+    /**
+     * Read a vector.
+     *
+     * @param data the baked data (not null, position advanced)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the vector (either storeResult or a new instance)
+     */
+    private static Vector3f readVector(ByteBuffer data, Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        result.x = data.getFloat();
+        result.y = data.getFloat();
+        result.z = data.getFloat();
+
+        return result;
+    }
+
+    /**
+     * Bake the specified object to a file.
+     *
+     * @param object the object to bake (not null, unaffected)
+     * @param file the destination file (not null)
+     */
+    private static void save(Object object, File file) throws IOException {
+        Validate.nonNull(file, "file");
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(4_096);
+        writeHeader(stream);
+        Map<Object, Integer> table = new IdentityHashMap<>(16);
+        writeRecord(stream, object, table);
+
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            stream.writeTo(fos);
+        }
+    }
+
+    /**
+     * Slice the specified number of bytes from the data, then skip past them
+     * and any padding.
+     *
+     * @param data the baked data (not null, position advanced)
+     * @param numBytes the number of bytes to slice (&ge;0)
+     * @return a new little-endian buffer (direct if data is direct)
+     */
+    private static ByteBuffer slice(ByteBuffer data, int numBytes) {
+        if (numBytes < 0 || numBytes > data.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        ByteBuffer result = data.slice();
+        result.limit(numBytes);
+        result.order(ByteOrder.LITTLE_ENDIAN);
+
+        int padded = (numBytes + 3) & ~3;
+        int newPosition = Math.min(data.position() + padded, data.limit());
+        data.position(newPosition);
+
+        return result;
+    }
+
+    /**
+     * Write the specified floats, followed by padding.
+     *
+     * @param stream where to write (not null)
+     * @param floats the floats to write (not null, unaffected)
+     */
+    private static void writeFloats(ByteArrayOutputStream stream,
+            FloatBuffer floats) {
+        FloatBuffer source = floats.duplicate();
+        source.clear();
+
+        int numBytes = floatBytes * source.capacity();
+        ByteBuffer bytes = ByteBuffer.allocate(numBytes);
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asFloatBuffer().put(source);
+        stream.write(bytes.array(), 0, numBytes);
+    }
+
+    /**
+     * Write a file header.
+     *
+     * @param stream where to write (not null)
+     */
+    private static void writeHeader(ByteArrayOutputStream stream) {
+        writeInt(stream, magic);
+        writeInt(stream, formatVersion);
+    }
+
+    /**
+     * Write the specified IndexedMesh, without its kind.
+     *
+     * @param stream where to write (not null)
+     * @param mesh the mesh to write (not null, unaffected)
+     */
+    private static void writeIndexedMesh(ByteArrayOutputStream stream,
+            IndexedMesh mesh) {
+        int numVertices = mesh.countVertices();
+        int numTriangles = mesh.countTriangles();
+        int indexBytes;
+        if (numVertices <= 256) {
+            indexBytes = 1;
+        } else if (numVertices <= 65_536) {
+            indexBytes = 2;
+        } else {
+            indexBytes = 4;
+        }
+        writeInt(stream, numVertices);
+        writeInt(stream, numTriangles);
+        writeInt(stream, indexBytes);
+
+        FloatBuffer positions = mesh.copyVertexPositions();
+        writeFloats(stream, positions);
+
+        IntBuffer indices = mesh.copyIndices();
+        int numIndices = vpt * numTriangles;
+        ByteBuffer bytes = ByteBuffer.allocate(indexBytes * numIndices);
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < numIndices; ++i) {
+            int index = indices.get(i);
+            switch (indexBytes) {
+                case 1:
+                    bytes.put((byte) index);
+                    break;
+                case 2:
+                    bytes.putShort((short) index);
+                    break;
+                default:
+                    bytes.putInt(index);
+            }
+        }
+        stream.write(bytes.array(), 0, bytes.capacity());
+        writePadding(stream);
+    }
+
+    /**
+     * Write a little-endian int.
+     *
+     * @param stream where to write (not null)
+     * @param value the value to write
+     */
+    private static void writeInt(ByteArrayOutputStream stream, int value) {
+        stream.write(value);
+        stream.write(value >> 8);
+        stream.write(value >> 16);
+        stream.write(value >> 24);
+    }
+
+    /**
+     * Write a little-endian float.
+     *
+     * @param stream where to write (not null)
+     * @param value the value to write
+     */
+    private static void writeFloat(ByteArrayOutputStream stream, float value) {
+        int bits = Float.floatToIntBits(value);
+        writeInt(stream, bits);
+    }
+
+    /**
+     * Pad the stream to a 4-byte boundary.
+     *
+     * @param stream where to write (not null)
+     */
+    private static void writePadding(ByteArrayOutputStream stream) {
+        while (stream.size() % intBytes != 0) {
+            stream.write(0);
+        }
+    }
+
+    /**
+     * Write a record for the specified object. If the object was written
+     * previously, write a reference instead.
+     *
+     * @param stream where to write (not null)
+     * @param object the object to write (not null, unaffected)
+     * @param table objects written so far (not null, added to)
+     */
+    private static void writeRecord(ByteArrayOutputStream stream,
+            Object object, Map<Object, Integer> table) {
+        Integer index = table.get(object);
+        if (index != null) {
+            writeInt(stream, kindReference);
+            writeInt(stream, index);
+            return;
+        }
+
+        if (object instanceof IndexedMesh) {
+            writeInt(stream, kindIndexedMesh);
+            writeIndexedMesh(stream, (IndexedMesh) object);
+
+        } else if (object instanceof CompoundMesh) {
+            CompoundMesh mesh = (CompoundMesh) object;
+            writeInt(stream, kindCompoundMesh);
+            writeVector(stream, mesh.getScale(null));
+            int numSubmeshes = mesh.countSubmeshes();
+            writeInt(stream, numSubmeshes);
+            for (int i = 0; i < numSubmeshes; ++i) {
+                writeRecord(stream, mesh.getSubmesh(i), table);
+            }
+
+        } else {
+            writeShape(stream, (CollisionShape) object, table);
+        }
+
+        int newIndex = table.size();
+        table.put(object, newIndex);
+    }
+
+    /**
+     * Write the specified CollisionShape (but not its table entry).
+     *
+     * @param stream where to write (not null)
+     * @param shape the shape to write (not null, unaffected)
+     * @param table objects written so far (not null, added to)
+     */
+    private static void writeShape(ByteArrayOutputStream stream,
+            CollisionShape shape, Map<Object, Integer> table) {
+        int kind;
+        if (shape instanceof CompoundCollisionShape) {
+            kind = kindCompound;
+        } else if (shape instanceof GImpactCollisionShape) {
+            kind = kindGImpact;
+        } else if (shape instanceof HullCollisionShape) {
+            kind = kindHull;
+        } else if (shape instanceof MeshCollisionShape) {
+            kind = kindMesh;
+        } else {
+            String typeName = shape.getClass().getSimpleName();
+            throw new IllegalArgumentException("Can't bake a " + typeName);
+        }
+        writeInt(stream, kind);
+        writeFloat(stream, shape.getMargin());
+        writeVector(stream, shape.getScale(null));
+
+        switch (kind) {
+            case kindCompound:
+                CompoundCollisionShape compound
+                        = (CompoundCollisionShape) shape;
+                ChildCollisionShape[] children = compound.listChildren();
+                writeInt(stream, children.length);
+                Vector3f offset = new Vector3f();
+                Matrix3f rotation = new Matrix3f();
+                for (ChildCollisionShape child : children) {
+                    child.copyOffset(offset);
+                    writeVector(stream, offset);
+                    child.copyRotationMatrix(rotation);
+                    for (int row = 0; row < numAxes; ++row) {
+                        for (int column = 0; column < numAxes; ++column) {
+                            writeFloat(stream, rotation.get(row, column));
+                        }
+                    }
+                    writeRecord(stream, child.getShape(), table);
+                }
+                break;
+
+            case kindGImpact:
+                GImpactCollisionShape gimpact = (GImpactCollisionShape) shape;
+                int numGSubmeshes = gimpact.countSubmeshes();
+                writeInt(stream, numGSubmeshes);
+                for (int i = 0; i < numGSubmeshes; ++i) {
+                    writeRecord(stream, gimpact.getSubmesh(i), table);
+                }
+                break;
+
+            case kindHull:
+                HullCollisionShape hull = (HullCollisionShape) shape;
+                float[] vertices = hull.copyHullVertices();
+                writeInt(stream, vertices.length);
+                writeFloats(stream, FloatBuffer.wrap(vertices));
+                break;
+
+            case kindMesh:
+                MeshCollisionShape mesh = (MeshCollisionShape) shape;
+                int flags = flagHasBvh;
+                if (mesh.isCompressed()) {
+                    flags |= flagCompressed;
+                }
+                writeInt(stream, flags);
+                int numSubmeshes = mesh.countSubmeshes();
+                writeInt(stream, numSubmeshes);
+                for (int i = 0; i < numSubmeshes; ++i) {
+                    writeRecord(stream, mesh.getSubmesh(i), table);
+                }
+
+                String platformName = JmeSystem.getPlatform().name();
+                writeString(stream, platformName);
+                byte[] bvhBytes = mesh.serializeBvh();
+                writeInt(stream, bvhBytes.length);
+                stream.write(bvhBytes, 0, bvhBytes.length);
+                writePadding(stream);
+                break;
+
+            default:
+                throw new IllegalStateException("kind = " + kind);
+        }
+    }
+
+    /**
+     * Write a UTF-8 string, followed by padding.
+     *
+     * @param stream where to write (not null)
+     * @param string the string to write (not null)
+     */
+    private static void writeString(ByteArrayOutputStream stream,
+            String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeInt(stream, bytes.length);
+        stream.write(bytes, 0, bytes.length);
+        writePadding(stream);
+    }
+
+    /**
+     * Write a vector.
+     *
+     * @param stream where to write (not null)
+     * @param vector the vector to write (not null, unaffected)
+     */
+    private static void writeVector(ByteArrayOutputStream stream,
+            Vector3f vector) {
+        writeFloat(stream, vector.x);
+        writeFloat(stream, vector.y);
+        writeFloat(stream, vector.z);
+    }
+}
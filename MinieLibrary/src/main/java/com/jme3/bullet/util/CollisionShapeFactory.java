@@ -50,6 +50,7 @@ import com.jme3.terrain.Terrain;
 import com.jme3.util.BufferUtils;
 import java.nio.Buffer;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
@@ -266,26 +267,58 @@ public class CollisionShapeFactory {
         Validate.nonNull(parameters, "parameters");
 
         Mesh mergedMesh = makeMergedMesh(modelRoot);
+        CompoundCollisionShape result
+                = createVhacdShape(mergedMesh, parameters, addResult);
+
+        return result;
+    }
+
+    /**
+     * Create a shape for a dynamic object using the V-HACD library. If the
+     * mesh has direct position and int-index buffers, they're passed to
+     * V-HACD without being copied.
+     *
+     * @param mesh the indexed triangle mesh on which to base the shape (not
+     * null, unaffected)
+     * @param parameters (not null, unaffected)
+     * @param addResult the compound shape to append to (modified if not null)
+     * @return a compound shape (either addResult or a new shape, not null)
+     */
+    public static CompoundCollisionShape createVhacdShape(Mesh mesh,
+            VHACDParameters parameters, CompoundCollisionShape addResult) {
+        Validate.nonNull(mesh, "mesh");
+        Validate.nonNull(parameters, "parameters");
 
         FloatBuffer positionBuffer
-                = mergedMesh.getFloatBuffer(VertexBuffer.Type.Position);
-        int numFloats = positionBuffer.limit();
-        float[] positionArray = new float[numFloats];
-        for (int offset = 0; offset < numFloats; ++offset) {
-            positionArray[offset] = positionBuffer.get(offset);
+                = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        int numFloats = numAxes * mesh.getVertexCount();
+        if (!positionBuffer.isDirect()
+                || positionBuffer.capacity() != numFloats) {
+            FloatBuffer copy = BufferUtils.createFloatBuffer(numFloats);
+            for (int offset = 0; offset < numFloats; ++offset) {
+                copy.put(offset, positionBuffer.get(offset));
+            }
+            positionBuffer = copy;
         }
 
-        IndexBuffer indexBuffer = mergedMesh.getIndicesAsList();
-        int numIndices = indexBuffer.size();
-        int[] indexArray = new int[numIndices];
-        for (int offset = 0; offset < numIndices; ++offset) {
-            indexArray[offset] = indexBuffer.get(offset);
+        IndexBuffer indexList = mesh.getIndicesAsList();
+        int numIndices = indexList.size();
+        Buffer ibData = indexList.getBuffer();
+        IntBuffer indexBuffer;
+        if (ibData instanceof IntBuffer && ibData.isDirect()
+                && ibData.capacity() == numIndices) {
+            indexBuffer = (IntBuffer) ibData;
+        } else {
+            indexBuffer = BufferUtils.createIntBuffer(numIndices);
+            for (int offset = 0; offset < numIndices; ++offset) {
+                indexBuffer.put(offset, indexList.get(offset));
+            }
         }
         /*
          * Use the V-HACD algorithm to generate a list of hulls.
          */
         List<VHACDHull> vhacdHulls
-                = VHACD.compute(positionArray, indexArray, parameters);
+                = VHACD.compute(positionBuffer, indexBuffer, parameters);
         /*
          * Convert each V-HACD hull to a HullCollisionShape
          * and add that to the result.
@@ -304,6 +337,66 @@ public class CollisionShapeFactory {
 
         return result;
     }
+
+    /**
+     * Generate a Mesh that merges the triangles of non-empty geometries not
+     * tagged with "JmePhysicsIgnore".
+     *
+     * @param subtree the scene-graph subtree on which to base the Mesh (not
+     * null, unaffected)
+     * @return a new, indexed Mesh in Triangles mode, its bounds not set
+     */
+    static Mesh makeMergedMesh(Spatial subtree) {
+        List<Geometry> allGeometries = MySpatial.listGeometries(subtree);
+        List<Geometry> includedGeometries
+                = new ArrayList<>(allGeometries.size());
+        int totalIndices = 0;
+        int totalVertices = 0;
+        for (Geometry geometry : allGeometries) {
+            /*
+             * Exclude any Geometry tagged with "JmePhysicsIgnore"
+             * or having a null/empty mesh.
+             */
+            Boolean ignore = geometry.getUserData(UserData.JME_PHYSICSIGNORE);
+            if (ignore != null && ignore) {
+                continue;
+            }
+            Mesh jmeMesh = geometry.getMesh();
+            if (jmeMesh == null) {
+                continue;
+            }
+            IndexBuffer indexBuffer = jmeMesh.getIndicesAsList();
+            int numIndices = indexBuffer.size();
+            if (numIndices == 0) {
+                continue;
+            }
+            int numVertices = jmeMesh.getVertexCount();
+            if (numVertices == 0) {
+                continue;
+            }
+
+            includedGeometries.add(geometry);
+            totalIndices += numIndices;
+            totalVertices += numVertices;
+        }
+
+        IndexBuffer indexBuffer
+                = IndexBuffer.createIndexBuffer(totalVertices, totalIndices);
+        int totalFloats = numAxes * totalVertices;
+        FloatBuffer positionBuffer = BufferUtils.createFloatBuffer(totalFloats);
+
+        for (Geometry geometry : includedGeometries) {
+            appendTriangles(geometry, subtree, positionBuffer, indexBuffer);
+        }
+
+        VertexBuffer.Format ibFormat = MyBuffer.getFormat(indexBuffer);
+        Buffer ibData = indexBuffer.getBuffer();
+        Mesh result = new Mesh();
+        result.setBuffer(VertexBuffer.Type.Index, MyMesh.vpt, ibFormat, ibData);
+        result.setBuffer(VertexBuffer.Type.Position, numAxes, positionBuffer);
+
+        return result;
+    }
     // *************************************************************************
     // private methods
 
@@ -494,64 +587,4 @@ public class CollisionShapeFactory {
 
         return result;
     }
-
-    /**
-     * Generate a Mesh that merges the triangles of non-empty geometries not
-     * tagged with "JmePhysicsIgnore".
-     *
-     * @param subtree the scene-graph subtree on which to base the Mesh (not
-     * null, unaffected)
-     * @return a new, indexed Mesh in Triangles mode, its bounds not set
-     */
-    private static Mesh makeMergedMesh(Spatial subtree) {
-        List<Geometry> allGeometries = MySpatial.listGeometries(subtree);
-        List<Geometry> includedGeometries
-                = new ArrayList<>(allGeometries.size());
-        int totalIndices = 0;
-        int totalVertices = 0;
-        for (Geometry geometry : allGeometries) {
-            /*
-             * Exclude any Geometry tagged with "JmePhysicsIgnore"
-             * or having a null/empty mesh.
-             */
-            Boolean ignore = geometry.getUserData(UserData.JME_PHYSICSIGNORE);
-            if (ignore != null && ignore) {
-                continue;
-            }
-            Mesh jmeMesh = geometry.getMesh();
-            if (jmeMesh == null) {
-                continue;
-            }
-            IndexBuffer indexBuffer = jmeMesh.getIndicesAsList();
-            int numIndices = indexBuffer.size();
-            if (numIndices == 0) {
-                continue;
-            }
-            int numVertices = jmeMesh.getVertexCount();
-            if (numVertices == 0) {
-                continue;
-            }
-
-            includedGeometries.add(geometry);
-            totalIndices += numIndices;
-            totalVertices += numVertices;
-        }
-
-        IndexBuffer indexBuffer
-                = IndexBuffer.createIndexBuffer(totalVertices, totalIndices);
-        int totalFloats = numAxes * totalVertices;
-        FloatBuffer positionBuffer = BufferUtils.createFloatBuffer(totalFloats);
-
-        for (Geometry geometry : includedGeometries) {
-            appendTriangles(geometry, subtree, positionBuffer, indexBuffer);
-        }
-
-        VertexBuffer.Format ibFormat = MyBuffer.getFormat(indexBuffer);
-        Buffer ibData = indexBuffer.getBuffer();
-        Mesh result = new Mesh();
-        result.setBuffer(VertexBuffer.Type.Index, MyMesh.vpt, ibFormat, ibData);
-        result.setBuffer(VertexBuffer.Type.Position, numAxes, positionBuffer);
-
-        return result;
-    }
 }
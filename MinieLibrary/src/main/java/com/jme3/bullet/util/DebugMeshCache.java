@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.SafeArrayList;
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A thread-safe cache of debug meshes, bounded by both the number of meshes
+ * and their total size in bytes. When either bound is exceeded, meshes are
+ * evicted in approximately least-recently-used order.
+ * <p>
+ * Lookups take no locks: meshes are stored in a ConcurrentHashMap, and each
+ * hit merely updates a timestamp. Additions, removals, and evictions are
+ * serialized by a separate lock, and evictions are done in batches, so that
+ * the cost of sorting by timestamp is amortized over many additions.
+ * <p>
+ * Keys are also indexed by shape ID, so that all meshes of a particular
+ * shape can be invalidated without scanning the entire cache.
+ */
+class DebugMeshCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * order entries from least to most recently used, as of the last snapshot
+     */
+    final private static Comparator<CacheEntry> lruOrder
+            = new Comparator<CacheEntry>() {
+        @Override
+        public int compare(CacheEntry a, CacheEntry b) {
+            int result = Long.compare(a.snapshotTime, b.snapshotTime);
+            return result;
+        }
+    };
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(DebugMeshCache.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * total bytes of mesh data currently cached (&ge;0)
+     */
+    final private AtomicLong totalBytes = new AtomicLong(0L);
+    /**
+     * cached meshes
+     */
+    final private ConcurrentHashMap<DebugMeshKey, CacheEntry> entryMap
+            = new ConcurrentHashMap<>(200);
+    /**
+     * number of lookups that found a cached mesh
+     */
+    final private LongAdder hitCount = new LongAdder();
+    /**
+     * number of lookups that didn't find a cached mesh
+     */
+    final private LongAdder missCount = new LongAdder();
+    /**
+     * number of meshes evicted to enforce the bounds
+     */
+    private long evictionCount = 0L;
+    /**
+     * maximum total bytes of cached mesh data (&ge;0)
+     */
+    private long maxBytes;
+    /**
+     * maximum number of cached meshes (&ge;0)
+     */
+    private int maxMeshes;
+    /**
+     * map shape IDs to the keys of their cached meshes
+     */
+    final private Map<Long, List<DebugMeshKey>> shapeIndex
+            = new HashMap<>(200);
+    /**
+     * lock to serialize modifications (not held during lookups)
+     */
+    final private Object writeLock = new Object();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty cache with the specified bounds.
+     *
+     * @param maxMeshes the maximum number of meshes (&ge;0)
+     * @param maxBytes the maximum total bytes of mesh data (&ge;0)
+     */
+    DebugMeshCache(int maxMeshes, long maxBytes) {
+        assert maxMeshes >= 0 : maxMeshes;
+        assert maxBytes >= 0L : maxBytes;
+
+        this.maxMeshes = maxMeshes;
+        this.maxBytes = maxBytes;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Remove all meshes from the cache. The statistics are unaffected.
+     */
+    void clear() {
+        synchronized (writeLock) {
+            entryMap.clear();
+            shapeIndex.clear();
+            totalBytes.set(0L);
+        }
+    }
+
+    /**
+     * Count how many bytes of mesh data are cached.
+     *
+     * @return the total (&ge;0)
+     */
+    long countBytes() {
+        long result = totalBytes.get();
+
+        assert result >= 0L : result;
+        return result;
+    }
+
+    /**
+     * Count how many meshes have been evicted to enforce the bounds.
+     *
+     * @return the count (&ge;0)
+     */
+    long countEvictions() {
+        synchronized (writeLock) {
+            return evictionCount;
+        }
+    }
+
+    /**
+     * Count how many lookups found a cached mesh.
+     *
+     * @return the count (&ge;0)
+     */
+    long countHits() {
+        long result = hitCount.sum();
+        return result;
+    }
+
+    /**
+     * Count how many meshes are cached.
+     *
+     * @return the count (&ge;0)
+     */
+    int countMeshes() {
+        int result = entryMap.size();
+        return result;
+    }
+
+    /**
+     * Count how many lookups didn't find a cached mesh.
+     *
+     * @return the count (&ge;0)
+     */
+    long countMisses() {
+        long result = missCount.sum();
+        return result;
+    }
+
+    /**
+     * Look up the mesh for the specified key, marking it as recently used.
+     * Takes no locks.
+     *
+     * @param key the key to look up (not null, unaffected)
+     * @return the pre-existing mesh, or null if not cached
+     */
+    Mesh get(DebugMeshKey key) {
+        CacheEntry entry = entryMap.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+
+        entry.lastUseTime = System.nanoTime();
+        hitCount.increment();
+
+        return entry.mesh;
+    }
+
+    /**
+     * Add a mesh to the cache, unless another thread added one for the same
+     * key first, then enforce the bounds.
+     *
+     * @param key the key (not null, alias created)
+     * @param mesh the mesh to add (not null, alias created)
+     * @return the mesh now cached for the key (not null)
+     */
+    Mesh putIfAbsent(DebugMeshKey key, Mesh mesh) {
+        CacheEntry entry = new CacheEntry(key, mesh);
+
+        synchronized (writeLock) {
+            CacheEntry previous = entryMap.putIfAbsent(key, entry);
+            if (previous != null) {
+                return previous.mesh;
+            }
+            totalBytes.addAndGet(entry.numBytes);
+
+            Long shapeId = key.shapeId();
+            List<DebugMeshKey> keys = shapeIndex.get(shapeId);
+            if (keys == null) {
+                keys = new ArrayList<>(2);
+                shapeIndex.put(shapeId, keys);
+            }
+            keys.add(key);
+
+            evict();
+        }
+
+        return mesh;
+    }
+
+    /**
+     * Remove all meshes for the identified shape.
+     *
+     * @param shapeId the ID of the shape
+     */
+    void removeShape(long shapeId) {
+        synchronized (writeLock) {
+            List<DebugMeshKey> keys = shapeIndex.remove(shapeId);
+            if (keys != null) {
+                for (DebugMeshKey key : keys) {
+                    CacheEntry entry = entryMap.remove(key);
+                    if (entry != null) {
+                        totalBytes.addAndGet(-entry.numBytes);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Alter the bounds and evict meshes as needed.
+     *
+     * @param maxMeshes the maximum number of meshes (&ge;0)
+     * @param maxBytes the maximum total bytes of mesh data (&ge;0)
+     */
+    void setLimits(int maxMeshes, long maxBytes) {
+        assert maxMeshes >= 0 : maxMeshes;
+        assert maxBytes >= 0L : maxBytes;
+
+        synchronized (writeLock) {
+            this.maxMeshes = maxMeshes;
+            this.maxBytes = maxBytes;
+            evict();
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Estimate the size of the data in the specified mesh.
+     *
+     * @param mesh the mesh to measure (not null, unaffected)
+     * @return the number of bytes (&ge;0)
+     */
+    private static long countBytes(Mesh mesh) {
+        long result = 0L;
+        SafeArrayList<VertexBuffer> buffers = mesh.getBufferList();
+        for (VertexBuffer vertexBuffer : buffers.getArray()) {
+            Buffer data = vertexBuffer.getData();
+            if (data != null) {
+                int componentBytes
+                        = vertexBuffer.getFormat().getComponentSize();
+                result += (long) componentBytes * data.capacity();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * If either bound is exceeded, evict the least recently used meshes until
+     * both are satisfied with 1/8 to spare. The caller must hold the write
+     * lock.
+     */
+    private void evict() {
+        int numMeshes = entryMap.size();
+        if (numMeshes <= maxMeshes && totalBytes.get() <= maxBytes) {
+            return;
+        }
+        /*
+         * Snapshot the timestamps, since lookups may update them while
+         * sorting.
+         */
+        List<CacheEntry> entries = new ArrayList<>(entryMap.values());
+        for (CacheEntry entry : entries) {
+            entry.snapshotTime = entry.lastUseTime;
+        }
+        Collections.sort(entries, lruOrder);
+
+        int targetMeshes = maxMeshes - maxMeshes / 8;
+        long targetBytes = maxBytes - maxBytes / 8;
+        for (CacheEntry eldest : entries) {
+            if (numMeshes <= targetMeshes
+                    && totalBytes.get() <= targetBytes) {
+                break;
+            }
+            DebugMeshKey key = eldest.key;
+            entryMap.remove(key);
+            --numMeshes;
+            totalBytes.addAndGet(-eldest.numBytes);
+            ++evictionCount;
+
+            Long shapeId = key.shapeId();
+            List<DebugMeshKey> keys = shapeIndex.get(shapeId);
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                shapeIndex.remove(shapeId);
+            }
+        }
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * A cached mesh and its metadata.
+     */
+    private static class CacheEntry {
+        /**
+         * time of the most recent lookup or addition (from
+         * {@link System#nanoTime()})
+         */
+        volatile long lastUseTime = System.nanoTime();
+        /**
+         * copy of lastUseTime, taken while evicting
+         */
+        long snapshotTime;
+        /**
+         * estimated size of the mesh data (in bytes, &ge;0)
+         */
+        final long numBytes;
+        /**
+         * key of this entry (not null)
+         */
+        final DebugMeshKey key;
+        /**
+         * the cached mesh (not null)
+         */
+        final Mesh mesh;
+
+        /**
+         * Instantiate an entry for the specified mesh.
+         *
+         * @param key the key (not null, alias created)
+         * @param mesh the mesh (not null, alias created)
+         */
+        CacheEntry(DebugMeshKey key, Mesh mesh) {
+            this.key = key;
+            this.mesh = mesh;
+            this.numBytes = countBytes(mesh);
+        }
+    }
+}
@@ -33,11 +33,9 @@ package com.jme3.bullet.util;
 
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.math.Transform;
-import com.jme3.math.Triangle;
 import com.jme3.math.Vector3f;
 import com.jme3.util.BufferUtils;
 import java.nio.FloatBuffer;
-import java.util.ArrayList;
 import java.util.logging.Logger;
 import jme3utilities.math.MyBuffer;
 import jme3utilities.math.MyVector3f;
@@ -63,6 +61,10 @@ class DebugMeshCallback {
      * number of vertices per triangle
      */
     final private static int vpt = 3;
+    /**
+     * initial capacity of the buffer (in vertices)
+     */
+    final private static int initialVertices = 256;
     /**
      * message logger for this class
      */
@@ -72,9 +74,11 @@ class DebugMeshCallback {
     // fields
 
     /**
-     * list of vertex locations (typically includes many duplicates)
+     * vertex locations (typically includes many duplicates): 3 floats per
+     * vertex, from 0 to the buffer's position
      */
-    final private ArrayList<Vector3f> list = new ArrayList<>(250);
+    private FloatBuffer buffer
+            = BufferUtils.createFloatBuffer(numAxes * initialVertices);
     // *************************************************************************
     // new methods exposed
 
@@ -89,12 +93,14 @@ class DebugMeshCallback {
     Vector3f[] footprint(Transform meshToWorld) {
         assert meshToWorld != null;
         /*
-         * Copy the location list, removing all duplicates in the process.
-         * TODO make this more efficient
+         * Copy the vertex locations, removing all duplicates in the process.
          */
-        VectorSet distinct = new VectorSetUsingBuffer(list.size(), false);
-        for (Vector3f vector : list) {
-            distinct.add(vector);
+        int numVertices = countVertices();
+        VectorSet distinct = new VectorSetUsingBuffer(numVertices, false);
+        Vector3f tmpVector = new Vector3f();
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            get(vertexIndex, tmpVector);
+            distinct.add(tmpVector);
         }
         /*
          * Transform vertex locations to world coordinates and set all the
@@ -152,30 +158,37 @@ class DebugMeshCallback {
      * @return a new direct buffer (flipped, limit a multiple of 9)
      */
     FloatBuffer getFaceNormals() {
-        int numVertices = list.size();
+        int numVertices = countVertices();
         int numTriangles = numVertices / vpt;
         assert numTriangles * vpt == numVertices : numVertices;
 
         int numFloats = numAxes * numVertices;
-        FloatBuffer buffer = BufferUtils.createFloatBuffer(numFloats);
+        FloatBuffer result = BufferUtils.createFloatBuffer(numFloats);
 
-        Triangle triangle = new Triangle();
+        Vector3f pos1 = new Vector3f();
+        Vector3f pos2 = new Vector3f();
+        Vector3f pos3 = new Vector3f();
         for (int triIndex = 0; triIndex < numTriangles; ++triIndex) {
             int firstVertex = vpt * triIndex;
-            Vector3f pos1 = list.get(firstVertex);
-            Vector3f pos2 = list.get(firstVertex + 1);
-            Vector3f pos3 = list.get(firstVertex + 2);
-            triangle.set(pos1, pos2, pos3);
-            Vector3f normal = triangle.getNormal();
+            get(firstVertex, pos1);
+            get(firstVertex + 1, pos2);
+            get(firstVertex + 2, pos3);
+            /*
+             * normal = (pos2 - pos1) x (pos3 - pos1), normalized
+             */
+            pos2.subtractLocal(pos1);
+            pos3.subtractLocal(pos1);
+            pos2.crossLocal(pos3);
+            pos2.normalizeLocal();
             for (int j = 0; j < vpt; ++j) {
-                buffer.put(normal.x);
-                buffer.put(normal.y);
-                buffer.put(normal.z);
+                result.put(pos2.x);
+                result.put(pos2.y);
+                result.put(pos2.z);
             }
         }
-        buffer.flip();
+        result.flip();
 
-        return buffer;
+        return result;
     }
 
     /**
@@ -185,15 +198,14 @@ class DebugMeshCallback {
      * flipped, capacity a multiple of 9)
      */
     FloatBuffer getVertices() {
-        int numFloats = numAxes * list.size();
-        FloatBuffer buffer = BufferUtils.createFloatBuffer(numFloats);
-        for (Vector3f location : list) {
-            buffer.put(location.x);
-            buffer.put(location.y);
-            buffer.put(location.z);
-        }
+        int numFloats = buffer.position();
+        FloatBuffer result = BufferUtils.createFloatBuffer(numFloats);
+
+        FloatBuffer source = buffer.duplicate();
+        source.flip();
+        result.put(source);
 
-        return buffer;
+        return result;
     }
 
     /**
@@ -205,11 +217,12 @@ class DebugMeshCallback {
      */
     float maxDistance(Transform meshToWorld) {
         double maxSquaredDistance = 0.0;
-        Vector3f tmpVector = new Vector3f(); // TODO garbage
-        for (Vector3f vertex : list) {
-            tmpVector.set(vertex);
-            meshToWorld.transformVector(vertex, vertex);
-            double lengthSquared = MyVector3f.lengthSquared(vertex);
+        Vector3f tmpVector = new Vector3f();
+        int numVertices = countVertices();
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            get(vertexIndex, tmpVector);
+            meshToWorld.transformVector(tmpVector, tmpVector);
+            double lengthSquared = MyVector3f.lengthSquared(tmpVector);
             if (lengthSquared > maxSquaredDistance) {
                 maxSquaredDistance = lengthSquared;
             }
@@ -225,18 +238,22 @@ class DebugMeshCallback {
      * @return the volume (in cubic mesh units)
      */
     float volumeConvex() {
-        int numVertices = list.size();
+        int numVertices = countVertices();
         int numTriangles = numVertices / vpt;
         assert numTriangles * vpt == numVertices : numVertices;
 
         double total = 0.0;
         if (numTriangles > 0) {
-            Vector3f fixed = list.get(0);
+            Vector3f fixed = new Vector3f();
+            get(0, fixed);
+            Vector3f pos1 = new Vector3f();
+            Vector3f pos2 = new Vector3f();
+            Vector3f pos3 = new Vector3f();
             for (int triIndex = 0; triIndex < numTriangles; ++triIndex) {
                 int firstVertex = vpt * triIndex;
-                Vector3f pos1 = list.get(firstVertex);
-                Vector3f pos2 = list.get(firstVertex + 1);
-                Vector3f pos3 = list.get(firstVertex + 2);
+                get(firstVertex, pos1);
+                get(firstVertex + 1, pos2);
+                get(firstVertex + 2, pos3);
                 double tetraVolume
                         = MyVolume.tetrahedronVolume(pos1, pos2, pos3, fixed);
                 total += tetraVolume;
@@ -251,7 +268,8 @@ class DebugMeshCallback {
     // private methods
 
     /**
-     * Add a vertex to the list under construction.
+     * Add a vertex to the buffer under construction, enlarging it if
+     * necessary.
      * <p>
      * This method is invoked by native code.
      *
@@ -262,6 +280,41 @@ class DebugMeshCallback {
      * @param index ignored
      */
     private void addVector(float x, float y, float z, int part, int index) {
-        list.add(new Vector3f(x, y, z));
+        if (buffer.remaining() < numAxes) {
+            int newCapacity = 2 * buffer.capacity();
+            FloatBuffer newBuffer = BufferUtils.createFloatBuffer(newCapacity);
+            buffer.flip();
+            newBuffer.put(buffer);
+            buffer = newBuffer;
+        }
+
+        buffer.put(x);
+        buffer.put(y);
+        buffer.put(z);
+    }
+
+    /**
+     * Count the vertices added so far.
+     *
+     * @return the count (&ge;0)
+     */
+    private int countVertices() {
+        int numFloats = buffer.position();
+        int result = numFloats / numAxes;
+
+        return result;
+    }
+
+    /**
+     * Read the indexed vertex location.
+     *
+     * @param vertexIndex the index of the vertex (&ge;0, &lt;numVertices)
+     * @param storeResult storage for the result (not null, modified)
+     */
+    private void get(int vertexIndex, Vector3f storeResult) {
+        int position = numAxes * vertexIndex;
+        storeResult.x = buffer.get(position);
+        storeResult.y = buffer.get(position + 1);
+        storeResult.z = buffer.get(position + 2);
     }
 }
@@ -31,6 +31,7 @@
  */
 package com.jme3.bullet.util;
 
+import com.jme3.bounding.BoundingBox;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
@@ -49,12 +50,17 @@ import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.shape.Box;
 import com.jme3.util.BufferUtils;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
-import java.util.Collections;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 import jme3utilities.MyMesh;
 import jme3utilities.Validate;
@@ -75,6 +81,14 @@ public class DebugShapeFactory {
      * units)
      */
     final private static float planeDebugMeshSideLength = 1_500f;
+    /**
+     * default bound on the total size of cached debug meshes (in bytes)
+     */
+    final private static long defaultCacheBytes = 64L << 20;
+    /**
+     * default bound on the number of cached debug meshes
+     */
+    final private static int defaultCacheMeshes = 4_096;
     /**
      * square root of 2
      */
@@ -96,6 +110,10 @@ public class DebugShapeFactory {
      */
     final public static Logger logger
             = Logger.getLogger(DebugShapeFactory.class.getName());
+    /**
+     * local copy of {@link com.jme3.math.Matrix3f#IDENTITY}
+     */
+    final private static Matrix3f matrixIdentity = new Matrix3f();
     /**
      * local copy of {@link com.jme3.math.Vector3f#ZERO}
      */
@@ -111,11 +129,21 @@ public class DebugShapeFactory {
     /**
      * map keys to previously generated debug meshes, for reuse
      *
-     * Synchronized so that it can be updated from the "Physics Cleaner" thread.
+     * Thread-safe so that it can be updated from the "Physics Cleaner" thread.
      */
-    final private static Map<DebugMeshKey, Mesh> cache
-            = Collections.synchronizedMap(
-                    new WeakHashMap<DebugMeshKey, Mesh>(200));
+    final private static DebugMeshCache cache
+            = new DebugMeshCache(defaultCacheMeshes, defaultCacheBytes);
+    /**
+     * executor for generating debug meshes in the background, or null to
+     * generate them synchronously
+     */
+    private static volatile Executor meshExecutor = null;
+    /**
+     * map keys to debug meshes being generated in the background, so that
+     * each mesh is generated only once
+     */
+    final private static Map<DebugMeshKey, Future<Mesh>> pendingMeshes
+            = new ConcurrentHashMap<>(16);
     // *************************************************************************
     // constructors
 
@@ -140,7 +168,48 @@ public class DebugShapeFactory {
      * @return the count (&ge;0)
      */
     public static int countCachedMeshes() {
-        int result = cache.size();
+        int result = cache.countMeshes();
+        return result;
+    }
+
+    /**
+     * Count how many bytes of debug-mesh data are cached.
+     *
+     * @return the total (&ge;0)
+     */
+    public static long countCacheBytes() {
+        long result = cache.countBytes();
+        return result;
+    }
+
+    /**
+     * Count how many debug meshes have been evicted from the cache to enforce
+     * its bounds.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countCacheEvictions() {
+        long result = cache.countEvictions();
+        return result;
+    }
+
+    /**
+     * Count how many cache lookups found a previously generated debug mesh.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countCacheHits() {
+        long result = cache.countHits();
+        return result;
+    }
+
+    /**
+     * Count how many cache lookups required a new debug mesh to be generated.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countCacheMisses() {
+        long result = cache.countMisses();
         return result;
     }
 
@@ -309,6 +378,16 @@ public class DebugShapeFactory {
         return result;
     }
 
+    /**
+     * Access the executor used to generate debug meshes in the background.
+     *
+     * @return the pre-existing instance, or null if meshes are generated
+     * synchronously
+     */
+    public static Executor getMeshExecutor() {
+        return meshExecutor;
+    }
+
     /**
      * Estimate how far the specified (non-compound, non-plane) shape extends
      * from some origin, based on its debug mesh. The shape's scale and margin
@@ -353,13 +432,23 @@ public class DebugShapeFactory {
      * @param shapeId the ID of the shape to remove
      */
     public static void removeShapeFromCache(long shapeId) {
-        synchronized (cache) {
-            for (DebugMeshKey key : cache.keySet()) {
-                if (key.shapeId() == shapeId) {
-                    cache.remove(key);
-                }
-            }
-        }
+        cache.removeShape(shapeId);
+    }
+
+    /**
+     * Alter the bounds of the debug-mesh cache. When either bound is exceeded,
+     * meshes are evicted in approximately least-recently-used order.
+     *
+     * @param maxMeshes the maximum number of cached meshes (&ge;0,
+     * default=4096)
+     * @param maxBytes the maximum total size of cached meshes (in bytes,
+     * &ge;0, default=64 MiB)
+     */
+    public static void setCacheLimits(int maxMeshes, long maxBytes) {
+        Validate.nonNegative(maxMeshes, "max meshes");
+        Validate.require(maxBytes >= 0L, "max bytes non-negative");
+
+        cache.setLimits(maxMeshes, maxBytes);
     }
 
     /**
@@ -386,6 +475,22 @@ public class DebugShapeFactory {
         maxVerticesToIndex = maxVertices;
     }
 
+    /**
+     * Alter how getDebugShape() generates debug meshes. With an executor, each
+     * uncached mesh is generated on the executor's threads and the new
+     * Geometry initially displays a placeholder box matching the shape's
+     * bounding box. The real mesh is swapped in during a later logical-state
+     * update, once the Geometry is in a scene. In that case, any
+     * DebugMeshInitListener is invoked on the executor's thread. Plane shapes
+     * are always handled synchronously.
+     *
+     * @param executor the executor to use (alias created) or null to generate
+     * meshes synchronously (default=null)
+     */
+    public static void setMeshExecutor(Executor executor) {
+        meshExecutor = executor;
+    }
+
     /**
      * Calculate the volume of a debug mesh for the specified convex shape. The
      * shape's scale and margin are taken into account, but not its debug-mesh
@@ -514,25 +619,24 @@ public class DebugShapeFactory {
         assert resolution <= highResolution : resolution;
 
         DebugMeshKey key = new DebugMeshKey(shape, normals, resolution);
-        Mesh mesh;
-        synchronized (cache) {
-            mesh = cache.get(key);
-            if (mesh == null) {
-                if (shape instanceof PlaneCollisionShape) {
-                    mesh = createPlaneMesh((PlaneCollisionShape) shape,
-                            normals);
-                } else {
-                    mesh = createMesh(shape, normals, resolution);
-                }
-                if (listener != null) {
-                    listener.debugMeshInit(mesh);
-                }
-                cache.put(key, mesh);
+        Mesh mesh = cache.get(key);
+        Future<Mesh> pending = null;
+        if (mesh == null) {
+            Executor executor = meshExecutor;
+            if (executor == null || shape instanceof PlaneCollisionShape) {
+                mesh = generateMesh(key, shape, listener, normals, resolution);
+            } else {
+                pending = submitMesh(executor, key, shape, listener, normals,
+                        resolution);
+                mesh = createPlaceholderMesh(shape);
             }
         }
 
         Geometry geometry = new Geometry("Bullet debug", mesh);
         geometry.updateModelBound();
+        if (pending != null) {
+            geometry.addControl(new PendingMeshControl(pending));
+        }
 
         return geometry;
     }
@@ -635,6 +739,23 @@ public class DebugShapeFactory {
         return node;
     }
 
+    /**
+     * Create a placeholder Mesh to display while the debug mesh for the
+     * specified shape is generated in the background.
+     *
+     * @param shape (not null, not compound, not plane, unaffected)
+     * @return a new box Mesh matching the shape's bounding box (not null)
+     */
+    private static Mesh createPlaceholderMesh(CollisionShape shape) {
+        BoundingBox aabb
+                = shape.boundingBox(translateIdentity, matrixIdentity, null);
+        Vector3f min = aabb.getMin(null);
+        Vector3f max = aabb.getMax(null);
+        Mesh result = new Box(min, max);
+
+        return result;
+    }
+
     /**
      * Create a Mesh for visualizing the specified PlaneCollisionShape.
      *
@@ -773,6 +894,36 @@ public class DebugShapeFactory {
         return result;
     }
 
+    /**
+     * Generate a debug mesh for the specified non-compound shape, notify the
+     * listener, and add the mesh to the cache. No cache lock is held during
+     * generation.
+     *
+     * @param key the cache key (not null)
+     * @param shape the shape to visualize (not null, not compound,
+     * unaffected)
+     * @param listener the init listener (may be null)
+     * @param normals which normals to generate (not null)
+     * @param resolution how much detail for convex shapes (0=low, 1=high)
+     * @return the cached Mesh (not null)
+     */
+    private static Mesh generateMesh(DebugMeshKey key, CollisionShape shape,
+            DebugMeshInitListener listener, DebugMeshNormals normals,
+            int resolution) {
+        Mesh mesh;
+        if (shape instanceof PlaneCollisionShape) {
+            mesh = createPlaneMesh((PlaneCollisionShape) shape, normals);
+        } else {
+            mesh = createMesh(shape, normals, resolution);
+        }
+        if (listener != null) {
+            listener.debugMeshInit(mesh);
+        }
+        Mesh result = cache.putIfAbsent(key, mesh);
+
+        return result;
+    }
+
     /**
      * Generate a Transform that maps the Y-Z plane to the surface of the
      * specified PlaneCollisionShape.
@@ -794,6 +945,55 @@ public class DebugShapeFactory {
 
         return result;
     }
+
+    /**
+     * Generate a debug mesh on the specified executor, unless the same mesh
+     * is already being generated.
+     *
+     * @param executor the executor to use (not null)
+     * @param key the cache key (not null, alias created)
+     * @param shape the shape to visualize (not null, not compound, not plane,
+     * alias created)
+     * @param listener the init listener (may be null, alias created)
+     * @param normals which normals to generate (not null)
+     * @param resolution how much detail for convex shapes (0=low, 1=high)
+     * @return the pending result (not null)
+     */
+    private static Future<Mesh> submitMesh(Executor executor,
+            final DebugMeshKey key, final CollisionShape shape,
+            final DebugMeshInitListener listener,
+            final DebugMeshNormals normals, final int resolution) {
+        /*
+         * The task holds a strong reference to the shape,
+         * so its native object can't be freed during generation.
+         */
+        Callable<Mesh> callable = new Callable<Mesh>() {
+            @Override
+            public Mesh call() {
+                Mesh result = generateMesh(key, shape, listener, normals,
+                        resolution);
+                return result;
+            }
+        };
+        FutureTask<Mesh> task = new FutureTask<Mesh>(callable) {
+            @Override
+            protected void done() {
+                pendingMeshes.remove(key, this);
+            }
+        };
+
+        Future<Mesh> result = pendingMeshes.putIfAbsent(key, task);
+        if (result == null) {
+            result = task;
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException exception) {
+                task.run(); // generate the mesh on the current thread
+            }
+        }
+
+        return result;
+    }
     // *************************************************************************
     // native private methods
 
@@ -33,6 +33,8 @@ package com.jme3.bullet.util;
 
 import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
 import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Quaternion;
 import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Mesh;
@@ -41,15 +43,13 @@ import com.jme3.scene.mesh.IndexBuffer;
 import com.jme3.util.BufferUtils;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 import jme3utilities.math.IntPair;
-import jme3utilities.math.MyBuffer;
 import jme3utilities.math.MyVector3f;
 
 /**
@@ -79,6 +79,16 @@ public class NativeSoftBodyUtil {
      */
     final public static Logger logger
             = Logger.getLogger(NativeSoftBodyUtil.class.getName());
+    /**
+     * reusable scratch array for each thread, used to transform mesh buffers
+     */
+    final private static ThreadLocal<float[]> scratchTL
+            = new ThreadLocal<float[]>() {
+        @Override
+        protected float[] initialValue() {
+            return new float[0];
+        }
+    };
     // *************************************************************************
     // constructors
 
@@ -161,6 +171,55 @@ public class NativeSoftBodyUtil {
         softBody.appendLinks(indexBuffer);
     }
 
+    /**
+     * Append the nodes, surface triangles, unique edges, and tetrahedra of the
+     * specified decomposition to the specified soft body.
+     *
+     * @param tetraMesh the input decomposition (not null, unaffected)
+     * @param softBody the soft body to which nodes, faces, links, and
+     * tetrahedra will be added (not null, modified)
+     */
+    public static void appendFromTetraMesh(TetraMesh tetraMesh,
+            PhysicsSoftBody softBody) {
+        Validate.nonNull(tetraMesh, "tetra mesh");
+        Validate.nonNull(softBody, "soft body");
+
+        int firstNode = softBody.countNodes();
+        FloatBuffer locations = tetraMesh.copyLocations();
+        softBody.appendNodes(locations);
+
+        IntBuffer faceIndices = tetraMesh.copyFaces();
+        offsetIndices(faceIndices, firstNode);
+        softBody.appendFaces(IndexBuffer.wrapIndexBuffer(faceIndices));
+        /*
+         * Enumerate all unique edges among the tetrahedra.
+         */
+        IntBuffer tetraIndices = tetraMesh.copyTetras();
+        offsetIndices(tetraIndices, firstNode);
+        int size = tetraIndices.capacity();
+        Set<IntPair> uniqueEdges = new HashSet<>(size);
+        for (int intOffset = 0; intOffset < size; intOffset += 4) {
+            for (int i = 0; i < 3; ++i) {
+                int ti = tetraIndices.get(intOffset + i);
+                for (int j = i + 1; j < 4; ++j) {
+                    int tj = tetraIndices.get(intOffset + j);
+                    uniqueEdges.add(new IntPair(ti, tj));
+                }
+            }
+        }
+
+        int numUniqueEdges = uniqueEdges.size();
+        IntBuffer links = BufferUtils.createIntBuffer(vpe * numUniqueEdges);
+        int edgeIndex = 0;
+        for (IntPair edge : uniqueEdges) {
+            links.put(edgeIndex, edge.smaller());
+            links.put(edgeIndex + 1, edge.larger());
+            edgeIndex += vpe;
+        }
+        softBody.appendLinks(IndexBuffer.wrapIndexBuffer(links));
+        softBody.appendTetras(IndexBuffer.wrapIndexBuffer(tetraIndices));
+    }
+
     /**
      * Add the triangles and unique edges in the specified JME mesh to the
      * specified soft body.
@@ -246,6 +305,65 @@ public class NativeSoftBodyUtil {
         softBody.appendTetras(newTetras);
     }
 
+    /**
+     * Fill the position/normal buffers of a Mesh from the nodes in the
+     * specified soft body, without flagging the buffers for upload. Safe to
+     * invoke from any thread, provided the body isn't being simulated and the
+     * Mesh isn't being rendered.
+     *
+     * @param body the soft body to provide locations and normals (not null,
+     * unaffected)
+     * @param vertexToNodeMap the index map to apply (must be direct) or null
+     * for identity
+     * @param store the Mesh to fill (not null, position and normal buffers
+     * must be direct, modified)
+     * @param meshInLocalSpace if true, transform node locations into the body's
+     * local coordinates, otherwise use physics-space coordinates
+     * @param updateNormals if true, fill the normal buffer, otherwise ignore
+     * the normal buffer
+     * @param physicsToMesh the coordinate transform to apply, or null for
+     * identity (unaffected)
+     */
+    static void fillMesh(PhysicsSoftBody body, IntBuffer vertexToNodeMap,
+            Mesh store, boolean meshInLocalSpace, boolean updateNormals,
+            Transform physicsToMesh) {
+        long bodyId = body.nativeId();
+        FloatBuffer positionBuffer
+                = store.getFloatBuffer(VertexBuffer.Type.Position);
+        assert positionBuffer != null;
+
+        FloatBuffer normalBuffer = null;
+        if (updateNormals) {
+            normalBuffer = store.getFloatBuffer(VertexBuffer.Type.Normal);
+            assert normalBuffer != null;
+        }
+
+        if (vertexToNodeMap != null) {
+            // map mesh-vertex indices to body-node indices
+            updateMesh(bodyId, vertexToNodeMap, positionBuffer, normalBuffer,
+                    meshInLocalSpace, updateNormals);
+        } else {
+            // null map: mesh-vertex indices equal body-node indices
+            updateMesh(bodyId, positionBuffer, normalBuffer,
+                    meshInLocalSpace, updateNormals);
+        }
+
+        if (physicsToMesh != null && !isIdentity(physicsToMesh)) {
+            Matrix3f rotation = physicsToMesh.getRotation().toRotationMatrix();
+            /*
+             * Transform physics locations to mesh positions.
+             */
+            Vector3f scale = physicsToMesh.getScale(); // alias
+            Vector3f offset = physicsToMesh.getTranslation(); // alias
+            transformBuffer(positionBuffer, rotation, scale, offset);
+
+            if (normalBuffer != null) {
+                // Rotate the normals.
+                transformBuffer(normalBuffer, rotation, null, null);
+            }
+        }
+    }
+
     /**
      * Create an index map to merge any mesh vertices that share the same
      * position. Other vertex properties (such as bone weights, normals, and
@@ -256,28 +374,54 @@ public class NativeSoftBodyUtil {
      * @return a new index map (not null)
      */
     public static IntBuffer generateIndexMap(FloatBuffer positionBuffer) {
+        IntBuffer result = generateIndexMap(positionBuffer, 0f);
+        return result;
+    }
+
+    /**
+     * Create an index map to merge any mesh vertices whose positions lie
+     * within the specified distance of each other. Other vertex properties
+     * (such as bone weights, normals, and texture coordinates) are ignored.
+     * <p>
+     * Each vertex is merged into the lowest-numbered mapped vertex within
+     * tolerance, if any. With a positive tolerance, positions with NaN or
+     * infinite components are never merged.
+     *
+     * @param positionBuffer the buffer of mesh-vertex positions (not null,
+     * limit a multiple of 3, unaffected)
+     * @param tolerance the maximum distance between merged positions (in mesh
+     * units, &ge;0, 0 &rarr; merge only identical positions)
+     * @return a new index map (not null)
+     */
+    public static IntBuffer generateIndexMap(FloatBuffer positionBuffer,
+            float tolerance) {
         int numFloats = positionBuffer.limit();
         Validate.require(numFloats % numAxes == 0, "limit a multiple of 3");
+        Validate.nonNegative(tolerance, "tolerance");
         int numVertices = numFloats / numAxes;
 
-        IntBuffer result = BufferUtils.createIntBuffer(numVertices);
-        Map<Vector3f, Integer> tmpHashMap = new HashMap<>(numVertices);
-        int nextMappedIndex = 0;
-
-        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
-            Vector3f position = new Vector3f();
-            MyBuffer.get(positionBuffer, numAxes * vertexIndex, position);
-            MyVector3f.standardize(position, position);
-
-            if (!tmpHashMap.containsKey(position)) {
-                tmpHashMap.put(position, nextMappedIndex);
-                result.put(nextMappedIndex);
-                ++nextMappedIndex;
-            } else {
-                int mappedIndex = tmpHashMap.get(position);
-                result.put(mappedIndex);
+        float[] positions = new float[numFloats];
+        FloatBuffer view = positionBuffer.duplicate();
+        view.rewind();
+        view.get(positions);
+        /*
+         * Standardize the components, so -0 and 0 hash identically.
+         */
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            if (positions[floatIndex] == 0f) {
+                positions[floatIndex] = 0f;
             }
         }
+
+        int[] map = new int[numVertices];
+        if (tolerance == 0f) {
+            weldExact(positions, map);
+        } else {
+            weldWithin(positions, tolerance, map);
+        }
+
+        IntBuffer result = BufferUtils.createIntBuffer(numVertices);
+        result.put(map);
         result.flip();
 
         return result;
@@ -411,68 +555,11 @@ public class NativeSoftBodyUtil {
     public static void updateMesh(PhysicsSoftBody body,
             IntBuffer vertexToNodeMap, Mesh store, boolean meshInLocalSpace,
             boolean updateNormals, Transform physicsToMesh) {
-        long bodyId = body.nativeId();
-        FloatBuffer positionBuffer
-                = store.getFloatBuffer(VertexBuffer.Type.Position);
-        assert positionBuffer != null;
-
-        FloatBuffer normalBuffer = null;
-        if (updateNormals) {
-            normalBuffer = store.getFloatBuffer(VertexBuffer.Type.Normal);
-            assert normalBuffer != null;
-        }
-
-        if (vertexToNodeMap != null) {
-            // map mesh-vertex indices to body-node indices
-            updateMesh(bodyId, vertexToNodeMap, positionBuffer, normalBuffer,
-                    meshInLocalSpace, updateNormals);
-        } else {
-            // null map: mesh-vertex indices equal body-node indices
-            updateMesh(bodyId, positionBuffer, normalBuffer,
-                    meshInLocalSpace, updateNormals);
-        }
-
-        if (physicsToMesh != null) {
-            Vector3f tempVector = new Vector3f();
-            /*
-             * Transform physics locations to mesh positions.
-             */
-            positionBuffer.rewind();
-            while (positionBuffer.hasRemaining()) {
-                positionBuffer.mark();
-                tempVector.x = positionBuffer.get();
-                tempVector.y = positionBuffer.get();
-                tempVector.z = positionBuffer.get();
-                physicsToMesh.transformVector(tempVector, tempVector);
-
-                positionBuffer.reset();
-                positionBuffer.put(tempVector.x);
-                positionBuffer.put(tempVector.y);
-                positionBuffer.put(tempVector.z);
-            }
-
-            if (normalBuffer != null) {
-                /*
-                 * Rotate the normals.
-                 */
-                normalBuffer.rewind();
-                while (normalBuffer.hasRemaining()) {
-                    normalBuffer.mark();
-                    tempVector.x = normalBuffer.get();
-                    tempVector.y = normalBuffer.get();
-                    tempVector.z = normalBuffer.get();
-                    physicsToMesh.getRotation().mult(tempVector, tempVector);
-
-                    normalBuffer.reset();
-                    normalBuffer.put(tempVector.x);
-                    normalBuffer.put(tempVector.y);
-                    normalBuffer.put(tempVector.z);
-                }
-            }
-        }
+        fillMesh(body, vertexToNodeMap, store, meshInLocalSpace, updateNormals,
+                physicsToMesh);
 
         store.getBuffer(VertexBuffer.Type.Position).setUpdateNeeded();
-        if (normalBuffer != null) {
+        if (updateNormals) {
             store.getBuffer(VertexBuffer.Type.Normal).setUpdateNeeded();
         }
     }
@@ -499,6 +586,275 @@ public class NativeSoftBodyUtil {
         store.getBuffer(VertexBuffer.Type.Position).setUpdateNeeded();
     }
     // *************************************************************************
+    // private methods
+
+    /**
+     * Hash the specified triple of integers, such as the bits of a standardized
+     * position or the indices of a grid cell.
+     *
+     * @param x the first integer
+     * @param y the 2nd integer
+     * @param z the 3rd integer
+     * @return a hash code
+     */
+    private static int hash(int x, int y, int z) {
+        int result = 73_856_093 * x ^ 19_349_663 * y ^ 83_492_791 * z;
+        result ^= result >>> 16;
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified Transform is an identity.
+     *
+     * @param transform the Transform to test (not null, unaffected)
+     * @return true if it's an identity, otherwise false
+     */
+    private static boolean isIdentity(Transform transform) {
+        Vector3f scale = transform.getScale(); // alias
+        Vector3f translation = transform.getTranslation(); // alias
+        Quaternion rotation = transform.getRotation(); // alias
+
+        boolean result = scale.x == 1f && scale.y == 1f && scale.z == 1f
+                && MyVector3f.isZero(translation)
+                && rotation.isIdentity();
+
+        return result;
+    }
+
+    /**
+     * Allocate the bucket-head array for a hash table that will hold the
+     * specified number of entries, with a load factor of no more than 1/2.
+     *
+     * @param numEntries the maximum number of entries (&ge;0)
+     * @return a new array, filled with -1 (empty)
+     */
+    private static int[] newBuckets(int numEntries) {
+        int numBuckets = 2 * Integer.highestOneBit(Math.max(numEntries, 1));
+        if (numBuckets < 2 * numEntries) {
+            numBuckets *= 2;
+        }
+        int[] result = new int[numBuckets];
+        Arrays.fill(result, -1);
+
+        return result;
+    }
+
+    /**
+     * Add the specified offset to every index in the specified buffer.
+     *
+     * @param indices the buffer to modify (not null, modified)
+     * @param offset the amount to add
+     */
+    private static void offsetIndices(IntBuffer indices, int offset) {
+        if (offset != 0) {
+            int size = indices.capacity();
+            for (int i = 0; i < size; ++i) {
+                indices.put(i, indices.get(i) + offset);
+            }
+        }
+    }
+
+    /**
+     * Scale, rotate, and translate every 3-D vector in the specified buffer,
+     * using bulk array operations. Scaling is applied first, then rotation.
+     *
+     * @param buffer the buffer to modify (not null, limit a multiple of 3,
+     * position unaffected)
+     * @param rotation the rotation matrix to apply (not null, unaffected)
+     * @param scale the scale factors to apply, or null for none (unaffected)
+     * @param offset the offset to add last, or null for none (unaffected)
+     */
+    private static void transformBuffer(FloatBuffer buffer, Matrix3f rotation,
+            Vector3f scale, Vector3f offset) {
+        int numFloats = buffer.limit();
+        assert numFloats % numAxes == 0 : numFloats;
+
+        float[] array = scratchTL.get();
+        if (array.length < numFloats) {
+            array = new float[numFloats];
+            scratchTL.set(array);
+        }
+
+        int savePosition = buffer.position();
+        buffer.rewind();
+        buffer.get(array, 0, numFloats);
+        /*
+         * Fold the scale factors into the matrix columns.
+         */
+        float sx = 1f;
+        float sy = 1f;
+        float sz = 1f;
+        if (scale != null) {
+            sx = scale.x;
+            sy = scale.y;
+            sz = scale.z;
+        }
+        float m00 = rotation.get(0, 0) * sx;
+        float m01 = rotation.get(0, 1) * sy;
+        float m02 = rotation.get(0, 2) * sz;
+        float m10 = rotation.get(1, 0) * sx;
+        float m11 = rotation.get(1, 1) * sy;
+        float m12 = rotation.get(1, 2) * sz;
+        float m20 = rotation.get(2, 0) * sx;
+        float m21 = rotation.get(2, 1) * sy;
+        float m22 = rotation.get(2, 2) * sz;
+
+        float ox = 0f;
+        float oy = 0f;
+        float oz = 0f;
+        if (offset != null) {
+            ox = offset.x;
+            oy = offset.y;
+            oz = offset.z;
+        }
+
+        for (int i = 0; i < numFloats; i += numAxes) {
+            float x = array[i];
+            float y = array[i + 1];
+            float z = array[i + 2];
+            array[i] = m00 * x + m01 * y + m02 * z + ox;
+            array[i + 1] = m10 * x + m11 * y + m12 * z + oy;
+            array[i + 2] = m20 * x + m21 * y + m22 * z + oz;
+        }
+
+        buffer.rewind();
+        buffer.put(array, 0, numFloats);
+        buffer.position(savePosition);
+    }
+
+    /**
+     * Map vertices with bitwise-identical (standardized) positions to the same
+     * index, using a hash table whose chains are threaded through an int
+     * array.
+     *
+     * @param positions the standardized vertex positions (not null,
+     * unaffected)
+     * @param storeMap storage for the index map (not null, length =
+     * positions.length/3, modified)
+     */
+    private static void weldExact(float[] positions, int[] storeMap) {
+        int numVertices = storeMap.length;
+        int[] buckets = newBuckets(numVertices);
+        int mask = buckets.length - 1;
+        int[] nextInChain = new int[numVertices]; // indexed by mapped index
+        int[] firstVertex = new int[numVertices]; // indexed by mapped index
+        int numMapped = 0;
+
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            int start = numAxes * vertexIndex;
+            int xBits = Float.floatToIntBits(positions[start]);
+            int yBits = Float.floatToIntBits(positions[start + 1]);
+            int zBits = Float.floatToIntBits(positions[start + 2]);
+            int bucket = hash(xBits, yBits, zBits) & mask;
+
+            int mappedIndex = buckets[bucket];
+            while (mappedIndex != -1) {
+                int repStart = numAxes * firstVertex[mappedIndex];
+                if (Float.floatToIntBits(positions[repStart]) == xBits
+                        && Float.floatToIntBits(positions[repStart + 1])
+                        == yBits
+                        && Float.floatToIntBits(positions[repStart + 2])
+                        == zBits) {
+                    break;
+                }
+                mappedIndex = nextInChain[mappedIndex];
+            }
+
+            if (mappedIndex == -1) {
+                mappedIndex = numMapped;
+                ++numMapped;
+                firstVertex[mappedIndex] = vertexIndex;
+                nextInChain[mappedIndex] = buckets[bucket];
+                buckets[bucket] = mappedIndex;
+            }
+            storeMap[vertexIndex] = mappedIndex;
+        }
+    }
+
+    /**
+     * Map vertices whose positions lie within the specified distance of each
+     * other to the same index, using a spatial hash with cubic cells whose
+     * edges are twice the tolerance, so only the 8 cells nearest to each
+     * vertex need be searched.
+     *
+     * @param positions the standardized vertex positions (not null,
+     * unaffected)
+     * @param tolerance the maximum distance between merged positions (&gt;0)
+     * @param storeMap storage for the index map (not null, length =
+     * positions.length/3, modified)
+     */
+    private static void weldWithin(float[] positions, float tolerance,
+            int[] storeMap) {
+        int numVertices = storeMap.length;
+        int[] buckets = newBuckets(numVertices);
+        int mask = buckets.length - 1;
+        int[] nextInChain = new int[numVertices]; // indexed by mapped index
+        int[] firstVertex = new int[numVertices]; // indexed by mapped index
+        int numMapped = 0;
+
+        float invCellSize = 0.5f / tolerance;
+        float toleranceSquared = tolerance * tolerance;
+
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            int start = numAxes * vertexIndex;
+            float x = positions[start];
+            float y = positions[start + 1];
+            float z = positions[start + 2];
+            float gridX = x * invCellSize;
+            float gridY = y * invCellSize;
+            float gridZ = z * invCellSize;
+            int cellX = (int) Math.floor(gridX);
+            int cellY = (int) Math.floor(gridY);
+            int cellZ = (int) Math.floor(gridZ);
+            /*
+             * Only the neighbor on the nearer side of each axis can hold
+             * a vertex within tolerance.
+             */
+            int stepX = (gridX - cellX < 0.5f) ? -1 : 1;
+            int stepY = (gridY - cellY < 0.5f) ? -1 : 1;
+            int stepZ = (gridZ - cellZ < 0.5f) ? -1 : 1;
+            /*
+             * Search those 8 cells for the lowest-numbered
+             * mapped vertex within tolerance.
+             */
+            int bestIndex = Integer.MAX_VALUE;
+            for (int dx = 0; dx <= 1; ++dx) {
+                for (int dy = 0; dy <= 1; ++dy) {
+                    for (int dz = 0; dz <= 1; ++dz) {
+                        int bucket = hash(cellX + dx * stepX,
+                                cellY + dy * stepY, cellZ + dz * stepZ) & mask;
+                        int mappedIndex = buckets[bucket];
+                        while (mappedIndex != -1) {
+                            if (mappedIndex < bestIndex) {
+                                int repStart
+                                        = numAxes * firstVertex[mappedIndex];
+                                float ex = positions[repStart] - x;
+                                float ey = positions[repStart + 1] - y;
+                                float ez = positions[repStart + 2] - z;
+                                float ds = ex * ex + ey * ey + ez * ez;
+                                if (ds <= toleranceSquared) {
+                                    bestIndex = mappedIndex;
+                                }
+                            }
+                            mappedIndex = nextInChain[mappedIndex];
+                        }
+                    }
+                }
+            }
+
+            if (bestIndex == Integer.MAX_VALUE) {
+                bestIndex = numMapped;
+                ++numMapped;
+                firstVertex[bestIndex] = vertexIndex;
+                int bucket = hash(cellX, cellY, cellZ) & mask;
+                nextInChain[bestIndex] = buckets[bucket];
+                buckets[bucket] = bestIndex;
+            }
+            storeMap[vertexIndex] = bestIndex;
+        }
+    }
+    // *************************************************************************
     // native private methods
 
     native private static void updateClusterMesh(long softBodyId,
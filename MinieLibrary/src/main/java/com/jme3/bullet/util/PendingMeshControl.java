@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.control.AbstractControl;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Control to replace the placeholder mesh of a debug Geometry once its
+ * debug mesh has been generated in the background. The replacement occurs
+ * during the logical-state update, on the render thread, after which the
+ * control removes itself.
+ */
+class PendingMeshControl extends AbstractControl {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PendingMeshControl.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * result of the background generation (not null)
+     */
+    final private Future<Mesh> future;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an enabled control for the specified pending mesh.
+     *
+     * @param future the result of the background generation (not null, alias
+     * created)
+     */
+    PendingMeshControl(Future<Mesh> future) {
+        assert future != null;
+        this.future = future;
+    }
+    // *************************************************************************
+    // AbstractControl methods
+
+    /**
+     * Callback invoked when the spatial is about to be rendered to a ViewPort.
+     *
+     * @param rm the render manager (unused)
+     * @param vp the view port to render (unused)
+     */
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        // do nothing
+    }
+
+    /**
+     * Callback invoked once per frame, provided the control is enabled and
+     * added to a scene.
+     *
+     * @param tpf the time interval between frames (in seconds, &ge;0)
+     */
+    @Override
+    protected void controlUpdate(float tpf) {
+        if (!future.isDone()) {
+            return;
+        }
+
+        Mesh mesh;
+        try {
+            mesh = future.get();
+        } catch (ExecutionException | InterruptedException exception) {
+            logger.log(Level.WARNING,
+                    "Debug-mesh generation failed; keeping the placeholder.",
+                    exception);
+            mesh = null;
+        }
+
+        Geometry geometry = (Geometry) spatial;
+        if (mesh != null) {
+            geometry.setMesh(mesh);
+            geometry.updateModelBound();
+        }
+        geometry.removeControl(this);
+    }
+}
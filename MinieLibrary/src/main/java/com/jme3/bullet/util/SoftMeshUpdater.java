@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.math.Transform;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * An AppState to synchronize the meshes of many soft bodies in one batch,
+ * optionally in parallel on a pool of worker threads.
+ * <p>
+ * Requests accumulate via
+ * {@link #add(com.jme3.bullet.objects.PhysicsSoftBody, java.nio.IntBuffer, com.jme3.scene.Geometry, boolean, boolean, com.jme3.math.Transform)}
+ * (typically from SoftBodyControl) and are processed by {@link #updateAll()},
+ * which is invoked during each update while this state is attached. The
+ * buffers and model bounds are filled on the workers; only the upload flags
+ * and bound refreshes are applied on the invoking thread.
+ */
+public class SoftMeshUpdater extends AbstractAppState {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SoftMeshUpdater.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * executor for the workers, or null to process requests on the invoking
+     * thread
+     */
+    final private ExecutorService executor;
+    /**
+     * requests added since the previous batch
+     */
+    final private List<Request> pending = new ArrayList<>(64);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an enabled updater with no pending requests.
+     *
+     * @param executor the executor for parallel processing (alias created) or
+     * null to process requests on the invoking thread
+     */
+    public SoftMeshUpdater(ExecutorService executor) {
+        this.executor = executor;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Request an update of the specified Geometry from the nodes in the
+     * specified soft body, during the next batch. The arguments are the same
+     * as for
+     * {@link NativeSoftBodyUtil#updateMesh(com.jme3.bullet.objects.PhysicsSoftBody, java.nio.IntBuffer, com.jme3.scene.Mesh, boolean, boolean, com.jme3.math.Transform)}.
+     *
+     * @param body the soft body to provide locations and normals (not null,
+     * alias created)
+     * @param vertexToNodeMap the index map to apply (must be direct, alias
+     * created) or null for identity
+     * @param geometry the Geometry to update (not null, mesh buffers must be
+     * direct, alias created)
+     * @param meshInLocalSpace if true, transform node locations into the body's
+     * local coordinates, otherwise use physics-space coordinates
+     * @param updateNormals if true, update the normal buffer, otherwise ignore
+     * the normal buffer
+     * @param physicsToMesh the coordinate transform to apply, or null for
+     * identity (unaffected)
+     */
+    public void add(PhysicsSoftBody body, IntBuffer vertexToNodeMap,
+            Geometry geometry, boolean meshInLocalSpace, boolean updateNormals,
+            Transform physicsToMesh) {
+        Validate.nonNull(body, "body");
+        Validate.nonNull(geometry, "geometry");
+
+        Transform transform = null;
+        if (physicsToMesh != null) {
+            transform = physicsToMesh.clone(); // TODO garbage
+        }
+        Request request = new Request(body, vertexToNodeMap, geometry,
+                meshInLocalSpace, updateNormals, transform);
+        pending.add(request);
+    }
+
+    /**
+     * Count the pending requests.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPending() {
+        int result = pending.size();
+        return result;
+    }
+
+    /**
+     * Access the executor used for parallel processing.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Process all pending requests as a single batch and wait for them to
+     * complete. Must be invoked on the render thread, while no physics step
+     * is in progress.
+     */
+    public void updateAll() {
+        int numRequests = pending.size();
+        if (numRequests == 0) {
+            return;
+        }
+
+        if (executor == null || numRequests == 1) {
+            for (Request request : pending) {
+                request.call();
+            }
+        } else {
+            List<Future<Void>> futures;
+            try {
+                futures = executor.invokeAll(pending);
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                pending.clear();
+                throw new IllegalStateException(exception);
+            } catch (ExecutionException exception) {
+                pending.clear();
+                throw new IllegalStateException(exception.getCause());
+            }
+        }
+        /*
+         * Flag the modified buffers and refresh the bounds.
+         */
+        for (Request request : pending) {
+            request.finish();
+        }
+        pending.clear();
+    }
+    // *************************************************************************
+    // AbstractAppState methods
+
+    /**
+     * Update this state prior to rendering. Invoked once per frame, provided
+     * the state is attached and enabled.
+     *
+     * @param tpf the time interval between frames (in seconds, &ge;0)
+     */
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        updateAll();
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * A single pending mesh update.
+     */
+    private static class Request implements Callable<Void> {
+        /**
+         * true to transform node locations into the body's local coordinates
+         */
+        final private boolean meshInLocalSpace;
+        /**
+         * true to update the normal buffer
+         */
+        final private boolean updateNormals;
+        /**
+         * Geometry to update
+         */
+        final private Geometry geometry;
+        /**
+         * index map to apply, or null for identity
+         */
+        final private IntBuffer vertexToNodeMap;
+        /**
+         * soft body to provide locations and normals
+         */
+        final private PhysicsSoftBody body;
+        /**
+         * coordinate transform to apply, or null for identity
+         */
+        final private Transform physicsToMesh;
+
+        /**
+         * Instantiate a request.
+         *
+         * @param body the soft body (not null, alias created)
+         * @param vertexToNodeMap the index map (alias created) or null
+         * @param geometry the Geometry to update (not null, alias created)
+         * @param meshInLocalSpace true for local coordinates
+         * @param updateNormals true to update normals
+         * @param physicsToMesh the transform (alias created) or null
+         */
+        Request(PhysicsSoftBody body, IntBuffer vertexToNodeMap,
+                Geometry geometry, boolean meshInLocalSpace,
+                boolean updateNormals, Transform physicsToMesh) {
+            this.body = body;
+            this.vertexToNodeMap = vertexToNodeMap;
+            this.geometry = geometry;
+            this.meshInLocalSpace = meshInLocalSpace;
+            this.updateNormals = updateNormals;
+            this.physicsToMesh = physicsToMesh;
+        }
+
+        /**
+         * Fill the mesh buffers and recalculate the model bound. Safe to
+         * invoke on a worker thread.
+         *
+         * @return null
+         */
+        @Override
+        public Void call() {
+            Mesh mesh = geometry.getMesh();
+            NativeSoftBodyUtil.fillMesh(body, vertexToNodeMap, mesh,
+                    meshInLocalSpace, updateNormals, physicsToMesh);
+            mesh.updateBound();
+
+            return null;
+        }
+
+        /**
+         * Flag the modified buffers for upload and refresh the bounds of the
+         * Geometry and its ancestors. Must be invoked on the render thread.
+         */
+        void finish() {
+            Mesh mesh = geometry.getMesh();
+            mesh.getBuffer(VertexBuffer.Type.Position).setUpdateNeeded();
+            if (updateNormals) {
+                mesh.getBuffer(VertexBuffer.Type.Normal).setUpdateNeeded();
+            }
+            geometry.setModelBound(mesh.getBound());
+        }
+    }
+}
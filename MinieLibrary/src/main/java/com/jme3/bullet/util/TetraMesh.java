@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.util.BufferUtils;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * An immutable tetrahedral decomposition of a closed triangle mesh, suitable
+ * for building a volumetric soft body. Generate one using
+ * {@link Tetrahedralizer} or load one using {@link TetraMeshCache}, then
+ * append it to a body using
+ * {@link NativeSoftBodyUtil#appendFromTetraMesh(com.jme3.bullet.util.TetraMesh, com.jme3.bullet.objects.PhysicsSoftBody)}.
+ */
+public class TetraMesh {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * first word of the serialized form ("TETM" in ASCII)
+     */
+    final private static int magic = 0x5445_544d;
+    /**
+     * version of the serialized form
+     */
+    final private static int version = 1;
+    /**
+     * number of vertices per tetrahedron
+     */
+    final private static int vpTetra = 4;
+    /**
+     * number of vertices per triangle
+     */
+    final private static int vpt = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(TetraMesh.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * node locations, 3 floats per node (in mesh coordinates)
+     */
+    final private float[] locations;
+    /**
+     * node indices of the surface triangles, 3 per triangle
+     */
+    final private int[] faces;
+    /**
+     * node indices of the tetrahedra, 4 per tetrahedron
+     */
+    final private int[] tetras;
+    /**
+     * node index of each vertex in the source mesh
+     */
+    final private int[] vertexToNode;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a decomposition from the specified arrays.
+     *
+     * @param locations the node locations (not null, length a multiple of 3,
+     * alias created)
+     * @param tetras the tetrahedra (not null, length a multiple of 4, alias
+     * created)
+     * @param faces the surface triangles (not null, length a multiple of 3,
+     * alias created)
+     * @param vertexToNode the map from mesh vertices to nodes (not null, alias
+     * created)
+     */
+    TetraMesh(float[] locations, int[] tetras, int[] faces,
+            int[] vertexToNode) {
+        assert locations.length % numAxes == 0 : locations.length;
+        assert tetras.length % vpTetra == 0 : tetras.length;
+        assert faces.length % vpt == 0 : faces.length;
+
+        this.locations = locations;
+        this.tetras = tetras;
+        this.faces = faces;
+        this.vertexToNode = vertexToNode;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Copy the surface triangles.
+     *
+     * @return a new direct buffer containing 3 node indices per triangle
+     */
+    public IntBuffer copyFaces() {
+        IntBuffer result = BufferUtils.createIntBuffer(faces);
+        return result;
+    }
+
+    /**
+     * Copy the map from vertices of the source mesh to nodes, for use with
+     * {@link NativeSoftBodyUtil#updateMesh(com.jme3.bullet.objects.PhysicsSoftBody, java.nio.IntBuffer, com.jme3.scene.Mesh, boolean, boolean, com.jme3.math.Transform)}.
+     *
+     * @return a new direct buffer containing one node index per vertex
+     */
+    public IntBuffer copyIndexMap() {
+        IntBuffer result = BufferUtils.createIntBuffer(vertexToNode);
+        return result;
+    }
+
+    /**
+     * Copy the node locations.
+     *
+     * @return a new direct buffer containing 3 floats per node (in mesh
+     * coordinates)
+     */
+    public FloatBuffer copyLocations() {
+        FloatBuffer result = BufferUtils.createFloatBuffer(locations);
+        return result;
+    }
+
+    /**
+     * Copy the tetrahedra.
+     *
+     * @return a new direct buffer containing 4 node indices per tetrahedron
+     */
+    public IntBuffer copyTetras() {
+        IntBuffer result = BufferUtils.createIntBuffer(tetras);
+        return result;
+    }
+
+    /**
+     * Count the surface triangles.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countFaces() {
+        int result = faces.length / vpt;
+        return result;
+    }
+
+    /**
+     * Count the nodes.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countNodes() {
+        int result = locations.length / numAxes;
+        return result;
+    }
+
+    /**
+     * Count the tetrahedra.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countTetras() {
+        int result = tetras.length / vpTetra;
+        return result;
+    }
+
+    /**
+     * Read a decomposition previously written by
+     * {@link #write(java.io.DataOutput)}.
+     *
+     * @param input the input to read from (not null)
+     * @return a new instance (not null)
+     * @throws IOException if the input can't be read or isn't in the expected
+     * format
+     */
+    public static TetraMesh read(DataInput input) throws IOException {
+        Validate.nonNull(input, "input");
+
+        int word = input.readInt();
+        if (word != magic) {
+            throw new IOException("Not a tetrahedral mesh.");
+        }
+        int readVersion = input.readInt();
+        if (readVersion != version) {
+            throw new IOException("Unsupported version " + readVersion);
+        }
+
+        int numFloats = readLength(input);
+        float[] locations = new float[numFloats];
+        for (int i = 0; i < numFloats; ++i) {
+            locations[i] = input.readFloat();
+        }
+        int[] tetras = readInts(input);
+        int[] faces = readInts(input);
+        int[] vertexToNode = readInts(input);
+
+        if (numFloats % numAxes != 0 || tetras.length % vpTetra != 0
+                || faces.length % vpt != 0) {
+            throw new IOException("Malformed tetrahedral mesh.");
+        }
+        int numNodes = numFloats / numAxes;
+        for (int[] indices : new int[][]{tetras, faces, vertexToNode}) {
+            for (int nodeIndex : indices) {
+                if (nodeIndex < 0 || nodeIndex >= numNodes) {
+                    throw new IOException("Node index out of range.");
+                }
+            }
+        }
+        TetraMesh result = new TetraMesh(locations, tetras, faces,
+                vertexToNode);
+
+        return result;
+    }
+
+    /**
+     * Calculate the total volume of the tetrahedra.
+     *
+     * @return the volume (in cubic mesh units, &ge;0)
+     */
+    public double volume() {
+        double result = 0.0;
+        int numTetras = countTetras();
+        for (int tetraIndex = 0; tetraIndex < numTetras; ++tetraIndex) {
+            int a = numAxes * tetras[vpTetra * tetraIndex];
+            int b = numAxes * tetras[vpTetra * tetraIndex + 1];
+            int c = numAxes * tetras[vpTetra * tetraIndex + 2];
+            int d = numAxes * tetras[vpTetra * tetraIndex + 3];
+
+            double bx = locations[b] - locations[a];
+            double by = locations[b + 1] - locations[a + 1];
+            double bz = locations[b + 2] - locations[a + 2];
+            double cx = locations[c] - locations[a];
+            double cy = locations[c + 1] - locations[a + 1];
+            double cz = locations[c + 2] - locations[a + 2];
+            double dx = locations[d] - locations[a];
+            double dy = locations[d + 1] - locations[a + 1];
+            double dz = locations[d + 2] - locations[a + 2];
+            double det = bx * (cy * dz - cz * dy) - by * (cx * dz - cz * dx)
+                    + bz * (cx * dy - cy * dx);
+            result += Math.abs(det) / 6.0;
+        }
+
+        return result;
+    }
+
+    /**
+     * Write this decomposition in a compact binary form.
+     *
+     * @param output the output to write to (not null)
+     * @throws IOException from the output
+     */
+    public void write(DataOutput output) throws IOException {
+        Validate.nonNull(output, "output");
+
+        output.writeInt(magic);
+        output.writeInt(version);
+        output.writeInt(locations.length);
+        for (float value : locations) {
+            output.writeFloat(value);
+        }
+        writeInts(output, tetras);
+        writeInts(output, faces);
+        writeInts(output, vertexToNode);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Read an array length and verify that it's non-negative.
+     *
+     * @param input the input to read from (not null)
+     * @return the length (&ge;0)
+     * @throws IOException if the input can't be read or the length is
+     * negative
+     */
+    private static int readLength(DataInput input) throws IOException {
+        int result = input.readInt();
+        if (result < 0) {
+            throw new IOException("Negative length " + result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Read a length-prefixed array of integers.
+     *
+     * @param input the input to read from (not null)
+     * @return a new array (not null)
+     * @throws IOException if the input can't be read
+     */
+    private static int[] readInts(DataInput input) throws IOException {
+        int length = readLength(input);
+        int[] result = new int[length];
+        for (int i = 0; i < length; ++i) {
+            result[i] = input.readInt();
+        }
+
+        return result;
+    }
+
+    /**
+     * Write a length-prefixed array of integers.
+     *
+     * @param output the output to write to (not null)
+     * @param array the integers to write (not null, unaffected)
+     * @throws IOException from the output
+     */
+    private static void writeInts(DataOutput output, int[] array)
+            throws IOException {
+        output.writeInt(array.length);
+        for (int value : array) {
+            output.writeInt(value);
+        }
+    }
+}
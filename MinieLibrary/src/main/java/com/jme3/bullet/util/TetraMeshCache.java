@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A disk-backed cache of tetrahedral decompositions. Each entry is keyed by a
+ * hash of the mesh, the interior spacing, and a format version, and holds the
+ * {@link TetraMesh} produced by {@link Tetrahedralizer}, so that on a hit the
+ * decomposition is loaded without being recomputed.
+ * <p>
+ * Entries are written to a temporary file and then renamed, so concurrent
+ * readers never observe a partial entry. Unreadable entries are ignored and
+ * replaced.
+ */
+public class TetraMeshCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes in a float or int
+     */
+    final private static int elementBytes = 4;
+    /**
+     * version of the entry format and of the tetrahedralization algorithm,
+     * hashed into each key so that entries written by an older version are
+     * never loaded: increment whenever either one changes
+     */
+    final private static int formatVersion = 1;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(TetraMeshCache.class.getName());
+    /**
+     * filename suffix for cache entries
+     */
+    final private static String suffix = ".tetra";
+    // *************************************************************************
+    // fields
+
+    /**
+     * directory containing the cache entries
+     */
+    final private File directory;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a cache in the specified directory, which is created if it
+     * doesn't exist.
+     *
+     * @param directory the cache directory (not null)
+     */
+    public TetraMeshCache(File directory) {
+        Validate.nonNull(directory, "directory");
+
+        if (!directory.isDirectory()) {
+            boolean success = directory.mkdirs();
+            if (!success && !directory.isDirectory()) {
+                String path = directory.getAbsolutePath();
+                throw new IllegalArgumentException(
+                        "Can't create cache directory " + path);
+            }
+        }
+        this.directory = directory;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Delete all entries from this cache.
+     *
+     * @return the number of entries deleted (&ge;0)
+     */
+    public int clear() {
+        int result = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(suffix) && file.delete()) {
+                    ++result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Access the directory containing the cache entries.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Calculate the cache key for the specified mesh and interior spacing. The
+     * key also depends on the format version of this class.
+     *
+     * @param mesh a triangle mesh (not null, unaffected)
+     * @param interiorSpacing the spacing of interior nodes (&ge;0)
+     * @return a hexadecimal string of 64 digits (not null)
+     */
+    public static String key(Mesh mesh, float interiorSpacing) {
+        Validate.nonNull(mesh, "mesh");
+        Validate.nonNegative(interiorSpacing, "interior spacing");
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        FloatBuffer positions = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        int numFloats = positions.limit();
+        ByteBuffer bytes = ByteBuffer.allocate(elementBytes * (numFloats + 1));
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(numFloats);
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            bytes.putFloat(positions.get(floatIndex));
+        }
+        bytes.flip();
+        digest.update(bytes);
+
+        IndexBuffer indices = mesh.getIndicesAsList();
+        int numIndices = indices.size();
+        bytes = ByteBuffer.allocate(elementBytes * (numIndices + 3));
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(numIndices);
+        for (int i = 0; i < numIndices; ++i) {
+            bytes.putInt(indices.get(i));
+        }
+        bytes.putFloat(interiorSpacing);
+        bytes.putInt(formatVersion);
+        bytes.flip();
+        digest.update(bytes);
+
+        byte[] hash = digest.digest();
+        StringBuilder builder = new StringBuilder(2 * hash.length);
+        for (byte b : hash) {
+            builder.append(String.format("%02x", b));
+        }
+        String result = builder.toString();
+
+        return result;
+    }
+
+    /**
+     * Fill the specified closed triangle mesh with tetrahedra, or load the
+     * decomposition from the cache if the same mesh was previously processed
+     * with the same spacing. See
+     * {@link Tetrahedralizer#tetrahedralize(com.jme3.scene.Mesh, float)}.
+     *
+     * @param mesh the mesh to fill (not null, unaffected)
+     * @param interiorSpacing the spacing of interior nodes (in mesh units,
+     * &ge;0, 0 &rarr; use only the mesh vertices)
+     * @return a decomposition (not null)
+     */
+    public TetraMesh tetrahedralize(Mesh mesh, float interiorSpacing) {
+        String key = key(mesh, interiorSpacing);
+        File file = new File(directory, key + suffix);
+
+        TetraMesh result = null;
+        if (file.isFile()) {
+            try {
+                result = load(file);
+            } catch (IOException exception) {
+                logger.log(Level.WARNING, "Ignoring unreadable entry {0}: {1}",
+                        new Object[]{file, exception});
+            }
+        }
+
+        if (result == null) {
+            result = Tetrahedralizer.tetrahedralize(mesh, interiorSpacing);
+            store(result, file);
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Read a decomposition from the specified file.
+     *
+     * @param file the file to read (not null)
+     * @return a new decomposition (not null)
+     * @throws IOException if the file can't be read or is malformed
+     */
+    private static TetraMesh load(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            TetraMesh result = TetraMesh.read(input);
+            return result;
+        }
+    }
+
+    /**
+     * Write the specified decomposition to the cache, logging any failure.
+     *
+     * @param tetraMesh the decomposition to write (not null, unaffected)
+     * @param file the destination file (not null)
+     */
+    private static void store(TetraMesh tetraMesh, File file) {
+        File directory = file.getParentFile();
+        try {
+            File tmpFile = File.createTempFile("tetra", ".tmp", directory);
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                tetraMesh.write(output);
+            }
+            boolean success = tmpFile.renameTo(file);
+            if (!success) {
+                tmpFile.delete();
+                logger.log(Level.WARNING, "Failed to rename {0} to {1}",
+                        new Object[]{tmpFile, file});
+            }
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, "Failed to write cache entry {0}: {1}",
+                    new Object[]{file, exception});
+        }
+    }
+}
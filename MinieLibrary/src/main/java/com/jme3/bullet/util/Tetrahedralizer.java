@@ -0,0 +1,1167 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Utility methods to fill a closed triangle mesh with tetrahedra, for use in
+ * volumetric soft bodies.
+ * <p>
+ * The welded mesh vertices (plus, optionally, a lattice of interior points)
+ * are tetrahedralized using the Bowyer-Watson Delaunay algorithm, after which
+ * any tetrahedron whose centroid lies outside the mesh is discarded. The
+ * decomposition isn't constrained to the mesh surface, so thin concave
+ * features may be approximated. The computation is deterministic, and its
+ * result may be cached on disk using {@link TetraMeshCache}.
+ */
+public class Tetrahedralizer {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * maximum number of steps in a point-location walk before falling back to
+     * an exhaustive search
+     */
+    final private static int maxWalkSteps = 10_000;
+    /**
+     * number of vertices per tetrahedron
+     */
+    final private static int vpTetra = 4;
+    /**
+     * number of vertices per triangle
+     */
+    final private static int vpt = 3;
+    /**
+     * seed for the pseudo-random jitter and insertion order
+     */
+    final private static long seed = 0x5eed_7e7aL;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(Tetrahedralizer.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private Tetrahedralizer() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Fill the specified closed triangle mesh with tetrahedra.
+     *
+     * @param mesh the mesh to fill (not null, mode Triangles, TriangleStrip,
+     * or TriangleFan, closed, unaffected)
+     * @param interiorSpacing the spacing of a cubic lattice of interior nodes
+     * to add (in mesh units, &ge;0, 0 &rarr; use only the mesh vertices)
+     * @return a new decomposition (not null)
+     */
+    public static TetraMesh tetrahedralize(Mesh mesh, float interiorSpacing) {
+        Validate.nonNull(mesh, "mesh");
+        Validate.nonNegative(interiorSpacing, "interior spacing");
+        Mesh.Mode mode = mesh.getMode();
+        Validate.require(mode == Mesh.Mode.Triangles
+                || mode == Mesh.Mode.TriangleStrip
+                || mode == Mesh.Mode.TriangleFan, "a triangle mesh");
+        /*
+         * Weld the mesh vertices to obtain the surface nodes.
+         */
+        FloatBuffer positions = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        IntBuffer indexMap = NativeSoftBodyUtil.generateIndexMap(positions);
+        FloatBuffer welded = NativeSoftBodyUtil.mapVertexData(indexMap,
+                positions, numAxes);
+        int numSurface = welded.limit() / numAxes;
+
+        IndexBuffer triangles = mesh.getIndicesAsList();
+        int[] surfaceFaces = weldFaces(triangles, indexMap);
+        /*
+         * Gather the points: surface nodes first, then interior nodes.
+         */
+        float[] surfacePoints = new float[numAxes * numSurface];
+        welded.rewind();
+        welded.get(surfacePoints);
+        InsideTester tester = new InsideTester(surfacePoints, surfaceFaces);
+        float[] points = surfacePoints;
+        if (interiorSpacing > 0f) {
+            points = addInteriorPoints(surfacePoints, tester, interiorSpacing);
+        }
+        /*
+         * Tetrahedralize all points and keep the tetrahedra inside the mesh.
+         */
+        Delaunay delaunay = new Delaunay(points);
+        delaunay.insertAll();
+        int[] tetras = delaunay.listInteriorTetras(tester);
+        TetraMesh result = compact(points, tetras, surfaceFaces, indexMap);
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, "{0} nodes, {1} tetrahedra",
+                    new Object[]{result.countNodes(), result.countTetras()});
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append a cubic lattice of interior points to the surface points,
+     * omitting any lattice point that lies outside the mesh or within half a
+     * spacing of a surface point.
+     *
+     * @param surfacePoints the surface points (not null, unaffected)
+     * @param tester the inside tester for the mesh (not null)
+     * @param spacing the lattice spacing (&gt;0)
+     * @return a new array containing the surface points followed by the
+     * interior points
+     */
+    private static float[] addInteriorPoints(float[] surfacePoints,
+            InsideTester tester, float spacing) {
+        float[] min = new float[numAxes];
+        float[] max = new float[numAxes];
+        bounds(surfacePoints, min, max);
+        /*
+         * Hash the surface points into cells, one spacing on a side.
+         */
+        int numSurface = surfacePoints.length / numAxes;
+        Map<Long, int[]> cells = new HashMap<>(numSurface);
+        for (int pointIndex = 0; pointIndex < numSurface; ++pointIndex) {
+            long key = cellKey(surfacePoints, numAxes * pointIndex, min,
+                    spacing, 0, 0, 0);
+            int[] list = cells.get(key);
+            if (list == null) {
+                list = new int[]{pointIndex};
+            } else {
+                list = Arrays.copyOf(list, list.length + 1);
+                list[list.length - 1] = pointIndex;
+            }
+            cells.put(key, list);
+        }
+
+        float minSeparationSquared = 0.25f * spacing * spacing;
+        int[] counts = new int[numAxes];
+        for (int axis = 0; axis < numAxes; ++axis) {
+            counts[axis] = (int) ((max[axis] - min[axis]) / spacing) + 1;
+        }
+        float[] result = Arrays.copyOf(surfacePoints, surfacePoints.length);
+        int numFloats = surfacePoints.length;
+        float[] lattice = new float[numAxes];
+
+        for (int i = 0; i < counts[0]; ++i) {
+            for (int j = 0; j < counts[1]; ++j) {
+                for (int k = 0; k < counts[2]; ++k) {
+                    lattice[0] = min[0] + (i + 0.5f) * spacing;
+                    lattice[1] = min[1] + (j + 0.5f) * spacing;
+                    lattice[2] = min[2] + (k + 0.5f) * spacing;
+                    if (!tester.isInside(lattice[0], lattice[1], lattice[2])
+                            || isNear(lattice, surfacePoints, cells, min,
+                                    spacing, minSeparationSquared)) {
+                        continue;
+                    }
+                    if (numFloats + numAxes > result.length) {
+                        result = Arrays.copyOf(result, 2 * result.length);
+                    }
+                    result[numFloats] = lattice[0];
+                    result[numFloats + 1] = lattice[1];
+                    result[numFloats + 2] = lattice[2];
+                    numFloats += numAxes;
+                }
+            }
+        }
+        result = Arrays.copyOf(result, numFloats);
+
+        return result;
+    }
+
+    /**
+     * Calculate the axis-aligned bounds of the specified points.
+     *
+     * @param points the point coordinates (not null, unaffected)
+     * @param storeMin storage for the minimum coordinates (not null, length=3,
+     * modified)
+     * @param storeMax storage for the maximum coordinates (not null, length=3,
+     * modified)
+     */
+    private static void bounds(float[] points, float[] storeMin,
+            float[] storeMax) {
+        Arrays.fill(storeMin, Float.POSITIVE_INFINITY);
+        Arrays.fill(storeMax, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < points.length; ++i) {
+            int axis = i % numAxes;
+            storeMin[axis] = Math.min(storeMin[axis], points[i]);
+            storeMax[axis] = Math.max(storeMax[axis], points[i]);
+        }
+    }
+
+    /**
+     * Calculate the key of the cell containing the specified point, offset by
+     * the specified number of cells along each axis.
+     *
+     * @param points the point coordinates (not null, unaffected)
+     * @param start the index of the point's first coordinate
+     * @param min the minimum coordinates of all points (not null, unaffected)
+     * @param cellSize the size of each cell (&gt;0)
+     * @param di the X offset (in cells)
+     * @param dj the Y offset (in cells)
+     * @param dk the Z offset (in cells)
+     * @return the key
+     */
+    private static long cellKey(float[] points, int start, float[] min,
+            float cellSize, int di, int dj, int dk) {
+        long i = (long) ((points[start] - min[0]) / cellSize) + di;
+        long j = (long) ((points[start + 1] - min[1]) / cellSize) + dj;
+        long k = (long) ((points[start + 2] - min[2]) / cellSize) + dk;
+        long result = (i << 42) ^ (j << 21) ^ k;
+
+        return result;
+    }
+
+    /**
+     * Discard unused points and renumber the nodes, producing the final
+     * decomposition.
+     *
+     * @param points the coordinates of all points (not null, unaffected)
+     * @param tetras the point indices of the kept tetrahedra (not null,
+     * modified)
+     * @param faces the point indices of the surface triangles (not null,
+     * modified)
+     * @param indexMap the map from mesh vertices to surface points (not null,
+     * unaffected)
+     * @return a new decomposition (not null)
+     */
+    private static TetraMesh compact(float[] points, int[] tetras,
+            int[] faces, IntBuffer indexMap) {
+        int numPoints = points.length / numAxes;
+        int[] newIndex = new int[numPoints];
+        Arrays.fill(newIndex, -1);
+        /*
+         * Surface points keep their order, so the index map stays valid.
+         */
+        int numSurface = 0;
+        int numVertices = indexMap.limit();
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            numSurface = Math.max(numSurface, indexMap.get(vertexIndex) + 1);
+        }
+        int numNodes = 0;
+        for (int pointIndex = 0; pointIndex < numSurface; ++pointIndex) {
+            newIndex[pointIndex] = numNodes;
+            ++numNodes;
+        }
+        for (int pointIndex : tetras) {
+            if (newIndex[pointIndex] == -1) {
+                newIndex[pointIndex] = numNodes;
+                ++numNodes;
+            }
+        }
+
+        float[] locations = new float[numAxes * numNodes];
+        for (int pointIndex = 0; pointIndex < numPoints; ++pointIndex) {
+            int nodeIndex = newIndex[pointIndex];
+            if (nodeIndex != -1) {
+                System.arraycopy(points, numAxes * pointIndex, locations,
+                        numAxes * nodeIndex, numAxes);
+            }
+        }
+        for (int i = 0; i < tetras.length; ++i) {
+            tetras[i] = newIndex[tetras[i]];
+        }
+        for (int i = 0; i < faces.length; ++i) {
+            faces[i] = newIndex[faces[i]];
+        }
+        int[] vertexToNode = new int[numVertices];
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            vertexToNode[vertexIndex] = newIndex[indexMap.get(vertexIndex)];
+        }
+        TetraMesh result = new TetraMesh(locations, tetras, faces,
+                vertexToNode);
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified point lies within the specified distance of
+     * any surface point.
+     *
+     * @param point the coordinates of the point to test (not null,
+     * unaffected)
+     * @param surfacePoints the coordinates of the surface points (not null,
+     * unaffected)
+     * @param cells the surface points hashed by cell (not null, unaffected)
+     * @param min the minimum coordinates of the surface points (not null,
+     * unaffected)
+     * @param cellSize the size of each cell (&gt;0)
+     * @param distanceSquared the squared distance (&ge;0)
+     * @return true if near a surface point, otherwise false
+     */
+    private static boolean isNear(float[] point, float[] surfacePoints,
+            Map<Long, int[]> cells, float[] min, float cellSize,
+            float distanceSquared) {
+        for (int di = -1; di <= 1; ++di) {
+            for (int dj = -1; dj <= 1; ++dj) {
+                for (int dk = -1; dk <= 1; ++dk) {
+                    long key = cellKey(point, 0, min, cellSize, di, dj, dk);
+                    int[] list = cells.get(key);
+                    if (list == null) {
+                        continue;
+                    }
+                    for (int pointIndex : list) {
+                        int start = numAxes * pointIndex;
+                        float dx = surfacePoints[start] - point[0];
+                        float dy = surfacePoints[start + 1] - point[1];
+                        float dz = surfacePoints[start + 2] - point[2];
+                        if (dx * dx + dy * dy + dz * dz < distanceSquared) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Map the mesh triangles to surface points, discarding any triangle that
+     * welding made degenerate.
+     *
+     * @param triangles the mesh indices, 3 per triangle (not null,
+     * unaffected)
+     * @param indexMap the map from mesh vertices to surface points (not null,
+     * unaffected)
+     * @return a new array of point indices, 3 per triangle
+     */
+    private static int[] weldFaces(IndexBuffer triangles, IntBuffer indexMap) {
+        int numIndices = triangles.size();
+        int[] result = new int[numIndices];
+        int numKept = 0;
+        for (int i = 0; i + vpt <= numIndices; i += vpt) {
+            int a = indexMap.get(triangles.get(i));
+            int b = indexMap.get(triangles.get(i + 1));
+            int c = indexMap.get(triangles.get(i + 2));
+            if (a != b && b != c && a != c) {
+                result[numKept] = a;
+                result[numKept + 1] = b;
+                result[numKept + 2] = c;
+                numKept += vpt;
+            }
+        }
+        result = Arrays.copyOf(result, numKept);
+
+        return result;
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * An incremental Delaunay tetrahedralization (Bowyer-Watson) with
+     * neighbor links, so that each insertion touches only the cavity around
+     * the new point.
+     */
+    private static class Delaunay {
+        /**
+         * circumcenter coordinates of each tetrahedron, 3 per tetrahedron
+         */
+        private double[] centers;
+        /**
+         * squared circumradius of each tetrahedron
+         */
+        private double[] radiiSquared;
+        /**
+         * jittered coordinates of all points, including the 4 vertices of the
+         * enclosing tetrahedron, 3 per point
+         */
+        final private double[] coords;
+        /**
+         * original coordinates of the input points, 3 per point
+         */
+        final private float[] points;
+        /**
+         * stamp of the insertion that found each tetrahedron in the cavity
+         */
+        private int[] badStamp;
+        /**
+         * stamp of the insertion that found each tetrahedron outside the
+         * cavity
+         */
+        private int[] goodStamp;
+        /**
+         * for each tetrahedron, the index of the neighbor opposite each
+         * vertex, or -1 for none, 4 per tetrahedron
+         */
+        private int[] neighbors;
+        /**
+         * point indices of each tetrahedron, 4 per tetrahedron, positively
+         * oriented, or -1 if the tetrahedron has been deleted
+         */
+        private int[] vertices;
+        /**
+         * indices of deleted tetrahedra available for reuse
+         */
+        private int[] freeList = new int[64];
+        /**
+         * number of input points
+         */
+        final private int numPoints;
+        /**
+         * number of valid entries in freeList
+         */
+        private int numFree = 0;
+        /**
+         * number of allocated tetrahedra, including deleted ones
+         */
+        private int numTetras = 0;
+        /**
+         * most recently created tetrahedron, where point location starts
+         */
+        private int lastTetra = 0;
+        /**
+         * current insertion stamp
+         */
+        private int stamp = 0;
+        /**
+         * generator for the jitter and insertion order
+         */
+        final private Random random = new Random(seed);
+
+        /**
+         * Prepare to tetrahedralize the specified points.
+         *
+         * @param points the point coordinates (not null, alias created)
+         */
+        Delaunay(float[] points) {
+            this.points = points;
+            numPoints = points.length / numAxes;
+
+            float[] min = new float[numAxes];
+            float[] max = new float[numAxes];
+            bounds(points, min, max);
+            double extent = 0.0;
+            for (int axis = 0; axis < numAxes; ++axis) {
+                extent = Math.max(extent, max[axis] - min[axis]);
+            }
+            if (extent == 0.0) {
+                extent = 1.0;
+            }
+            /*
+             * Jitter the points to avoid degenerate configurations,
+             * such as 4 coplanar or 5 cospherical points.
+             */
+            coords = new double[numAxes * (numPoints + vpTetra)];
+            double jitter = 1e-6 * extent;
+            for (int i = 0; i < points.length; ++i) {
+                coords[i] = points[i] + jitter * (random.nextDouble() - 0.5);
+            }
+            /*
+             * Add an enclosing tetrahedron, with legs along the axes
+             * from a corner beyond the minimum bounds.
+             */
+            double margin = 10.0 * extent;
+            double leg = 4.0 * (extent + 2.0 * margin);
+            int base = numAxes * numPoints;
+            for (int corner = 0; corner < vpTetra; ++corner) {
+                for (int axis = 0; axis < numAxes; ++axis) {
+                    double value = min[axis] - margin;
+                    if (corner == axis + 1) {
+                        value += leg;
+                    }
+                    coords[base + numAxes * corner + axis] = value;
+                }
+            }
+
+            int capacity = 8 * (numPoints + 1);
+            vertices = new int[vpTetra * capacity];
+            neighbors = new int[vpTetra * capacity];
+            centers = new double[numAxes * capacity];
+            radiiSquared = new double[capacity];
+            badStamp = new int[capacity];
+            goodStamp = new int[capacity];
+
+            int a = numPoints;
+            int b = numPoints + 1;
+            int c = numPoints + 2;
+            int d = numPoints + 3;
+            int tetra = allocate();
+            if (orient(a, b, c, d) > 0.0) {
+                setVertices(tetra, a, b, c, d);
+            } else {
+                setVertices(tetra, a, c, b, d);
+            }
+            Arrays.fill(neighbors, 0, vpTetra, -1);
+        }
+
+        /**
+         * Insert all input points, in pseudo-random order.
+         */
+        void insertAll() {
+            int[] order = new int[numPoints];
+            for (int i = 0; i < numPoints; ++i) {
+                order[i] = i;
+            }
+            for (int i = numPoints - 1; i > 0; --i) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            for (int pointIndex : order) {
+                insert(pointIndex);
+            }
+        }
+
+        /**
+         * Enumerate the tetrahedra that use only input points, aren't flat,
+         * and whose centroids lie inside the mesh.
+         *
+         * @param tester the inside tester for the mesh (not null)
+         * @return a new array of point indices, 4 per tetrahedron
+         */
+        int[] listInteriorTetras(InsideTester tester) {
+            int[] result = new int[vpTetra * numTetras];
+            int numKept = 0;
+            for (int tetra = 0; tetra < numTetras; ++tetra) {
+                int start = vpTetra * tetra;
+                if (vertices[start] == -1) {
+                    continue; // deleted
+                }
+                float cx = 0f;
+                float cy = 0f;
+                float cz = 0f;
+                boolean isEnclosing = false;
+                for (int i = 0; i < vpTetra; ++i) {
+                    int pointIndex = vertices[start + i];
+                    if (pointIndex >= numPoints) {
+                        isEnclosing = true;
+                        break;
+                    }
+                    cx += points[numAxes * pointIndex];
+                    cy += points[numAxes * pointIndex + 1];
+                    cz += points[numAxes * pointIndex + 2];
+                }
+                if (isEnclosing || isFlat(start)
+                        || !tester.isInside(cx / 4f, cy / 4f, cz / 4f)) {
+                    continue;
+                }
+                System.arraycopy(vertices, start, result, numKept, vpTetra);
+                numKept += vpTetra;
+            }
+            result = Arrays.copyOf(result, numKept);
+
+            return result;
+        }
+
+        /**
+         * Allocate a tetrahedron, reusing a deleted one if possible.
+         *
+         * @return the index of the tetrahedron
+         */
+        private int allocate() {
+            if (numFree > 0) {
+                --numFree;
+                return freeList[numFree];
+            }
+
+            int capacity = radiiSquared.length;
+            if (numTetras == capacity) {
+                int newCapacity = 2 * capacity;
+                vertices = Arrays.copyOf(vertices, vpTetra * newCapacity);
+                neighbors = Arrays.copyOf(neighbors, vpTetra * newCapacity);
+                centers = Arrays.copyOf(centers, numAxes * newCapacity);
+                radiiSquared = Arrays.copyOf(radiiSquared, newCapacity);
+                badStamp = Arrays.copyOf(badStamp, newCapacity);
+                goodStamp = Arrays.copyOf(goodStamp, newCapacity);
+            }
+            int result = numTetras;
+            ++numTetras;
+
+            return result;
+        }
+
+        /**
+         * Test whether the specified point lies inside the circumsphere of
+         * the specified tetrahedron.
+         *
+         * @param tetra the index of the tetrahedron
+         * @param pointIndex the index of the point
+         * @return true if strictly inside, otherwise false
+         */
+        private boolean inCircumsphere(int tetra, int pointIndex) {
+            int p = numAxes * pointIndex;
+            int c = numAxes * tetra;
+            double dx = coords[p] - centers[c];
+            double dy = coords[p + 1] - centers[c + 1];
+            double dz = coords[p + 2] - centers[c + 2];
+            boolean result = dx * dx + dy * dy + dz * dz < radiiSquared[tetra];
+
+            return result;
+        }
+
+        /**
+         * Insert the specified point, replacing the cavity of tetrahedra
+         * whose circumspheres contain it with a fan of new tetrahedra.
+         *
+         * @param pointIndex the index of the point to insert
+         */
+        private void insert(int pointIndex) {
+            ++stamp;
+            int first = locate(pointIndex);
+            /*
+             * Flood-fill the cavity, collecting its boundary faces.
+             */
+            int[] stack = new int[64];
+            int stackSize = 0;
+            int[] cavity = new int[64];
+            int cavitySize = 0;
+            int[] boundary = new int[64]; // pairs: tetra, face index
+            int boundarySize = 0;
+
+            badStamp[first] = stamp;
+            stack[stackSize++] = first;
+            while (stackSize > 0) {
+                int tetra = stack[--stackSize];
+                if (cavitySize == cavity.length) {
+                    cavity = Arrays.copyOf(cavity, 2 * cavitySize);
+                }
+                cavity[cavitySize++] = tetra;
+
+                for (int face = 0; face < vpTetra; ++face) {
+                    int neighbor = neighbors[vpTetra * tetra + face];
+                    boolean isBad = false;
+                    if (neighbor != -1) {
+                        if (badStamp[neighbor] == stamp) {
+                            continue; // already in the cavity
+                        } else if (goodStamp[neighbor] != stamp) {
+                            isBad = inCircumsphere(neighbor, pointIndex);
+                            if (isBad) {
+                                badStamp[neighbor] = stamp;
+                            } else {
+                                goodStamp[neighbor] = stamp;
+                            }
+                        }
+                    }
+                    if (isBad) {
+                        if (stackSize == stack.length) {
+                            stack = Arrays.copyOf(stack, 2 * stackSize);
+                        }
+                        stack[stackSize++] = neighbor;
+                    } else {
+                        if (boundarySize + 2 > boundary.length) {
+                            boundary = Arrays.copyOf(boundary,
+                                    2 * boundary.length);
+                        }
+                        boundary[boundarySize++] = tetra;
+                        boundary[boundarySize++] = face;
+                    }
+                }
+            }
+            /*
+             * Create a new tetrahedron for each boundary face by replacing
+             * the cavity vertex opposite that face with the new point.
+             */
+            int numNew = boundarySize / 2;
+            int[] newTetras = new int[numNew];
+            int[] newVertices = new int[vpTetra * numNew];
+            int[] outsideSlot = new int[numNew];
+            for (int i = 0; i < numNew; ++i) {
+                int oldTetra = boundary[2 * i];
+                int face = boundary[2 * i + 1];
+                System.arraycopy(vertices, vpTetra * oldTetra, newVertices,
+                        vpTetra * i, vpTetra);
+                newVertices[vpTetra * i + face] = pointIndex;
+                /*
+                 * Find the outside neighbor's link to the cavity now,
+                 * since cavity indices get reused below.
+                 */
+                outsideSlot[i] = -1;
+                int out = neighbors[vpTetra * oldTetra + face];
+                if (out != -1) {
+                    for (int j = 0; j < vpTetra; ++j) {
+                        if (neighbors[vpTetra * out + j] == oldTetra) {
+                            outsideSlot[i] = vpTetra * out + j;
+                            break;
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < cavitySize; ++i) {
+                release(cavity[i]);
+            }
+
+            Map<Long, Integer> openFaces = new HashMap<>(3 * numNew);
+            for (int i = 0; i < numNew; ++i) {
+                int face = boundary[2 * i + 1];
+                int tetra = allocate();
+                newTetras[i] = tetra;
+                int start = vpTetra * i;
+                setVertices(tetra, newVertices[start], newVertices[start + 1],
+                        newVertices[start + 2], newVertices[start + 3]);
+                Arrays.fill(neighbors, vpTetra * tetra,
+                        vpTetra * tetra + vpTetra, -1);
+                /*
+                 * Link across the boundary face.
+                 */
+                int slot = outsideSlot[i];
+                if (slot != -1) {
+                    neighbors[vpTetra * tetra + face] = slot / vpTetra;
+                    neighbors[slot] = tetra;
+                }
+                /*
+                 * Link to the other new tetrahedra, each of which shares
+                 * the new point plus one edge of the boundary face.
+                 */
+                for (int j = 0; j < vpTetra; ++j) {
+                    if (j == face) {
+                        continue;
+                    }
+                    int v0 = -1;
+                    int v1 = -1;
+                    for (int k = 0; k < vpTetra; ++k) {
+                        if (k != j && k != face) {
+                            int v = newVertices[start + k];
+                            if (v0 == -1) {
+                                v0 = v;
+                            } else {
+                                v1 = v;
+                            }
+                        }
+                    }
+                    long key = (Math.min(v0, v1) * 0x1_0000_0000L)
+                            + Math.max(v0, v1);
+                    Integer match = openFaces.remove(key);
+                    if (match == null) {
+                        openFaces.put(key, vpTetra * tetra + j);
+                    } else {
+                        neighbors[vpTetra * tetra + j] = match / vpTetra;
+                        neighbors[match] = tetra;
+                    }
+                }
+            }
+            assert openFaces.isEmpty() : openFaces.size();
+
+            lastTetra = newTetras[numNew - 1];
+        }
+
+        /**
+         * Test whether the tetrahedron at the specified offset is flat, using
+         * the original coordinates.
+         *
+         * @param start the offset of its first vertex in the vertices array
+         * @return true if flat, otherwise false
+         */
+        private boolean isFlat(int start) {
+            int a = numAxes * vertices[start];
+            int b = numAxes * vertices[start + 1];
+            int c = numAxes * vertices[start + 2];
+            int d = numAxes * vertices[start + 3];
+            double bx = points[b] - points[a];
+            double by = points[b + 1] - points[a + 1];
+            double bz = points[b + 2] - points[a + 2];
+            double cx = points[c] - points[a];
+            double cy = points[c + 1] - points[a + 1];
+            double cz = points[c + 2] - points[a + 2];
+            double dx = points[d] - points[a];
+            double dy = points[d + 1] - points[a + 1];
+            double dz = points[d + 2] - points[a + 2];
+            double det = bx * (cy * dz - cz * dy) - by * (cx * dz - cz * dx)
+                    + bz * (cx * dy - cy * dx);
+            double scale = (bx * bx + by * by + bz * bz)
+                    + (cx * cx + cy * cy + cz * cz)
+                    + (dx * dx + dy * dy + dz * dz);
+            boolean result = Math.abs(det) <= 1e-6 * Math.pow(scale, 1.5);
+
+            return result;
+        }
+
+        /**
+         * Find a tetrahedron whose circumsphere contains the specified point,
+         * by walking toward it from the most recently created tetrahedron.
+         *
+         * @param pointIndex the index of the point
+         * @return the index of a tetrahedron
+         */
+        private int locate(int pointIndex) {
+            int tetra = lastTetra;
+            for (int step = 0; step < maxWalkSteps; ++step) {
+                int start = vpTetra * tetra;
+                int next = -1;
+                int firstFace = random.nextInt(vpTetra);
+                for (int i = 0; i < vpTetra; ++i) {
+                    int face = (firstFace + i) % vpTetra;
+                    int saveVertex = vertices[start + face];
+                    vertices[start + face] = pointIndex;
+                    double volume = orient(vertices[start],
+                            vertices[start + 1], vertices[start + 2],
+                            vertices[start + 3]);
+                    vertices[start + face] = saveVertex;
+                    if (volume < 0.0) {
+                        next = neighbors[start + face];
+                        break;
+                    }
+                }
+                if (next == -1) {
+                    if (inCircumsphere(tetra, pointIndex)) {
+                        return tetra;
+                    }
+                    break;
+                }
+                tetra = next;
+            }
+            /*
+             * The walk failed, so search exhaustively.
+             */
+            for (tetra = 0; tetra < numTetras; ++tetra) {
+                if (vertices[vpTetra * tetra] != -1
+                        && inCircumsphere(tetra, pointIndex)) {
+                    return tetra;
+                }
+            }
+            throw new IllegalStateException("Point location failed.");
+        }
+
+        /**
+         * Calculate 6 times the signed volume of the specified tetrahedron,
+         * using the jittered coordinates.
+         *
+         * @param a the index of the first point
+         * @param b the index of the 2nd point
+         * @param c the index of the 3rd point
+         * @param d the index of the 4th point
+         * @return the determinant (positive if positively oriented)
+         */
+        private double orient(int a, int b, int c, int d) {
+            int ia = numAxes * a;
+            int ib = numAxes * b;
+            int ic = numAxes * c;
+            int id = numAxes * d;
+            double bx = coords[ib] - coords[ia];
+            double by = coords[ib + 1] - coords[ia + 1];
+            double bz = coords[ib + 2] - coords[ia + 2];
+            double cx = coords[ic] - coords[ia];
+            double cy = coords[ic + 1] - coords[ia + 1];
+            double cz = coords[ic + 2] - coords[ia + 2];
+            double dx = coords[id] - coords[ia];
+            double dy = coords[id + 1] - coords[ia + 1];
+            double dz = coords[id + 2] - coords[ia + 2];
+            double result = bx * (cy * dz - cz * dy)
+                    - by * (cx * dz - cz * dx) + bz * (cx * dy - cy * dx);
+
+            return result;
+        }
+
+        /**
+         * Delete the specified tetrahedron and make it available for reuse.
+         *
+         * @param tetra the index of the tetrahedron
+         */
+        private void release(int tetra) {
+            vertices[vpTetra * tetra] = -1;
+            if (numFree == freeList.length) {
+                freeList = Arrays.copyOf(freeList, 2 * numFree);
+            }
+            freeList[numFree] = tetra;
+            ++numFree;
+        }
+
+        /**
+         * Assign vertices to the specified tetrahedron and calculate its
+         * circumsphere.
+         *
+         * @param tetra the index of the tetrahedron
+         * @param a the index of the first point
+         * @param b the index of the 2nd point
+         * @param c the index of the 3rd point
+         * @param d the index of the 4th point
+         */
+        private void setVertices(int tetra, int a, int b, int c, int d) {
+            int start = vpTetra * tetra;
+            vertices[start] = a;
+            vertices[start + 1] = b;
+            vertices[start + 2] = c;
+            vertices[start + 3] = d;
+            badStamp[tetra] = 0;
+            goodStamp[tetra] = 0;
+
+            int ia = numAxes * a;
+            int ib = numAxes * b;
+            int ic = numAxes * c;
+            int id = numAxes * d;
+            double bx = coords[ib] - coords[ia];
+            double by = coords[ib + 1] - coords[ia + 1];
+            double bz = coords[ib + 2] - coords[ia + 2];
+            double cx = coords[ic] - coords[ia];
+            double cy = coords[ic + 1] - coords[ia + 1];
+            double cz = coords[ic + 2] - coords[ia + 2];
+            double dx = coords[id] - coords[ia];
+            double dy = coords[id + 1] - coords[ia + 1];
+            double dz = coords[id + 2] - coords[ia + 2];
+
+            double bb = bx * bx + by * by + bz * bz;
+            double cc = cx * cx + cy * cy + cz * cz;
+            double dd = dx * dx + dy * dy + dz * dz;
+            // cross products c×d, d×b, b×c
+            double cdx = cy * dz - cz * dy;
+            double cdy = cz * dx - cx * dz;
+            double cdz = cx * dy - cy * dx;
+            double dbx = dy * bz - dz * by;
+            double dby = dz * bx - dx * bz;
+            double dbz = dx * by - dy * bx;
+            double bcx = by * cz - bz * cy;
+            double bcy = bz * cx - bx * cz;
+            double bcz = bx * cy - by * cx;
+            double denominator = 2.0 * (bx * cdx + by * cdy + bz * cdz);
+
+            int center = numAxes * tetra;
+            if (denominator == 0.0) {
+                centers[center] = coords[ia];
+                centers[center + 1] = coords[ia + 1];
+                centers[center + 2] = coords[ia + 2];
+                radiiSquared[tetra] = Double.POSITIVE_INFINITY;
+            } else {
+                double ox = (bb * cdx + cc * dbx + dd * bcx) / denominator;
+                double oy = (bb * cdy + cc * dby + dd * bcy) / denominator;
+                double oz = (bb * cdz + cc * dbz + dd * bcz) / denominator;
+                centers[center] = coords[ia] + ox;
+                centers[center + 1] = coords[ia + 1] + oy;
+                centers[center + 2] = coords[ia + 2] + oz;
+                radiiSquared[tetra] = ox * ox + oy * oy + oz * oz;
+            }
+        }
+    }
+
+    /**
+     * Classify points as inside or outside a closed triangle mesh, by counting
+     * crossings of a ray cast in the +X direction. Triangles are bucketed by
+     * their Y-Z bounds for speed.
+     */
+    private static class InsideTester {
+        /**
+         * small offsets applied to each query point, to avoid rays that graze
+         * edges or vertices
+         */
+        final private float nudgeY;
+        final private float nudgeZ;
+        /**
+         * Y-Z bounds of the mesh and size of each bucket
+         */
+        final private float cellSize;
+        final private float minY;
+        final private float minZ;
+        /**
+         * vertex coordinates of the mesh, 3 per vertex
+         */
+        final private float[] points;
+        /**
+         * vertex indices of the triangles, 3 per triangle
+         */
+        final private int[] faces;
+        /**
+         * triangle indices, grouped by bucket
+         */
+        final private int[] bucketFaces;
+        /**
+         * offset of each bucket's group in bucketFaces, plus a final entry
+         */
+        final private int[] bucketStart;
+        /**
+         * number of buckets along each of the Y and Z axes
+         */
+        final private int gridSize;
+
+        /**
+         * Prepare to test points against the specified mesh.
+         *
+         * @param points the vertex coordinates (not null, alias created)
+         * @param faces the triangles (not null, alias created)
+         */
+        InsideTester(float[] points, int[] faces) {
+            this.points = points;
+            this.faces = faces;
+
+            float[] min = new float[numAxes];
+            float[] max = new float[numAxes];
+            bounds(points, min, max);
+            minY = min[1];
+            minZ = min[2];
+            float extent = Math.max(max[1] - minY, max[2] - minZ);
+            if (extent <= 0f) {
+                extent = 1f;
+            }
+            nudgeY = 3.14159e-5f * extent;
+            nudgeZ = 2.71828e-5f * extent;
+
+            int numFaces = faces.length / vpt;
+            gridSize = Math.max(1, (int) Math.sqrt(numFaces));
+            cellSize = extent / gridSize * 1.0001f;
+            /*
+             * Count the triangles in each bucket, then fill the buckets.
+             */
+            int numBuckets = gridSize * gridSize;
+            bucketStart = new int[numBuckets + 1];
+            for (int face = 0; face < numFaces; ++face) {
+                int[] range = bucketRange(face);
+                for (int j = range[0]; j <= range[1]; ++j) {
+                    for (int k = range[2]; k <= range[3]; ++k) {
+                        ++bucketStart[j * gridSize + k + 1];
+                    }
+                }
+            }
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                bucketStart[bucket + 1] += bucketStart[bucket];
+            }
+            bucketFaces = new int[bucketStart[numBuckets]];
+            int[] fill = Arrays.copyOf(bucketStart, numBuckets);
+            for (int face = 0; face < numFaces; ++face) {
+                int[] range = bucketRange(face);
+                for (int j = range[0]; j <= range[1]; ++j) {
+                    for (int k = range[2]; k <= range[3]; ++k) {
+                        int bucket = j * gridSize + k;
+                        bucketFaces[fill[bucket]] = face;
+                        ++fill[bucket];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Test whether the specified point lies inside the mesh.
+         *
+         * @param x the X coordinate of the point
+         * @param y the Y coordinate of the point
+         * @param z the Z coordinate of the point
+         * @return true if inside, otherwise false
+         */
+        boolean isInside(float x, float y, float z) {
+            float py = y + nudgeY;
+            float pz = z + nudgeZ;
+            int j = clampCell((py - minY) / cellSize);
+            int k = clampCell((pz - minZ) / cellSize);
+            int bucket = j * gridSize + k;
+
+            int numCrossings = 0;
+            for (int i = bucketStart[bucket]; i < bucketStart[bucket + 1];
+                    ++i) {
+                int face = bucketFaces[i];
+                int a = numAxes * faces[vpt * face];
+                int b = numAxes * faces[vpt * face + 1];
+                int c = numAxes * faces[vpt * face + 2];
+                /*
+                 * Barycentric coordinates of (py, pz) in the Y-Z projection.
+                 */
+                double ay = points[a + 1];
+                double az = points[a + 2];
+                double e1y = points[b + 1] - ay;
+                double e1z = points[b + 2] - az;
+                double e2y = points[c + 1] - ay;
+                double e2z = points[c + 2] - az;
+                double det = e1y * e2z - e1z * e2y;
+                if (det == 0.0) {
+                    continue; // parallel to the ray
+                }
+                double qy = py - ay;
+                double qz = pz - az;
+                double u = (qy * e2z - qz * e2y) / det;
+                double v = (e1y * qz - e1z * qy) / det;
+                if (u < 0.0 || v < 0.0 || u + v > 1.0) {
+                    continue;
+                }
+                double hitX = points[a] + u * (points[b] - points[a])
+                        + v * (points[c] - points[a]);
+                if (hitX > x) {
+                    ++numCrossings;
+                }
+            }
+            boolean result = (numCrossings % 2 == 1);
+
+            return result;
+        }
+
+        /**
+         * Determine the range of buckets overlapped by the Y-Z bounds of the
+         * specified triangle.
+         *
+         * @param face the index of the triangle
+         * @return a new array: {minJ, maxJ, minK, maxK}
+         */
+        private int[] bucketRange(int face) {
+            float loY = Float.POSITIVE_INFINITY;
+            float hiY = Float.NEGATIVE_INFINITY;
+            float loZ = Float.POSITIVE_INFINITY;
+            float hiZ = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < vpt; ++i) {
+                int start = numAxes * faces[vpt * face + i];
+                loY = Math.min(loY, points[start + 1]);
+                hiY = Math.max(hiY, points[start + 1]);
+                loZ = Math.min(loZ, points[start + 2]);
+                hiZ = Math.max(hiZ, points[start + 2]);
+            }
+            int[] result = {
+                clampCell((loY - minY) / cellSize),
+                clampCell((hiY + nudgeY - minY) / cellSize),
+                clampCell((loZ - minZ) / cellSize),
+                clampCell((hiZ + nudgeZ - minZ) / cellSize)
+            };
+
+            return result;
+        }
+
+        /**
+         * Convert a scaled coordinate to a valid bucket index.
+         *
+         * @param scaled the coordinate relative to the grid (in cells)
+         * @return the index (&ge;0, &lt;gridSize)
+         */
+        private int clampCell(float scaled) {
+            int result = (int) Math.floor(scaled);
+            result = Math.max(0, Math.min(gridSize - 1, result));
+
+            return result;
+        }
+    }
+}
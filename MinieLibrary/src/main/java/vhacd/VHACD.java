@@ -14,19 +14,22 @@ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
  */
 package vhacd;
 
-import com.jme3.util.BufferUtils;
 import com.jme3.util.SafeArrayList;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 import jme3utilities.math.MyVector3f;
 
 /**
  * Utility class to perform Volumetric-Hierarchical Approximate Convex
- * Decomposition on an indexed mesh.
+ * Decomposition on an indexed mesh. For concurrent decompositions, see
+ * {@link VHACDJob}.
  */
 public class VHACD {
     // *************************************************************************
@@ -45,14 +48,15 @@ public class VHACD {
     // fields
 
     /**
-     * list of registered progress listeners
+     * list of progress listeners registered for all decompositions
      */
     final private static List<VHACDProgressListener> progressListeners
             = new SafeArrayList<>(VHACDProgressListener.class);
     /**
-     * list of hulls computed during the latest decomposition
+     * job being computed on each thread, used to route native upcalls
      */
-    private static List<VHACDHull> results;
+    final private static ThreadLocal<VHACDJob> currentJob
+            = new ThreadLocal<>();
     // *************************************************************************
     // constructors
 
@@ -65,7 +69,9 @@ public class VHACD {
     // new methods exposed
 
     /**
-     * Register the specified progress listener.
+     * Register the specified progress listener. Listeners registered here are
+     * notified of progress for every decomposition, on the thread performing
+     * it.
      *
      * @param listener the listener to register (not null, alias created)
      */
@@ -93,12 +99,51 @@ public class VHACD {
         assert positions.length % MyVector3f.numAxes == 0 : positions.length;
         assert indices.length % vpt == 0 : indices.length;
 
-        FloatBuffer b_pos = BufferUtils.createFloatBuffer(positions);
-        IntBuffer b_ind = BufferUtils.createIntBuffer(indices);
-        results = new ArrayList<>(50);
-        compute(b_pos, b_ind, params.nativeId(), params.getDebugEnabled());
+        VHACDJob job = new VHACDJob(positions, indices, params);
+        List<VHACDHull> result = job.compute();
 
-        return results;
+        return result;
+    }
+
+    /**
+     * Generate convex hulls to approximate the specified mesh, reading the
+     * input directly from the specified buffers, without copying it.
+     *
+     * @param positions the positions of all mesh vertices (not null, direct,
+     * capacity a multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null,
+     * direct, capacity a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, unaffected)
+     * @return a new list of hulls, or an empty list if the algorithm failed
+     */
+    public static List<VHACDHull> compute(FloatBuffer positions,
+            IntBuffer indices, VHACDParameters params) {
+        VHACDJob job = new VHACDJob(positions, indices, params);
+        List<VHACDHull> result = job.compute();
+
+        return result;
+    }
+
+    /**
+     * Perform the specified job's decomposition on the current thread.
+     *
+     * @param job the job being computed (not null)
+     * @param positions the positions of all mesh vertices (not null, direct)
+     * @param indices the vertex indices of all mesh triangles (not null,
+     * direct)
+     * @param params the tuning parameters to use (not null)
+     */
+    static void compute(VHACDJob job, FloatBuffer positions,
+            IntBuffer indices, VHACDParameters params) {
+        assert currentJob.get() == null;
+
+        currentJob.set(job);
+        try {
+            compute(positions, indices, params.nativeId(),
+                    params.getDebugEnabled());
+        } finally {
+            currentJob.remove();
+        }
     }
 
     /**
@@ -112,6 +157,29 @@ public class VHACD {
         boolean success = progressListeners.remove(listener);
         assert success;
     }
+
+    /**
+     * Submit multiple decomposition jobs to the specified executor, so they
+     * can be computed concurrently.
+     *
+     * @param jobs the jobs to submit (not null, none started)
+     * @param executor the executor to use (not null)
+     * @return a new list of futures, in the same order as the jobs
+     */
+    public static List<Future<List<VHACDHull>>> submitAll(
+            Collection<? extends VHACDJob> jobs, ExecutorService executor) {
+        Validate.nonNull(jobs, "jobs");
+        Validate.nonNull(executor, "executor");
+
+        int numJobs = jobs.size();
+        List<Future<List<VHACDHull>>> result = new ArrayList<>(numJobs);
+        for (VHACDJob job : jobs) {
+            Future<List<VHACDHull>> future = executor.submit(job);
+            result.add(future);
+        }
+
+        return result;
+    }
     // *************************************************************************
     // private methods
 
@@ -122,7 +190,8 @@ public class VHACD {
      */
     private static void addHull(long hullId) {
         VHACDHull hull = new VHACDHull(hullId);
-        results.add(hull);
+        VHACDJob job = currentJob.get();
+        job.addHull(hull);
     }
 
     /**
@@ -144,6 +213,10 @@ public class VHACD {
             listener.update(overallPercent, stagePercent,
                     operationPercent, stageName, operationName);
         }
+
+        VHACDJob job = currentJob.get();
+        job.update(overallPercent, stagePercent, operationPercent, stageName,
+                operationName);
     }
     // *************************************************************************
     // native private methods
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package vhacd;
+
+import com.jme3.util.BufferUtils;
+import com.jme3.util.SafeArrayList;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.MyVector3f;
+
+/**
+ * A single V-HACD decomposition, with its own input, parameters, progress
+ * listeners, and results. Unlike the static methods of {@link VHACD}, jobs can
+ * run concurrently, for instance by submitting them to an ExecutorService.
+ * <p>
+ * Each job runs on the thread that invokes {@link #compute()}, and its
+ * listeners are notified on that thread.
+ */
+public class VHACDJob implements Callable<List<VHACDHull>> {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of vertices per triangle
+     */
+    final private static int vpt = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(VHACDJob.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true once the job has been cancelled
+     */
+    private volatile boolean isCancelled = false;
+    /**
+     * true once the job has started
+     */
+    private boolean isStarted = false;
+    /**
+     * vertex indices of all mesh triangles (direct)
+     */
+    final private IntBuffer indices;
+    /**
+     * positions of all mesh vertices (direct)
+     */
+    final private FloatBuffer positions;
+    /**
+     * list of registered progress listeners
+     */
+    final private List<VHACDProgressListener> progressListeners
+            = new SafeArrayList<>(VHACDProgressListener.class);
+    /**
+     * hulls computed so far
+     */
+    private List<VHACDHull> results;
+    /**
+     * tuning parameters (private copy)
+     */
+    final private VHACDParameters parameters;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a job to decompose the specified mesh.
+     *
+     * @param positions the positions of all mesh vertices (not null, length a
+     * multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null, length
+     * a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, unaffected)
+     */
+    public VHACDJob(float[] positions, int[] indices, VHACDParameters params) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+        Validate.nonNull(params, "parameters");
+        assert positions.length % MyVector3f.numAxes == 0 : positions.length;
+        assert indices.length % vpt == 0 : indices.length;
+
+        this.positions = BufferUtils.createFloatBuffer(positions);
+        this.indices = BufferUtils.createIntBuffer(indices);
+        this.parameters = params.clone();
+    }
+
+    /**
+     * Instantiate a job to decompose the mesh in the specified buffers. The
+     * buffers are read directly (from 0 to capacity) when the job is computed,
+     * so they shouldn't be modified before then.
+     *
+     * @param positions the positions of all mesh vertices (not null, direct,
+     * capacity a multiple of 3, alias created)
+     * @param indices the vertex indices of all mesh triangles (not null,
+     * direct, capacity a multiple of 3, alias created)
+     * @param params the tuning parameters to use (not null, unaffected)
+     */
+    public VHACDJob(FloatBuffer positions, IntBuffer indices,
+            VHACDParameters params) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+        Validate.nonNull(params, "parameters");
+        Validate.require(positions.isDirect(), "direct positions");
+        Validate.require(indices.isDirect(), "direct indices");
+        int numFloats = positions.capacity();
+        Validate.require(numFloats % MyVector3f.numAxes == 0,
+                "positions capacity a multiple of 3");
+        int numIndices = indices.capacity();
+        Validate.require(numIndices % vpt == 0,
+                "indices capacity a multiple of 3");
+
+        this.positions = positions;
+        this.indices = indices;
+        this.parameters = params.clone();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a hull to the result, unless the job has been cancelled.
+     *
+     * @param hull the hull to add (not null)
+     */
+    void addHull(VHACDHull hull) {
+        if (!isCancelled) {
+            results.add(hull);
+        }
+    }
+
+    /**
+     * Register the specified progress listener with this job.
+     *
+     * @param listener the listener to register (not null, alias created)
+     */
+    public void addProgressListener(VHACDProgressListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !progressListeners.contains(listener);
+
+        progressListeners.add(listener);
+    }
+
+    /**
+     * Cancel this job. If the job hasn't started, it never will. If it's
+     * running, the native decomposition runs to completion, but its progress
+     * is no longer reported and its hulls are discarded.
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * Perform the decomposition on the current thread. A job can be computed
+     * only once.
+     *
+     * @return a new list of hulls, or an empty list if the algorithm failed
+     * @throws CancellationException if the job was cancelled
+     */
+    public List<VHACDHull> compute() {
+        synchronized (this) {
+            if (isStarted) {
+                throw new IllegalStateException("Job already started.");
+            }
+            isStarted = true;
+        }
+        if (isCancelled) {
+            throw new CancellationException();
+        }
+
+        results = new ArrayList<>(50);
+        VHACD.compute(this, positions, indices, parameters);
+        if (isCancelled) {
+            throw new CancellationException();
+        }
+
+        return results;
+    }
+
+    /**
+     * Test whether this job has been cancelled.
+     *
+     * @return true if cancelled, otherwise false
+     */
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    /**
+     * De-register the specified progress listener.
+     *
+     * @param listener the listener to de-register (not null, unaffected)
+     */
+    public void removeProgressListener(VHACDProgressListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = progressListeners.remove(listener);
+        assert success;
+    }
+
+    /**
+     * Update this job's progress listeners, unless the job has been cancelled.
+     *
+     * @param overallPercent an overall completion percentage (&ge;0, &le;100)
+     * @param stagePercent a completion percentage for the current stage (&ge;0,
+     * &le;100)
+     * @param operationPercent a completion percentage for the current operation
+     * (&ge;0, &le;100)
+     * @param stageName the name of the current stage
+     * @param operationName the name of the current operation
+     */
+    void update(double overallPercent, double stagePercent,
+            double operationPercent, String stageName, String operationName) {
+        if (!isCancelled) {
+            for (VHACDProgressListener listener : progressListeners) {
+                listener.update(overallPercent, stagePercent,
+                        operationPercent, stageName, operationName);
+            }
+        }
+    }
+    // *************************************************************************
+    // Callable methods
+
+    /**
+     * Perform the decomposition. Invoked by an ExecutorService.
+     *
+     * @return a new list of hulls, or an empty list if the algorithm failed
+     * @throws CancellationException if the job was cancelled
+     */
+    @Override
+    public List<VHACDHull> call() {
+        List<VHACDHull> result = compute();
+        return result;
+    }
+}
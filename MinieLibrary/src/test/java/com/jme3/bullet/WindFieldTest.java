@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.math.Vector3f;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test sampling of a WindField.
+ */
+public class WindFieldTest {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test the sample() method.
+     */
+    @Test
+    public void testSample() {
+        WindField field = new WindField(new Vector3f(-1f, 0f, 0f), 2f, 2, 1, 1);
+        field.set(0, 0, 0, new Vector3f(0f, 0f, 0f));
+        field.set(1, 0, 0, new Vector3f(4f, 0f, -2f));
+
+        Vector3f wind = field.sample(new Vector3f(-1f, 0f, 0f), null);
+        assertEquals(0f, 0f, 0f, wind);
+
+        field.sample(new Vector3f(0.5f, 7f, -3f), wind);
+        assertEquals(3f, 0f, -1.5f, wind);
+        /*
+         * Beyond the grid, the boundary value applies.
+         */
+        field.sample(new Vector3f(9f, 0f, 0f), wind);
+        assertEquals(4f, 0f, -2f, wind);
+        field.sample(new Vector3f(-9f, 0f, 0f), wind);
+        assertEquals(0f, 0f, 0f, wind);
+
+        field.fill(new Vector3f(1f, 2f, 3f));
+        field.sample(new Vector3f(0.3f, 0f, 0f), wind);
+        assertEquals(1f, 2f, 3f, wind);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify the components of a vector, to within a small tolerance.
+     *
+     * @param x the expected X component
+     * @param y the expected Y component
+     * @param z the expected Z component
+     * @param actual the vector to verify (not null, unaffected)
+     */
+    private static void assertEquals(float x, float y, float z,
+            Vector3f actual) {
+        Assert.assertEquals(x, actual.x, 1e-5f);
+        Assert.assertEquals(y, actual.y, 1e-5f);
+        Assert.assertEquals(z, actual.z, 1e-5f);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.control;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test level selection in a SoftBodyLodControl.
+ */
+public class SoftBodyLodControlTest {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test the hysteresis of the selectLevel() method.
+     */
+    @Test
+    public void testSelectLevel() {
+        float[] maxDistances = {10f, 20f, 40f};
+        float hysteresis = 0.1f;
+        /*
+         * Without a level change, the plain thresholds apply.
+         */
+        Assert.assertEquals(0, select(5f, maxDistances, 0, hysteresis));
+        Assert.assertEquals(1, select(15f, maxDistances, 1, hysteresis));
+        Assert.assertEquals(2, select(99f, maxDistances, 2, hysteresis));
+        /*
+         * Switch to a coarser level only beyond the band: 10 * 1.1 = 11.
+         */
+        Assert.assertEquals(0, select(10.5f, maxDistances, 0, hysteresis));
+        Assert.assertEquals(0, select(11f, maxDistances, 0, hysteresis));
+        Assert.assertEquals(1, select(11.5f, maxDistances, 0, hysteresis));
+        Assert.assertEquals(2, select(30f, maxDistances, 0, hysteresis));
+        /*
+         * Switch to a finer level only within the band: 10 * 0.9 = 9.
+         */
+        Assert.assertEquals(1, select(9.5f, maxDistances, 1, hysteresis));
+        Assert.assertEquals(0, select(9f, maxDistances, 1, hysteresis));
+        Assert.assertEquals(2, select(19f, maxDistances, 2, hysteresis));
+        Assert.assertEquals(1, select(17f, maxDistances, 2, hysteresis));
+        Assert.assertEquals(0, select(1f, maxDistances, 2, hysteresis));
+        /*
+         * Without hysteresis, the thresholds are exact.
+         */
+        Assert.assertEquals(0, select(10f, maxDistances, 1, 0f));
+        Assert.assertEquals(1, select(10.01f, maxDistances, 0, 0f));
+        /*
+         * a single level
+         */
+        float[] oneLevel = {10f};
+        Assert.assertEquals(0, select(99f, oneLevel, 0, hysteresis));
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Invoke SoftBodyLodControl.selectLevel() with the specified arguments.
+     *
+     * @param distance the camera distance
+     * @param maxDistances the level thresholds (not null, unaffected)
+     * @param activeIndex the index of the active level
+     * @param hysteresis the hysteresis fraction
+     * @return the index of the selected level
+     */
+    private static int select(float distance, float[] maxDistances,
+            int activeIndex, float hysteresis) {
+        int result = SoftBodyLodControl.selectLevel(
+                distance, maxDistances, activeIndex, hysteresis);
+        return result;
+    }
+}
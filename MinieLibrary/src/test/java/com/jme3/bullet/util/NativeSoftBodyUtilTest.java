@@ -150,6 +150,68 @@ public class NativeSoftBodyUtilTest {
         verifyIndexMap(jmePositions, jme2bulletIndexMap, bulletPositions);
     }
 
+    /**
+     * Test the generateIndexMap() method with a weld tolerance.
+     */
+    @Test
+    public void testGenerateIndexMapTolerance() {
+        FloatBuffer jmePositions = FloatBuffer.wrap(
+                new float[]{
+                    0f, 0f, 0f, // P0
+                    -0f, 0f, -0f, // P1 == P0
+                    0.009f, 0f, 0f, // P2 within 0.01 of P0
+                    0.5f, 0.5f, 0.5f, // P3
+                    0.5f, 0.5f, 0.509f, // P4 within 0.01 of P3
+                    0.52f, 0.5f, 0.5f, // P5 beyond 0.01 of P3
+                    -0.006f, -0.004f, 0.004f, // P6 within 0.01 of P0
+                    0.009f, 0.009f, 0f, // P7 beyond 0.01 of P0
+                });
+
+        IntBuffer exactMap = NativeSoftBodyUtil.generateIndexMap(jmePositions);
+        Assert.assertArrayEquals(new int[]{0, 0, 1, 2, 3, 4, 5, 6},
+                toArray(exactMap));
+
+        IntBuffer weldMap
+                = NativeSoftBodyUtil.generateIndexMap(jmePositions, 0.01f);
+        Assert.assertArrayEquals(new int[]{0, 0, 0, 1, 1, 2, 0, 3},
+                toArray(weldMap));
+        /*
+         * A large grid with duplicated vertices, welded exactly and with
+         * a tolerance smaller than the grid spacing.
+         */
+        int gridSize = 40;
+        int numVertices = 2 * gridSize * gridSize * gridSize;
+        FloatBuffer gridPositions = FloatBuffer.allocate(3 * numVertices);
+        for (int copy = 0; copy < 2; ++copy) {
+            for (int i = 0; i < gridSize; ++i) {
+                for (int j = 0; j < gridSize; ++j) {
+                    for (int k = 0; k < gridSize; ++k) {
+                        float jitter = 0.001f * copy;
+                        gridPositions.put(0.1f * i + jitter)
+                                .put(0.1f * j).put(0.1f * k);
+                    }
+                }
+            }
+        }
+        gridPositions.flip();
+        int numDistinct = gridSize * gridSize * gridSize;
+
+        weldMap = NativeSoftBodyUtil.generateIndexMap(gridPositions, 0.01f);
+        int[] weldArray = toArray(weldMap);
+        for (int vIndex = 0; vIndex < numVertices; ++vIndex) {
+            Assert.assertEquals(vIndex % numDistinct, weldArray[vIndex]);
+        }
+
+        exactMap = NativeSoftBodyUtil.generateIndexMap(gridPositions);
+        int[] exactArray = toArray(exactMap);
+        for (int vIndex = 0; vIndex < numDistinct; ++vIndex) {
+            Assert.assertEquals(vIndex, exactArray[vIndex]);
+        }
+        for (int vIndex = numDistinct; vIndex < numVertices; ++vIndex) {
+            Assert.assertTrue(exactArray[vIndex] >= numDistinct);
+        }
+    }
+
     /**
      * Test the mapIndices() method.
      */
@@ -236,6 +298,15 @@ public class NativeSoftBodyUtilTest {
         verifyIndexMap(jmePositions, jme2bulletIndexMap, bulletPositions);
     }
 
+    private static int[] toArray(IntBuffer buffer) {
+        int[] result = new int[buffer.limit()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = buffer.get(i);
+        }
+
+        return result;
+    }
+
     private static void verifyIndexMap(FloatBuffer jmePositions,
             IntBuffer jme2bulletIndexMap, FloatBuffer bulletPositions) {
         int size = jme2bulletIndexMap.capacity();
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2021 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Torus;
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the Tetrahedralizer and TetraMeshCache classes.
+ */
+public class TetrahedralizerTest {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test the cache by decomposing the same mesh twice.
+     *
+     * @throws IOException if the temporary directory can't be created
+     */
+    @Test
+    public void testCache() throws IOException {
+        File directory = Files.createTempDirectory("tetra").toFile();
+        TetraMeshCache cache = new TetraMeshCache(directory);
+        Mesh box = new Box(1f, 2f, 3f);
+
+        TetraMesh generated = cache.tetrahedralize(box, 1f);
+        TetraMesh loaded = cache.tetrahedralize(box, 1f);
+        Assert.assertNotSame(generated, loaded);
+        Assert.assertEquals(generated.countNodes(), loaded.countNodes());
+        Assert.assertEquals(generated.countTetras(), loaded.countTetras());
+        Assert.assertEquals(generated.copyTetras(), loaded.copyTetras());
+        Assert.assertEquals(generated.copyIndexMap(), loaded.copyIndexMap());
+
+        String key1 = TetraMeshCache.key(box, 1f);
+        String key2 = TetraMeshCache.key(box, 0.5f);
+        Assert.assertNotEquals(key1, key2);
+
+        Assert.assertEquals(1, cache.clear());
+        Assert.assertTrue(directory.delete());
+    }
+
+    /**
+     * Test the decomposition of a box.
+     */
+    @Test
+    public void testTetrahedralizeBox() {
+        Mesh box = new Box(1f, 1f, 1f);
+
+        TetraMesh surfaceOnly = Tetrahedralizer.tetrahedralize(box, 0f);
+        Assert.assertEquals(8, surfaceOnly.countNodes());
+        Assert.assertEquals(12, surfaceOnly.countFaces());
+        Assert.assertEquals(8.0, surfaceOnly.volume(), 1e-4);
+
+        TetraMesh filled = Tetrahedralizer.tetrahedralize(box, 0.5f);
+        Assert.assertEquals(8 + 4 * 4 * 4, filled.countNodes());
+        Assert.assertEquals(8.0, filled.volume(), 1e-4);
+        /*
+         * Every mesh vertex should map to one of the 8 surface nodes.
+         */
+        int numVertices = box.getVertexCount();
+        Assert.assertEquals(numVertices, filled.copyIndexMap().capacity());
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            int nodeIndex = filled.copyIndexMap().get(vertexIndex);
+            Assert.assertTrue(nodeIndex >= 0 && nodeIndex < 8);
+        }
+    }
+
+    /**
+     * Test the decomposition of a non-convex mesh.
+     */
+    @Test
+    public void testTetrahedralizeTorus() {
+        Mesh torus = new Torus(32, 16, 0.5f, 2f);
+        double enclosedVolume = enclosedVolume(torus);
+
+        TetraMesh tetraMesh = Tetrahedralizer.tetrahedralize(torus, 0.25f);
+        Assert.assertTrue(tetraMesh.countTetras() > 0);
+        double volume = tetraMesh.volume();
+        Assert.assertEquals(enclosedVolume, volume, 0.05 * enclosedVolume);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the volume enclosed by a closed triangle mesh, using the
+     * divergence theorem.
+     *
+     * @param mesh the mesh to measure (not null, unaffected)
+     * @return the absolute volume
+     */
+    private static double enclosedVolume(Mesh mesh) {
+        FloatBuffer positions = mesh.getFloatBuffer(VertexBuffer.Type.Position);
+        IndexBuffer indices = mesh.getIndicesAsList();
+        double sum = 0.0;
+        for (int i = 0; i < indices.size(); i += 3) {
+            int a = 3 * indices.get(i);
+            int b = 3 * indices.get(i + 1);
+            int c = 3 * indices.get(i + 2);
+            double ax = positions.get(a);
+            double ay = positions.get(a + 1);
+            double az = positions.get(a + 2);
+            double bx = positions.get(b);
+            double by = positions.get(b + 1);
+            double bz = positions.get(b + 2);
+            double cx = positions.get(c);
+            double cy = positions.get(c + 1);
+            double cz = positions.get(c + 2);
+            sum += ax * (by * cz - bz * cy) - ay * (bx * cz - bz * cx)
+                    + az * (bx * cy - by * cx);
+        }
+        double result = Math.abs(sum) / 6.0;
+
+        return result;
+    }
+}
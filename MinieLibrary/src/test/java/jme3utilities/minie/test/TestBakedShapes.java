@@ -0,0 +1,194 @@
+/*
+ Copyright (c) 2021, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.GImpactCollisionShape;
+import com.jme3.bullet.collision.shapes.HullCollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.ChildCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.bullet.util.BakedShapeUtil;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.shape.Sphere;
+import com.jme3.system.NativeLibraryLoader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import org.junit.Test;
+
+/**
+ * Test saving and loading collision shapes in the baked format.
+ */
+public class TestBakedShapes {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test saving and loading collision shapes in the baked format.
+     *
+     * @throws IOException if a temporary file cannot be written or read
+     */
+    @Test
+    public void testBakedShapes() throws IOException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        Mesh sphere = new Sphere(8, 12, 1f);
+        IndexedMesh indexedMesh = new IndexedMesh(sphere);
+        /*
+         * a compound with a shared submesh and a shared child
+         */
+        MeshCollisionShape mcs = new MeshCollisionShape(true, indexedMesh);
+        GImpactCollisionShape gimpact = new GImpactCollisionShape(indexedMesh);
+        HullCollisionShape hull = new HullCollisionShape(sphere);
+        hull.setMargin(0.1f);
+        hull.setScale(new Vector3f(1f, 2f, 3f));
+
+        CompoundCollisionShape compound = new CompoundCollisionShape();
+        compound.addChildShape(mcs, 1f, 0f, 0f);
+        compound.addChildShape(gimpact, 0f, 2f, 0f);
+        compound.addChildShape(hull, 0f, 0f, 3f);
+        compound.addChildShape(hull, 0f, 0f, -3f);
+        /*
+         * round trip through a heap buffer
+         */
+        byte[] bytes = BakedShapeUtil.toBytes(compound);
+        CollisionShape copy = BakedShapeUtil.loadShape(ByteBuffer.wrap(bytes));
+        verifyCompound(compound, copy);
+        /*
+         * round trip through a direct buffer
+         */
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.order(ByteOrder.nativeOrder());
+        direct.put(bytes);
+        direct.flip();
+        copy = BakedShapeUtil.loadShape(direct);
+        verifyCompound(compound, copy);
+        /*
+         * round trip through a memory-mapped file
+         */
+        File file = File.createTempFile("baked", ".mbps");
+        file.deleteOnExit();
+        BakedShapeUtil.save(compound, file);
+        copy = BakedShapeUtil.loadShape(file);
+        verifyCompound(compound, copy);
+        /*
+         * an uncompressed mesh shape keeps its setting
+         */
+        MeshCollisionShape uncompressed
+                = new MeshCollisionShape(false, indexedMesh);
+        bytes = BakedShapeUtil.toBytes(uncompressed);
+        copy = BakedShapeUtil.loadShape(ByteBuffer.wrap(bytes));
+        assert !((MeshCollisionShape) copy).isCompressed();
+
+        BakedShapeUtil.save(indexedMesh, file);
+        IndexedMesh meshCopy = BakedShapeUtil.loadIndexedMesh(file);
+        verifyMesh(indexedMesh, meshCopy);
+        /*
+         * invalid data
+         */
+        bytes[4] = 99; // unsupported format version
+        try {
+            BakedShapeUtil.loadShape(ByteBuffer.wrap(bytes));
+            assert false;
+        } catch (IOException exception) {
+            // expected
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that a loaded compound shape matches its original.
+     *
+     * @param original the original shape (not null, unaffected)
+     * @param loaded the loaded shape (not null, unaffected)
+     */
+    private static void verifyCompound(CompoundCollisionShape original,
+            CollisionShape loaded) {
+        assert loaded instanceof CompoundCollisionShape;
+        CompoundCollisionShape compound = (CompoundCollisionShape) loaded;
+        assert compound.countChildren() == original.countChildren();
+        assert compound.countRetainedBytes() > 0L;
+        assert compound.countRetainedBytes() == original.countRetainedBytes();
+
+        ChildCollisionShape[] children = compound.listChildren();
+        ChildCollisionShape[] originals = original.listChildren();
+        for (int i = 0; i < children.length; ++i) {
+            CollisionShape child = children[i].getShape();
+            CollisionShape originalChild = originals[i].getShape();
+            assert child.getClass() == originalChild.getClass();
+            assert child.getMargin() == originalChild.getMargin();
+            assert child.getScale(null).equals(originalChild.getScale(null));
+            assert children[i].copyOffset(null).equals(
+                    originals[i].copyOffset(null));
+        }
+        assert children[2].getShape() == children[3].getShape();
+
+        MeshCollisionShape mcs = (MeshCollisionShape) children[0].getShape();
+        GImpactCollisionShape gimpact
+                = (GImpactCollisionShape) children[1].getShape();
+        assert mcs.isCompressed();
+        assert mcs.getSubmesh(0) == gimpact.getSubmesh(0);
+        MeshCollisionShape originalMcs
+                = (MeshCollisionShape) originals[0].getShape();
+        verifyMesh(originalMcs.getSubmesh(0), mcs.getSubmesh(0));
+
+        HullCollisionShape hull = (HullCollisionShape) children[2].getShape();
+        HullCollisionShape originalHull
+                = (HullCollisionShape) originals[2].getShape();
+        assert hull.countHullVertices() == originalHull.countHullVertices();
+    }
+
+    /**
+     * Verify that a loaded mesh matches its original.
+     *
+     * @param original the original mesh (not null, unaffected)
+     * @param loaded the loaded mesh (not null, unaffected)
+     */
+    private static void verifyMesh(IndexedMesh original, IndexedMesh loaded) {
+        assert loaded.countTriangles() == original.countTriangles();
+        assert loaded.countVertices() == original.countVertices();
+
+        FloatBuffer positions = loaded.copyVertexPositions();
+        positions.flip();
+        FloatBuffer originalPositions = original.copyVertexPositions();
+        originalPositions.flip();
+        assert positions.equals(originalPositions);
+
+        IntBuffer indices = loaded.copyIndices();
+        indices.flip();
+        IntBuffer originalIndices = original.copyIndices();
+        originalIndices.flip();
+        assert indices.equals(originalIndices);
+    }
+}
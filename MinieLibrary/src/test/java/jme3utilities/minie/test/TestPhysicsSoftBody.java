@@ -26,13 +26,19 @@
  */
 package jme3utilities.minie.test;
 
+import com.jme3.bullet.objects.ClusterSnapshot;
+import com.jme3.bullet.objects.NodeSnapshot;
 import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.bullet.objects.SoftBodyTemplate;
+import com.jme3.bullet.objects.infos.Cluster;
 import com.jme3.math.FastMath;
 import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
+import com.jme3.scene.mesh.IndexBuffer;
 import com.jme3.system.NativeLibraryLoader;
 import com.jme3.util.BufferUtils;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import org.junit.Test;
 
 /**
@@ -44,6 +50,58 @@ public class TestPhysicsSoftBody {
     // *************************************************************************
     // new methods exposed
 
+    @Test
+    public void testBulkNodeWrites() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSoftBody psb = new PhysicsSoftBody();
+        FloatBuffer nodeLocations = BufferUtils.createFloatBuffer(
+                new Vector3f(0f, 0f, 0f),
+                new Vector3f(1f, 0f, 0f),
+                new Vector3f(2f, 0f, 0f));
+        psb.appendNodes(nodeLocations);
+        assert psb.countPinnedNodes() == 0;
+
+        IntBuffer pinIndices = BufferUtils.createIntBuffer(0, 2);
+        psb.pinNodes(pinIndices);
+        assert psb.countPinnedNodes() == 2;
+        assert psb.nodeMass(0) == 0f;
+        assert psb.nodeMass(1) == 1f;
+        assert psb.nodeMass(2) == 0f;
+
+        IntBuffer unpinIndices = BufferUtils.createIntBuffer(2);
+        psb.unpinNodes(unpinIndices, 3f);
+        assert psb.countPinnedNodes() == 1;
+        assert psb.nodeMass(2) == 3f;
+
+        FloatBuffer deltas = BufferUtils.createFloatBuffer(
+                new Vector3f(5f, 0f, 0f),
+                new Vector3f(0f, 1f, 0f),
+                new Vector3f(0f, 0f, 2f));
+        psb.addVelocities(deltas);
+        psb.addVelocities(deltas);
+        Vector3f velocity = psb.nodeVelocity(0, null); // pinned
+        assert velocity.equals(new Vector3f(0f, 0f, 0f)) : velocity;
+        velocity = psb.nodeVelocity(1, null);
+        assert velocity.equals(new Vector3f(0f, 2f, 0f)) : velocity;
+        velocity = psb.nodeVelocity(2, null);
+        assert velocity.equals(new Vector3f(0f, 0f, 4f)) : velocity;
+        /*
+         * Impulses are divided by node mass, and pinned nodes are unaffected.
+         */
+        FloatBuffer impulses = BufferUtils.createFloatBuffer(
+                new Vector3f(7f, 0f, 0f),
+                new Vector3f(1f, 0f, 0f),
+                new Vector3f(0f, 6f, 0f));
+        psb.applyImpulses(impulses);
+        velocity = psb.nodeVelocity(0, null);
+        assert velocity.equals(new Vector3f(0f, 0f, 0f)) : velocity;
+        velocity = psb.nodeVelocity(1, null);
+        assert velocity.equals(new Vector3f(1f, 2f, 0f)) : velocity;
+        velocity = psb.nodeVelocity(2, null);
+        assert velocity.equals(new Vector3f(0f, 2f, 4f)) : velocity;
+    }
+
     @Test
     public void testPhysicsSoftBody() {
         NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
@@ -65,4 +123,117 @@ public class TestPhysicsSoftBody {
         assert FastMath.approximateEquals(location.y, 1.4f);
         assert FastMath.approximateEquals(location.z, -1.7f);
     }
+
+    @Test
+    public void testSleeping() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSoftBody psb = new PhysicsSoftBody();
+        FloatBuffer nodeLocations = BufferUtils.createFloatBuffer(
+                new Vector3f(0f, 0f, 0f),
+                new Vector3f(1f, 0f, 0f));
+        psb.appendNodes(nodeLocations);
+        psb.setNodeVelocity(0, new Vector3f(0f, 2f, 0f));
+        assert FastMath.approximateEquals(psb.kineticEnergy(), 2f);
+        /*
+         * Sleeping is disabled by default.
+         */
+        assert psb.getSleepingThreshold() == 0f;
+        assert !psb.updateSleeping(1f, false);
+        assert psb.isActive();
+
+        psb.setSleepingThreshold(0.5f);
+        psb.setSleepingDelay(0.1f);
+        assert !psb.updateSleeping(0.06f, false); // too energetic
+        assert psb.idleTime() == 0f;
+
+        psb.setVelocity(new Vector3f(0f, 0.1f, 0f));
+        assert !psb.updateSleeping(0.06f, true); // disturbed
+        assert !psb.updateSleeping(0.06f, false);
+        assert psb.idleTime() > 0f;
+        assert psb.updateSleeping(0.06f, false);
+        assert !psb.isActive();
+        assert psb.kineticEnergy() == 0f;
+
+        psb.activate(true);
+        assert psb.isActive();
+        assert psb.idleTime() == 0f;
+    }
+
+    @Test
+    public void testSnapshots() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSoftBody psb = new PhysicsSoftBody();
+        FloatBuffer nodeLocations = BufferUtils.createFloatBuffer(
+                new Vector3f(0f, 0f, 0f),
+                new Vector3f(1f, 0f, 0f),
+                new Vector3f(0f, 1f, 0f),
+                new Vector3f(1f, 1f, 0f));
+        psb.appendNodes(nodeLocations);
+        psb.setNodeVelocity(2, new Vector3f(0f, 0f, 3f));
+
+        NodeSnapshot nodes = psb.snapshotNodes(null);
+        assert nodes.countNodes() == 4;
+        Vector3f location = nodes.location(3, null);
+        assert location.equals(new Vector3f(1f, 1f, 0f)) : location;
+        Vector3f velocity = nodes.velocity(2, null);
+        assert velocity.equals(new Vector3f(0f, 0f, 3f)) : velocity;
+        assert nodes.mass(0) == psb.nodeMass(0);
+
+        psb.generateClusters(2, 8);
+        psb.set(Cluster.Matching, 1, 0.25f);
+        ClusterSnapshot clusters = psb.snapshotClusters(null);
+        assert clusters.countClusters() == 2;
+        assert clusters.get(Cluster.Matching, 1) == 0.25f;
+        for (int i = 0; i < 2; ++i) {
+            Vector3f center = clusters.center(i, null);
+            assert center.equals(psb.clusterCenter(i, null)) : center;
+        }
+        /*
+         * Altering a parameter must invalidate the cached values.
+         */
+        psb.set(Cluster.Matching, 1, 0.5f);
+        ClusterSnapshot same = psb.snapshotClusters(clusters);
+        assert same == clusters;
+        assert clusters.get(Cluster.Matching, 1) == 0.5f;
+    }
+
+    @Test
+    public void testTemplate() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSoftBody prototype = new PhysicsSoftBody();
+        FloatBuffer nodeLocations = BufferUtils.createFloatBuffer(
+                new Vector3f(0f, 0f, 0f),
+                new Vector3f(1f, 0f, 0f),
+                new Vector3f(0f, 1f, 0f),
+                new Vector3f(1f, 1f, 0f));
+        prototype.appendNodes(nodeLocations);
+        IndexBuffer faces = IndexBuffer.wrapIndexBuffer(
+                BufferUtils.createIntBuffer(0, 1, 2, 2, 1, 3));
+        prototype.appendFaces(faces);
+        IndexBuffer links = IndexBuffer.wrapIndexBuffer(
+                BufferUtils.createIntBuffer(0, 1, 1, 3, 3, 2, 2, 0));
+        prototype.appendLinks(links);
+        prototype.generateClusters(2, 8);
+        prototype.getSoftMaterial().setLinearStiffness(0.5f);
+        prototype.setFriction(0.25f);
+
+        SoftBodyTemplate template = new SoftBodyTemplate(prototype);
+        assert template.countNodes() == 4;
+
+        Transform offset = new Transform();
+        offset.getTranslation().set(0f, 5f, 0f);
+        PhysicsSoftBody instance = template.newInstance(offset);
+        assert instance.countNodes() == prototype.countNodes();
+        assert instance.countFaces() == prototype.countFaces();
+        assert instance.countLinks() == prototype.countLinks();
+        assert instance.countClusters() == prototype.countClusters();
+        assert instance.getSoftMaterial().linearStiffness() == 0.5f;
+        assert instance.getFriction() == 0.25f;
+
+        Vector3f location = instance.nodeLocation(3, null);
+        assert location.equals(new Vector3f(1f, 6f, 0f)) : location;
+    }
 }
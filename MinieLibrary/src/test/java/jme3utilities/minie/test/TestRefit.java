@@ -0,0 +1,133 @@
+/*
+ Copyright (c) 2021, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test in-place position updates of a MeshCollisionShape.
+ */
+public class TestRefit {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test IndexedMesh.updatePositions() followed by refit().
+     */
+    @Test
+    public void testRefit() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        MeshCollisionShape shape = new MeshCollisionShape(true, newSquare());
+        checkAabb(shape, new Vector3f(1f, 0f, 1f));
+
+        long shapeId = shape.nativeId();
+        FloatBuffer raised = newPositions(3f);
+        shape.getSubmesh(0).updatePositions(raised);
+        shape.refit();
+        checkAabb(shape, new Vector3f(1f, 3f, 1f));
+        Assert.assertEquals(shapeId, shape.nativeId()); // refitted in place
+        /*
+         * a non-identity scale, which refit() must preserve
+         */
+        shape = new MeshCollisionShape(false, newSquare());
+        shape.setScale(2f);
+        checkAabb(shape, new Vector3f(2f, 0f, 2f));
+
+        shape.getSubmesh(0).updatePositions(raised);
+        shape.refit();
+        checkAabb(shape, new Vector3f(2f, 6f, 2f));
+        Assert.assertEquals(new Vector3f(2f, 2f, 2f), shape.getScale(null));
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify the bounding box of a square shape centered on the Y axis.
+     *
+     * @param shape the shape to test (not null, unaffected)
+     * @param max the expected maximum X, Y, and Z coordinates, excluding the
+     * margin (not null, unaffected)
+     */
+    private static void checkAabb(MeshCollisionShape shape, Vector3f max) {
+        BoundingBox aabb = shape.boundingBox(
+                Vector3f.ZERO, Quaternion.IDENTITY, null);
+        float tolerance = 2f * shape.getMargin() + 1e-4f;
+
+        Vector3f actualMin = aabb.getMin(null);
+        Assert.assertEquals(-max.x, actualMin.x, tolerance);
+        Assert.assertEquals(max.y, actualMin.y, tolerance);
+        Assert.assertEquals(-max.z, actualMin.z, tolerance);
+
+        Vector3f actualMax = aabb.getMax(null);
+        Assert.assertEquals(max.x, actualMax.x, tolerance);
+        Assert.assertEquals(max.y, actualMax.y, tolerance);
+        Assert.assertEquals(max.z, actualMax.z, tolerance);
+    }
+
+    /**
+     * Generate the vertex positions of a horizontal square with 2-unit sides.
+     *
+     * @param y the Y coordinate of every vertex
+     * @return a new buffer
+     */
+    private static FloatBuffer newPositions(float y) {
+        FloatBuffer result = BufferUtils.createFloatBuffer(
+                new Vector3f(-1f, y, -1f),
+                new Vector3f(1f, y, -1f),
+                new Vector3f(1f, y, 1f),
+                new Vector3f(-1f, y, 1f));
+        return result;
+    }
+
+    /**
+     * Generate a horizontal square at Y=0 with 2-unit sides.
+     *
+     * @return a new mesh
+     */
+    private static IndexedMesh newSquare() {
+        Vector3f[] positionArray = {
+            new Vector3f(-1f, 0f, -1f),
+            new Vector3f(1f, 0f, -1f),
+            new Vector3f(1f, 0f, 1f),
+            new Vector3f(-1f, 0f, 1f)
+        };
+        int[] indexArray = {0, 1, 2, 0, 2, 3};
+        IndexedMesh result = new IndexedMesh(positionArray, indexArray);
+
+        return result;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ Copyright (c) 2021, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bullet.collision.shapes.HeightfieldCollisionShape;
+import com.jme3.bullet.util.DebugShapeFactory;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test in-place height updates of a HeightfieldCollisionShape.
+ */
+public class TestSetHeights {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test the setHeights() method.
+     */
+    @Test
+    public void testSetHeights() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+        /*
+         * a 3x3 heightfield with heights in the range [-2, 2]
+         */
+        float[] heightArray = {
+            0f, 0f, 0f,
+            0f, 2f, 0f,
+            0f, 0f, -2f
+        };
+        HeightfieldCollisionShape shape
+                = new HeightfieldCollisionShape(heightArray);
+        Assert.assertEquals(2f, maxY(shape), 0f);
+        /*
+         * Attempt to alter heights in various illegal ways.
+         */
+        try {
+            shape.setHeights(0, 0, 1, 1, new float[]{5f}, null);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+        }
+
+        try {
+            shape.setHeights(0, 0, 1, 1, new float[]{Float.NaN}, null);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+        }
+
+        try {
+            shape.setHeights(3, 0, 1, 1, new float[]{0f}, null);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+        }
+
+        try {
+            shape.setHeights(1, 2, 1, 2, new float[]{0f, 0f}, null);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+        }
+        /*
+         * A rejected write mustn't alter any height,
+         * even if its first height is legal.
+         */
+        try {
+            shape.setHeights(1, 1, 1, 2, new float[]{-1f, 9f}, null);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+        }
+        Assert.assertEquals(2f, maxY(shape), 0f);
+        /*
+         * Lower the peak at row 1, column 1 and dig at row 1, column 2.
+         */
+        BoundingBox storeResult = new BoundingBox();
+        BoundingBox box = shape.setHeights(1, 1, 1, 2, new float[]{1f, -1f},
+                storeResult);
+        Assert.assertSame(storeResult, box);
+        assertEquals(0f, -1f, 0f, box.getMin(null));
+        assertEquals(1f, 2f, 0f, box.getMax(null));
+        /*
+         * Read the new heights back through the native shape.
+         */
+        Assert.assertEquals(1f, maxY(shape), 0f);
+        /*
+         * An empty region yields a degenerate box at the region's corner.
+         */
+        box = shape.setHeights(0, 0, 0, 0, new float[0], null);
+        assertEquals(-1f, 0f, -1f, box.getMin(null));
+        assertEquals(-1f, 0f, -1f, box.getMax(null));
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify the components of a vector.
+     *
+     * @param x the expected X component
+     * @param y the expected Y component
+     * @param z the expected Z component
+     * @param actual the vector to verify (not null, unaffected)
+     */
+    private static void assertEquals(float x, float y, float z,
+            Vector3f actual) {
+        Assert.assertEquals(x, actual.x, 1e-6f);
+        Assert.assertEquals(y, actual.y, 1e-6f);
+        Assert.assertEquals(z, actual.z, 1e-6f);
+    }
+
+    /**
+     * Find the highest debug-mesh vertex of the specified shape, as generated
+     * by native code from the current heights.
+     *
+     * @param shape the shape to analyze (not null, unaffected)
+     * @return the maximum Y coordinate (in shape coordinates)
+     */
+    private static float maxY(HeightfieldCollisionShape shape) {
+        FloatBuffer vertices = DebugShapeFactory.debugVertices(shape,
+                DebugShapeFactory.lowResolution);
+        float result = Float.NEGATIVE_INFINITY;
+        for (int i = 1; i < vertices.capacity(); i += 3) {
+            result = Math.max(result, vertices.get(i));
+        }
+
+        return result;
+    }
+}